@@ -0,0 +1,53 @@
+package org.app.bench;
+
+import org.app.generator.GenerationOptions;
+import org.app.generator.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building declarations in memory (no disk): one emitter per run, output discarded.
+ * Run with {@code -prof gc} to compare allocation per declaration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class BuildBenchmark {
+
+    @Param({"TREE", "STREAMING", "TEMPLATE"})
+    public GenerationOptions.Emitter emitter;
+
+    @Param({"false", "true"})
+    public boolean compact;
+
+    @Benchmark
+    public void build(ManifestState manifest, Counters counters, Blackhole bh) throws IOException {
+        DiscardingSink sink = new DiscardingSink(bh) {
+            @Override
+            public boolean singleLine() {
+                return compact;
+            }
+        };
+        GenerationOptions options = new GenerationOptions();
+        options.setEmitter(emitter);
+        options.setSink(sink);
+        JsonGenerator.generate(manifest.store, manifest.workbook, options, bh::consume);
+        counters.rows += manifest.store.size();
+        counters.declarations += sink.declarations;
+    }
+}
@@ -0,0 +1,21 @@
+package org.app.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Secondary results, reported by JMH as rows/s and declarations/s next to the primary score. */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Counters {
+    public long rows;
+    public long declarations;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        rows = 0;
+        declarations = 0;
+    }
+}
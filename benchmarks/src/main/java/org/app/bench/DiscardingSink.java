@@ -0,0 +1,31 @@
+package org.app.bench;
+
+import org.app.output.DeclarationSink;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Swallows declarations so building can be measured without disk I/O. */
+class DiscardingSink implements DeclarationSink {
+    private final Blackhole bh;
+    long declarations;
+    long bytes;
+
+    DiscardingSink(Blackhole bh) {
+        this.bh = bh;
+    }
+
+    @Override
+    public synchronized void write(String fileName, byte[] json, int offset, int length) {
+        bh.consume(json);
+        declarations++;
+        bytes += length;
+    }
+
+    @Override
+    public String describe() {
+        return "discard";
+    }
+
+    @Override
+    public void close() {
+    }
+}
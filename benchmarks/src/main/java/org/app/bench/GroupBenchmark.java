@@ -0,0 +1,30 @@
+package org.app.bench;
+
+import org.app.generator.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Grouping by shipper/importer and splitting into chunks of 3. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupBenchmark {
+
+    @Benchmark
+    public List<int[]> chunks(ManifestState manifest, Counters counters) {
+        List<int[]> chunks = JsonGenerator.chunks(manifest.store);
+        counters.rows += manifest.store.size();
+        counters.declarations += chunks.size();
+        return chunks;
+    }
+}
@@ -0,0 +1,170 @@
+package org.app.bench;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.app.model.ExcelDto;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic manifests in the 14-column layout ExcelReader expects.
+ * The same (rows, groups, stringLength, seed) always produces the same workbook.
+ * <pre>
+ *   java -cp target/benchmarks.jar org.app.bench.ManifestGenerator out.xlsx 200000 [groups] [stringLength] [seed]
+ * </pre>
+ */
+public class ManifestGenerator {
+    static final String[] HEADER = {
+            "Tracking Nr", "Shipper Name", "Shipper Address", "Shipper City", "Importer Country",
+            "Importer Name", "Importer Address", "Importer City", "Importer Post Code",
+            "Nr Of Packages", "Weight", "Master AWB", "Description Of Goods", "Master Document"
+    };
+    private static final String[] COUNTRIES = {"DE", "FR", "IT", "RO", "NL", "BE", "AT", "PL", "ES", "HU"};
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ abcdefghijklmnopqrstuvwxyz";
+
+    private final int rows;
+    private final int groups;
+    private final int stringLength;
+    private final long seed;
+
+    public ManifestGenerator(int rows, int groups, int stringLength, long seed) {
+        this.rows = rows;
+        this.groups = groups;
+        this.stringLength = stringLength;
+        this.seed = seed;
+    }
+
+    /** Cell values of every data row, in sheet order. */
+    public List<String[]> cells() {
+        Random rnd = new Random(seed);
+        String[][] parties = new String[groups][];
+        for (int g = 0; g < groups; g++) {
+            parties[g] = new String[]{
+                    "Shipper " + g + " " + text(rnd), "Str. " + text(rnd), "City " + (g % 50),
+                    COUNTRIES[g % COUNTRIES.length],
+                    "Importer " + g + " " + text(rnd), "Addr " + text(rnd), "Town " + (g % 200),
+                    String.valueOf(10000 + g)
+            };
+        }
+
+        List<String[]> out = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String[] p = parties[rnd.nextInt(groups)];
+            out.add(new String[]{
+                    "1Z" + (100000000L + i), p[0], p[1], p[2], p[3], p[4], p[5], p[6], p[7],
+                    String.valueOf(1 + rnd.nextInt(5)),
+                    String.valueOf((1 + rnd.nextInt(4000)) / 100.0),
+                    String.valueOf(610000 + rnd.nextInt(9999)),
+                    text(rnd),
+                    "MAWB-" + (i / 1000)
+            });
+        }
+        return out;
+    }
+
+    /** The rows ExcelReader would produce for the generated workbook. */
+    public List<ExcelDto> dtos() {
+        List<ExcelDto> dtos = new ArrayList<>(rows);
+        for (String[] c : cells()) {
+            ExcelDto d = new ExcelDto();
+            d.setTrackingNr(c[0]);
+            d.setShipperName(c[1]);
+            d.setShipperAddress(c[2]);
+            d.setShipperCity(c[3]);
+            d.setImporterCountry(c[4]);
+            d.setImporterName(c[5]);
+            d.setImporterAddress(c[6]);
+            d.setImporterCity(c[7]);
+            d.setImporterPostCode(c[8]);
+            d.setNrOfPackages(c[9]);
+            d.setWeight(c[10]);
+            d.setMasterAwb(c[11]);
+            d.setDescriptionOfGoods(c[12]);
+            d.setMasterDocument(c[13]);
+            if (!Arrays.asList(d.getCountriesOfRoutingOfConsignment()).contains(c[4])) {
+                d.setCountriesOfRoutingOfConsignment(new String[]{"MD", "RO", "DE", c[4]});
+            }
+            dtos.add(d);
+        }
+        return dtos;
+    }
+
+    public void write(File xlsx) throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(1000);
+             OutputStream os = new FileOutputStream(xlsx)) {
+            Sheet sheet = wb.createSheet("Manifest");
+            writeRow(sheet.createRow(0), HEADER);
+            int r = 1;
+            for (String[] c : cells()) {
+                writeRow(sheet.createRow(r++), c);
+            }
+            wb.write(os);
+            wb.dispose();
+        }
+    }
+
+    /** Same rows as {@link #write(File)}, as UTF-8 CSV; fields are quoted when needed. */
+    public void writeCsv(File csv) throws IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csv), StandardCharsets.UTF_8))) {
+            writeCsvRow(w, HEADER);
+            for (String[] c : cells()) {
+                writeCsvRow(w, c);
+            }
+        }
+    }
+
+    private static void writeCsvRow(Writer w, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) w.write(',');
+            String v = values[i];
+            if (v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0) {
+                v = '"' + v.replace("\"", "\"\"") + '"';
+            }
+            w.write(v);
+        }
+        w.write("\r\n");
+    }
+
+    private static void writeRow(Row row, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i]);
+        }
+    }
+
+    private String text(Random rnd) {
+        char[] chars = new char[stringLength];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = LETTERS.charAt(rnd.nextInt(LETTERS.length()));
+        }
+        return new String(chars).trim();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ManifestGenerator OUT.xlsx|OUT.csv ROWS [GROUPS] [STRING_LENGTH] [SEED]");
+            System.exit(2);
+        }
+        int rows = Integer.parseInt(args[1]);
+        int groups = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, rows / 10);
+        int stringLength = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        ManifestGenerator gen = new ManifestGenerator(rows, groups, stringLength, seed);
+        if (args[0].endsWith(".csv")) {
+            gen.writeCsv(new File(args[0]));
+        } else {
+            gen.write(new File(args[0]));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.app.bench;
+
+import org.app.model.ExcelDto;
+import org.app.model.RowStore;
+import org.app.validation.RowValidator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * One synthetic manifest per parameter combination, as an .xlsx file, a .csv file, as rows
+ * and as the validated {@link RowStore} the generator reads.
+ */
+@State(Scope.Benchmark)
+public class ManifestState {
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"1000"})
+    public int groups;
+
+    @Param({"20"})
+    public int stringLength;
+
+    public File workbook;
+    public File csv;
+    public List<ExcelDto> dtos;
+    public RowStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ManifestGenerator gen = new ManifestGenerator(rows, groups, stringLength, 42L);
+        workbook = Files.createTempFile("manifest-" + rows + "-", ".xlsx").toFile();
+        gen.write(workbook);
+        csv = Files.createTempFile("manifest-" + rows + "-", ".csv").toFile();
+        gen.writeCsv(csv);
+        dtos = gen.dtos();
+        store = RowValidator.validate(dtos).getAccepted();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(workbook.toPath());
+        Files.deleteIfExists(csv.toPath());
+    }
+}
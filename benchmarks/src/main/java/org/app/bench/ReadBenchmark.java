@@ -0,0 +1,51 @@
+package org.app.bench;
+
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.app.reader.CsvReader;
+import org.app.reader.ExcelReader;
+import org.app.reader.StreamingExcelReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Manifest -> ExcelDto rows: DOM reader, SAX streaming reader and the mapped CSV reader. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReadBenchmark {
+
+    @Benchmark
+    public List<ExcelDto> dom(ManifestState manifest, Counters counters) throws IOException {
+        List<ExcelDto> dtos = ExcelReader.read(manifest.workbook);
+        counters.rows += dtos.size();
+        return dtos;
+    }
+
+    @Benchmark
+    public void streaming(ManifestState manifest, Counters counters, Blackhole bh) throws IOException {
+        StreamingExcelReader.read(manifest.workbook, dto -> {
+            bh.consume(dto);
+            counters.rows++;
+        });
+    }
+
+    @Benchmark
+    public void csv(ManifestState manifest, Counters counters, Blackhole bh) throws IOException {
+        CsvReader.read(manifest.csv, new RunMetrics(), dto -> {
+            bh.consume(dto);
+            counters.rows++;
+        });
+    }
+}
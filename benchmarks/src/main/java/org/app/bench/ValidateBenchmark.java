@@ -0,0 +1,29 @@
+package org.app.bench;
+
+import org.app.validation.RowValidator;
+import org.app.validation.ValidationReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Parsing the numeric columns of every row and collecting rejected ones. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidateBenchmark {
+
+    @Benchmark
+    public ValidationReport validate(ManifestState manifest, Counters counters) {
+        ValidationReport report = RowValidator.validate(manifest.dtos);
+        counters.rows += manifest.dtos.size();
+        return report;
+    }
+}
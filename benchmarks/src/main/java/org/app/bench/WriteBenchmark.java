@@ -0,0 +1,68 @@
+package org.app.bench;
+
+import org.app.generator.GenerationOptions;
+import org.app.generator.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/** End-to-end generation to disk for each output mode and worker count. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriteBenchmark {
+
+    @Param({"FILES", "ZIP", "NDJSON"})
+    public GenerationOptions.Output output;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    private Path outputDir;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        outputDir = Files.createTempDirectory("bench-out");
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(outputDir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public int write(ManifestState manifest, Counters counters, Blackhole bh) throws IOException {
+        GenerationOptions options = new GenerationOptions();
+        options.setOutput(output);
+        options.setWorkers(workers);
+        options.setOutputDir(outputDir);
+        int written = JsonGenerator.generate(manifest.store, manifest.workbook, options, bh::consume);
+        counters.rows += manifest.store.size();
+        counters.declarations += written;
+        return written;
+    }
+}
@@ -0,0 +1,62 @@
+package org.app.bench;
+
+import org.app.model.ExcelDto;
+import org.app.reader.CsvReader;
+import org.app.reader.ExcelReader;
+import org.app.reader.StreamingExcelReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ManifestGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameParametersGiveTheSameManifest() {
+        List<String[]> first = new ManifestGenerator(500, 40, 12, 7).cells();
+        List<String[]> again = new ManifestGenerator(500, 40, 12, 7).cells();
+        assertEquals(500, first.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertArrayEquals(first.get(i), again.get(i));
+        }
+        assertNotEquals(first.get(0)[1], new ManifestGenerator(500, 40, 12, 8).cells().get(0)[1]);
+    }
+
+    @Test
+    void readersSeeTheRowsOfDtos() throws IOException {
+        ManifestGenerator gen = new ManifestGenerator(300, 25, 12, 42);
+        List<String> expected = describe(gen.dtos());
+
+        File xlsx = dir.resolve("manifest.xlsx").toFile();
+        gen.write(xlsx);
+        assertEquals(expected, describe(ExcelReader.read(xlsx)));
+        assertEquals(expected, describe(StreamingExcelReader.read(xlsx)));
+
+        File csv = dir.resolve("manifest.csv").toFile();
+        gen.writeCsv(csv);
+        assertEquals(expected, describe(CsvReader.read(csv)));
+    }
+
+    private static List<String> describe(List<ExcelDto> rows) {
+        List<String> out = new ArrayList<>();
+        for (ExcelDto d : rows) {
+            out.add(String.join("|", d.getTrackingNr(), d.getShipperName(), d.getShipperAddress(), d.getShipperCity(),
+                    d.getImporterCountry(), d.getImporterName(), d.getImporterAddress(), d.getImporterCity(),
+                    d.getImporterPostCode(), d.getNrOfPackages(), d.getWeight(), d.getMasterAwb(),
+                    d.getDescriptionOfGoods(), d.getMasterDocument(),
+                    String.join(" ", d.getCountriesOfRoutingOfConsignment())));
+        }
+        return out;
+    }
+}
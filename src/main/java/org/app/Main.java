@@ -1,11 +1,15 @@
 package org.app;
 
+import org.app.cli.BatchCli;
 import org.app.ui.MainFrame;
 
 import javax.swing.*;
 
 public class Main {
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(BatchCli.run(args));
+        }
         SwingUtilities.invokeLater(() -> new MainFrame().setVisible(true));
     }
 }
@@ -0,0 +1,135 @@
+package org.app;
+
+import org.app.generator.GenerationOptions;
+import org.app.generator.JsonGenerator;
+import org.app.metrics.RunMetrics;
+import org.app.reader.ParallelReader;
+import org.app.reader.SheetSelection;
+import org.app.ui.MainFrame;
+import org.app.validation.RowValidator;
+import org.app.validation.ValidationReport;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Start-up workload of the -Pstartup build: opens the main window (when there is a display)
+ * and converts a small workbook with both readers, then reports how long after JVM start
+ * each was ready.
+ * <p>
+ * The build runs it once with -XX:ArchiveClassesAtExit, so the class-data-sharing archive
+ * holds exactly the classes a real start needs, and once more on that archive with
+ * {@code --budget MS} to fail the build if start-up got slow.
+ * <pre>
+ *   java -cp app-startup.jar org.app.StartupCheck [--workbook FILE] [--budget MS]
+ * </pre>
+ */
+public class StartupCheck {
+    private static final String[] HEADER = {"Tracking Nr", "Weight", "Shipper Name", "Shipper Address", "Shipper City",
+            "Importer Post Code", "Importer Name", "Importer Address", "Importer City", "Importer Country",
+            "HS Code", "Master Document", "Description Of Goods", "Nr Of Packages"};
+
+    public static void main(String[] args) throws Exception {
+        Path workbook = Paths.get(System.getProperty("java.io.tmpdir"), "startup-check.xlsx");
+        long budget = 0;
+        for (int i = 0; i < args.length; i++) {
+            if ("--workbook".equals(args[i]) && i + 1 < args.length) {
+                workbook = Paths.get(args[++i]);
+            } else if ("--budget".equals(args[i]) && i + 1 < args.length) {
+                budget = Long.parseLong(args[++i]);
+            } else {
+                System.err.println("Usage: java -cp app.jar org.app.StartupCheck [--workbook FILE] [--budget MS]");
+                System.exit(2);
+            }
+        }
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+        long window = -1;
+        if (!GraphicsEnvironment.isHeadless()) {
+            MainFrame[] frame = new MainFrame[1];
+            SwingUtilities.invokeAndWait(() -> {
+                frame[0] = new MainFrame();
+                frame[0].setVisible(true);
+            });
+            window = System.currentTimeMillis() - jvmStart;
+            SwingUtilities.invokeAndWait(() -> frame[0].dispose());
+        }
+
+        if (!Files.exists(workbook)) writeSample(workbook);
+        convert(workbook.toFile(), true);
+        convert(workbook.toFile(), false);
+        long converted = System.currentTimeMillis() - jvmStart;
+
+        long ready = window >= 0 ? window : converted;
+        System.out.printf(Locale.ROOT, "STARTUP window %s, first conversion %d ms%s%n",
+                window >= 0 ? window + " ms" : "n/a (headless)", converted,
+                budget > 0 ? " (budget " + budget + " ms)" : "");
+        if (budget > 0 && ready > budget) {
+            System.out.println("STARTUP too slow: ready after " + ready + " ms");
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static void convert(File workbook, boolean streaming) throws IOException {
+        RunMetrics metrics = new RunMetrics();
+        ValidationReport report = RowValidator.validate(
+                ParallelReader.read(Collections.singletonList(workbook), SheetSelection.FIRST, streaming, 1, metrics,
+                        msg -> { }),
+                metrics);
+        Path out = Files.createTempDirectory("startup-check");
+        try {
+            GenerationOptions options = new GenerationOptions();
+            options.setOutputDir(out);
+            options.setMetrics(metrics);
+            JsonGenerator.generate(report.getAccepted(), workbook, options, msg -> { });
+        } finally {
+            try (Stream<Path> files = Files.list(out)) {
+                for (Path f : (Iterable<Path>) files::iterator) {
+                    Files.delete(f);
+                }
+            }
+            Files.delete(out);
+        }
+    }
+
+    /**
+     * Six rows of two shippers, enough to go through grouping, chunking and the writer stage,
+     * plus a lower-case and an unknown importer country, so the routing and rejection paths are
+     * loaded (and archived) too.
+     */
+    private static void writeSample(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream os = Files.newOutputStream(file)) {
+            Sheet sheet = wb.createSheet("Manifest");
+            Row header = sheet.createRow(0);
+            for (int c = 0; c < HEADER.length; c++) {
+                header.createCell(c).setCellValue(HEADER[c]);
+            }
+            String[] countries = {"FR", "FR", "FR", "FR", "FR", "FR", "fr", "XX"};
+            for (int r = 1; r <= countries.length; r++) {
+                Row row = sheet.createRow(r);
+                String[] values = {"1Z" + (900000 + r), "1.5", "Shipper " + r % 2, "Str. 1", "Chisinau",
+                        "10001", "Importer " + r % 2, "Addr 1", "Paris", countries[r - 1], "620342", "MAWB-1",
+                        "Clothes", "1"};
+                for (int c = 0; c < values.length; c++) {
+                    row.createCell(c).setCellValue(values[c]);
+                }
+            }
+            wb.write(os);
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package org.app.cli;
+
+import org.app.generator.Envelope;
+import org.app.generator.GenerationOptions;
+import org.app.generator.JsonGenerator;
+import org.app.metrics.RunMetrics;
+import org.app.output.SubmittedIndex;
+import org.app.reader.AccessReader;
+import org.app.reader.CsvReader;
+import org.app.reader.ParallelReader;
+import org.app.reader.SheetSelection;
+import org.app.server.ConversionServer;
+import org.app.validation.RowValidator;
+import org.app.validation.ValidationReport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless batch mode: converts many workbooks without starting Swing.
+ * <pre>
+ *   java -jar app.jar [options] FILE|DIR...
+ *   java -jar app.jar --watch INBOX [--settle MS] [options]
+ *   java -jar app.jar --serve PORT [--bind ADDR] [--queue N] [options]
+ * </pre>
+ * The options are listed by {@code --help} (see {@link #help()}). Exit code 0 means every
+ * row was converted, 1 that a workbook failed or rows were rejected, 2 a usage error.
+ */
+public class BatchCli {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+
+    final PrintStream out;
+    private final List<Path> inputs = new ArrayList<>();
+    Path outputDir;
+    int threads = Runtime.getRuntime().availableProcessors();
+    /** Generation threads of each workbook: the --threads a batch has more than workbooks. */
+    int workers = 1;
+    private boolean streaming;
+    private boolean verbose;
+    private boolean incremental;
+    private boolean compact;
+    private boolean fsync;
+    private boolean schemaCheck = true;
+    private int writeQueue = new GenerationOptions().getWriteQueue();
+    private long groupMemory = new GenerationOptions().getGroupMemory();
+    private Path submittedFile;
+    private GenerationOptions.Duplicates duplicates = GenerationOptions.Duplicates.SKIP;
+    private SubmittedIndex submitted;
+    private SheetSelection sheets = SheetSelection.FIRST;
+    private String mergeName;
+    private Path envelopeFile;
+    private Envelope envelope;
+    private GenerationOptions.Output output = GenerationOptions.Output.FILES;
+    private Path watchDir;
+    private long settleMillis = WatchDaemon.DEFAULT_SETTLE_MILLIS;
+    private Integer servePort;
+    private String bindAddress = "127.0.0.1";
+    private Integer queueCapacity;
+    private boolean help;
+
+    private Path metricsFile;
+    final RunMetrics metrics = new RunMetrics();
+    final AtomicInteger failed = new AtomicInteger();
+    final AtomicInteger rejected = new AtomicInteger();
+
+    BatchCli(PrintStream out) {
+        this.out = out;
+    }
+
+    public static int run(String[] args) {
+        BatchCli cli = new BatchCli(System.out);
+        try {
+            cli.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.err.println(usage());
+            System.err.println("Run with --help for the options.");
+            return EXIT_USAGE;
+        }
+        if (cli.help) {
+            System.out.println(help());
+            return EXIT_OK;
+        }
+        return cli.execute();
+    }
+
+    static String usage() {
+        return "Usage: java -jar app.jar [options] FILE|DIR...\n"
+                + "       java -jar app.jar --watch INBOX [--settle MS] [options]\n"
+                + "       java -jar app.jar --serve PORT [--bind ADDR] [--queue N] [options]";
+    }
+
+    /** The one place the options are described; the README table follows it. */
+    static String help() {
+        return usage() + "\n"
+                + "\n"
+                + "Converts .xlsx, .csv, .tsv, .accdb and .mdb manifests; directories are scanned for them\n"
+                + "(not recursively).\n"
+                + "\n"
+                + "Input and output:\n"
+                + "  --out DIR              write the JSON files to DIR (default: next to each manifest)\n"
+                + "  --sheets first|all|NAME,...\n"
+                + "                         sheets, or Access tables/queries, to read (default: first)\n"
+                + "  --merge NAME           read all inputs together and write one run named NAME, so rows of\n"
+                + "                         the same shipper/importer from different files share declarations\n"
+                + "  --bundle zip|ndjson    one ZIP or NDJSON file per manifest instead of a file per declaration\n"
+                + "  --envelope FILE        properties overriding the static declaration values\n"
+                + "  --incremental          rebuild only declarations whose rows changed since the last run\n"
+                + "                         and delete outputs of chunks that disappeared (not with --bundle)\n"
+                + "  --submitted FILE       index of tracking numbers converted before: those rows are left out\n"
+                + "                         and each run's new numbers are added\n"
+                + "  --duplicates skip|flag with --submitted, leave repeats out (default) or convert them with\n"
+                + "                         a warning\n"
+                + "  --no-schema-check      do not check declarations against the IE3F33 schema\n"
+                + "\n"
+                + "Performance:\n"
+                + "  --threads N            manifests converted at once; threads left over build declarations\n"
+                + "                         (default: number of CPUs)\n"
+                + "  --streaming            read .xlsx with the streaming reader (far less memory)\n"
+                + "  --group-memory MB      heap for grouping before it spills to temporary files\n"
+                + "                         (default: a quarter of -Xmx, 0 = no limit)\n"
+                + "  --write-queue N        declarations waiting for the writer thread (default 256, 0 = write\n"
+                + "                         on the building threads)\n"
+                + "  --compact              JSON without indentation\n"
+                + "  --fsync                force each file to disk before it is renamed into place\n"
+                + "\n"
+                + "Reporting:\n"
+                + "  --metrics FILE         also write the METRICS line to FILE\n"
+                + "  --verbose              print every rejected row and warning\n"
+                + "  --help                 show this text\n"
+                + "\n"
+                + "Watch folder:\n"
+                + "  --watch INBOX          keep running and convert files dropped into INBOX; they are moved\n"
+                + "                         to INBOX/done or INBOX/failed (not with --merge)\n"
+                + "  --settle MS            take a file once it has not changed for MS ms (default 2000)\n"
+                + "\n"
+                + "HTTP service (POST /convert?name=FILE, GET /metrics):\n"
+                + "  --serve PORT           answer conversion requests on PORT\n"
+                + "  --bind ADDR            address to listen on (default 127.0.0.1)\n"
+                + "  --queue N              requests that may wait for a thread (default 4 x --threads)\n"
+                + "\n"
+                + "Exit code: 0 all rows converted, 1 a manifest failed or rows were rejected or invalid,\n"
+                + "2 wrong options.";
+    }
+
+    void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--help":
+                case "-h":
+                    help = true;
+                    return;
+                case "--out":
+                    outputDir = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--threads":
+                    threads = positiveInt(value(args, ++i, arg), arg);
+                    break;
+                case "--streaming":
+                    streaming = true;
+                    break;
+                case "--envelope":
+                    envelopeFile = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--bundle":
+                    output = bundle(value(args, ++i, arg));
+                    break;
+                case "--sheets":
+                    sheets = SheetSelection.parse(value(args, ++i, arg));
+                    break;
+                case "--merge":
+                    mergeName = value(args, ++i, arg);
+                    break;
+                case "--metrics":
+                    metricsFile = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--incremental":
+                    incremental = true;
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                case "--compact":
+                    compact = true;
+                    break;
+                case "--fsync":
+                    fsync = true;
+                    break;
+                case "--no-schema-check":
+                    schemaCheck = false;
+                    break;
+                case "--submitted":
+                    submittedFile = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--duplicates":
+                    duplicates = duplicates(value(args, ++i, arg));
+                    break;
+                case "--write-queue":
+                    String size = value(args, ++i, arg);
+                    writeQueue = "0".equals(size) ? 0 : positiveInt(size, arg);
+                    break;
+                case "--group-memory":
+                    String mb = value(args, ++i, arg);
+                    groupMemory = "0".equals(mb) ? 0 : (long) positiveInt(mb, arg) << 20;
+                    break;
+                case "--watch":
+                    watchDir = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--settle":
+                    settleMillis = positiveInt(value(args, ++i, arg), arg);
+                    break;
+                case "--serve":
+                    servePort = port(value(args, ++i, arg));
+                    break;
+                case "--bind":
+                    bindAddress = value(args, ++i, arg);
+                    break;
+                case "--queue":
+                    queueCapacity = positiveInt(value(args, ++i, arg), arg);
+                    break;
+                default:
+                    if (arg.startsWith("--")) throw new IllegalArgumentException("Unknown option " + arg);
+                    inputs.add(Paths.get(arg));
+            }
+        }
+        if (servePort != null) {
+            if (!inputs.isEmpty() || watchDir != null || mergeName != null) {
+                throw new IllegalArgumentException("--serve cannot be combined with FILE|DIR, --watch or --merge");
+            }
+        } else if (watchDir != null) {
+            if (!inputs.isEmpty()) throw new IllegalArgumentException("--watch takes no FILE|DIR arguments");
+            if (mergeName != null) throw new IllegalArgumentException("--watch cannot be combined with --merge");
+        } else if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input files or directories given");
+        }
+        if (incremental && output != GenerationOptions.Output.FILES) {
+            throw new IllegalArgumentException("--incremental cannot be combined with --bundle");
+        }
+        if (submittedFile != null && servePort != null) {
+            throw new IllegalArgumentException("--submitted cannot be combined with --serve");
+        }
+        if (submittedFile != null && incremental && duplicates == GenerationOptions.Duplicates.SKIP) {
+            throw new IllegalArgumentException("--submitted with --incremental needs --duplicates flag");
+        }
+    }
+
+    static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException(option + " needs a value");
+        return args[i];
+    }
+
+    static int positiveInt(String value, String option) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) return n;
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive number, got " + value);
+    }
+
+    static int port(String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= 0 && n <= 65535) return n;
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("--serve needs a port between 0 and 65535, got " + value);
+    }
+
+    static GenerationOptions.Output bundle(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "zip":    return GenerationOptions.Output.ZIP;
+            case "ndjson": return GenerationOptions.Output.NDJSON;
+            default: throw new IllegalArgumentException("--bundle must be zip or ndjson, got " + value);
+        }
+    }
+
+    static GenerationOptions.Duplicates duplicates(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "skip": return GenerationOptions.Duplicates.SKIP;
+            case "flag": return GenerationOptions.Duplicates.FLAG;
+            default: throw new IllegalArgumentException("--duplicates must be skip or flag, got " + value);
+        }
+    }
+
+    int execute() {
+        if (submittedFile != null) {
+            try {
+                submitted = SubmittedIndex.open(submittedFile);
+            } catch (IOException e) {
+                out.println("ERROR: " + e.getMessage());
+                return EXIT_FAILED;
+            }
+        }
+        try {
+            return executeRun();
+        } finally {
+            if (submitted != null) closeSubmitted();
+        }
+    }
+
+    private void closeSubmitted() {
+        try {
+            submitted.close();
+        } catch (IOException e) {
+            out.println("ERROR: " + submittedFile + ": " + e.getMessage());
+        }
+    }
+
+    private int executeRun() {
+        List<File> workbooks;
+        try {
+            envelope = envelopeFile != null ? Envelope.load(envelopeFile) : Envelope.defaults();
+            if (servePort != null) {
+                new ConversionServer(new InetSocketAddress(bindAddress, servePort), threads,
+                        queueCapacity != null ? queueCapacity : 4 * threads, envelope, streaming, sheets, out)
+                        .runUntilShutdown();
+                return EXIT_OK;
+            }
+            if (watchDir != null) {
+                if (outputDir == null) outputDir = watchDir.resolve("out");
+                Files.createDirectories(outputDir);
+                return new WatchDaemon(this, watchDir, settleMillis).run();
+            }
+            workbooks = collectWorkbooks(inputs);
+            if (outputDir != null) Files.createDirectories(outputDir);
+        } catch (IOException | IllegalArgumentException e) {
+            out.println("ERROR: " + e.getMessage());
+            return EXIT_FAILED;
+        }
+        if (workbooks.isEmpty()) {
+            out.println("No .xlsx, .csv, .tsv, .accdb or .mdb files found.");
+            return EXIT_FAILED;
+        }
+
+        if (mergeName != null) return executeMerged(workbooks);
+
+        long start = System.nanoTime();
+        int poolSize = Math.min(threads, workbooks.size());
+        workers = Math.max(1, threads / poolSize);
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (File wb : workbooks) {
+                futures.add(pool.submit(() -> convert(wb)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // convert() reports exceptions itself; this is an Error such as OutOfMemoryError
+                    failed.incrementAndGet();
+                    out.println("FAILED " + workbooks.get(i) + ": " + e.getCause());
+                }
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+            return EXIT_FAILED;
+        }
+
+        printSummary("Workbooks", workbooks.size(), System.nanoTime() - start);
+        metrics.commitSummaryEvent();
+        if (!writeMetrics()) return EXIT_FAILED;
+        return failed.get() == 0 && rejected.get() == 0 && metrics.getDeclarationsInvalid() == 0 ? EXIT_OK : EXIT_FAILED;
+    }
+
+    /** --merge: one read over all workbooks, one validation and one generation run. */
+    private int executeMerged(List<File> workbooks) {
+        long start = System.nanoTime();
+        Path dir = outputDir != null ? outputDir : workbooks.get(0).getAbsoluteFile().toPath().getParent();
+        try {
+            // the row list is garbage once validation has copied the rows into the store
+            workers = threads;
+            Consumer<String> log = verbose ? msg -> out.println(mergeName + ": " + msg) : msg -> { };
+            ValidationReport report = RowValidator.validate(
+                    ParallelReader.read(workbooks, sheets, streaming, threads, metrics, log), metrics);
+            int rows = report.getAcceptedRows() + report.getRejectedRows();
+            report.save(ValidationReport.reportFile(dir, mergeName));
+            GenerationOptions options = options();
+            report.getErrors().forEach(e -> log.accept(e.toString()));
+            int written = JsonGenerator.generate(report.getAccepted(), dir, mergeName, options, log);
+            if (report.hasErrors()) rejected.incrementAndGet();
+            out.printf(Locale.ROOT, "%s %s: %d workbooks, %d rows, %d rejected, %d declarations in %d ms%n",
+                    report.hasErrors() ? "PART  " : "OK    ", mergeName, workbooks.size(), rows,
+                    report.getRejectedRows(), written, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            out.println("FAILED " + mergeName + ": " + e.getMessage());
+        }
+
+        printSummary("Merged runs", 1, System.nanoTime() - start);
+        metrics.commitSummaryEvent();
+        if (!writeMetrics()) return EXIT_FAILED;
+        return failed.get() == 0 && rejected.get() == 0 && metrics.getDeclarationsInvalid() == 0 ? EXIT_OK : EXIT_FAILED;
+    }
+
+    private GenerationOptions options() {
+        GenerationOptions options = new GenerationOptions();
+        options.setOutputDir(outputDir);
+        options.setEnvelope(envelope);
+        options.setOutput(output);
+        options.setIncremental(incremental);
+        options.setCompact(compact);
+        options.setFsync(fsync);
+        options.setSchemaCheck(schemaCheck);
+        options.setWorkers(workers);
+        options.setWriteQueue(writeQueue);
+        options.setGroupMemory(groupMemory);
+        options.setSubmitted(submitted);
+        options.setDuplicates(duplicates);
+        options.setMetrics(metrics);
+        return options;
+    }
+
+    /** Returns false if the workbook could not be converted; rejected rows still count as converted. */
+    boolean convert(File workbook) {
+        long start = System.nanoTime();
+        try {
+            RowValidator validator = new RowValidator(metrics);
+            GenerationOptions options = options();
+            Consumer<String> log = verbose ? msg -> out.println(workbook.getName() + ": " + msg) : msg -> { };
+            // declarations are written while the workbook is still being read
+            int written = JsonGenerator.generate(
+                    into -> ParallelReader.read(workbook, sheets, streaming, metrics, into, log),
+                    validator, workbook, options, log);
+            ValidationReport report = validator.getReport();
+            int rows = report.getAcceptedRows() + report.getRejectedRows();
+            report.save(ValidationReport.reportFile(outputDir != null
+                    ? outputDir : workbook.getAbsoluteFile().toPath().getParent(), workbook));
+            report.getErrors().forEach(e -> log.accept(e.toString()));
+
+            if (report.hasErrors()) {
+                rejected.incrementAndGet();
+                out.printf(Locale.ROOT, "PART   %s: %d rows, %d rejected, %d declarations in %d ms%n",
+                        workbook, rows, report.getRejectedRows(), written, (System.nanoTime() - start) / 1_000_000);
+            } else {
+                out.printf(Locale.ROOT, "OK     %s: %d rows, %d declarations in %d ms%n",
+                        workbook, rows, written, (System.nanoTime() - start) / 1_000_000);
+            }
+            return true;
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            out.println("FAILED " + workbook + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    static List<File> collectWorkbooks(List<Path> inputs) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (Path in : inputs) {
+            if (Files.isDirectory(in)) {
+                try (Stream<Path> list = Files.list(in)) {
+                    files.addAll(list.filter(BatchCli::isWorkbook)
+                            .sorted()
+                            .map(Path::toFile)
+                            .collect(Collectors.toList()));
+                }
+            } else if (Files.isRegularFile(in)) {
+                files.add(in.toFile());
+            } else {
+                throw new IOException("Input not found: " + in);
+            }
+        }
+        return files;
+    }
+
+    static boolean isWorkbook(Path p) {
+        String name = p.getFileName().toString();
+        return Files.isRegularFile(p)
+                && (name.toLowerCase(Locale.ROOT).endsWith(".xlsx") || CsvReader.isCsv(p.toFile())
+                    || AccessReader.isAccess(p.toFile()))
+                && !name.startsWith("~$"); // Excel lock files
+    }
+
+    void printSummary(String label, int units, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf(Locale.ROOT, "%n%s: %d ok, %d with rejected rows, %d failed%n",
+                label, units - failed.get() - rejected.get(), rejected.get(), failed.get());
+        out.printf(Locale.ROOT, "Rows: %d (%d rejected), declarations: %d in %.2f s%n",
+                metrics.getRowsRead(), metrics.getRowsRejected(), metrics.getDeclarationsWritten(), seconds);
+        if (metrics.getDeclarationsInvalid() > 0) {
+            out.printf(Locale.ROOT, "Declarations failing the IE3F33 schema: %d (see the .schema-errors.json reports)%n",
+                    metrics.getDeclarationsInvalid());
+        }
+        out.printf(Locale.ROOT, "Throughput: %.0f rows/s, %.0f declarations/s%n",
+                metrics.getRowsRead() / seconds, metrics.getDeclarationsWritten() / seconds);
+        out.println("METRICS " + metrics.toJson());
+    }
+
+    boolean writeMetrics() {
+        if (metricsFile == null) return true;
+        try {
+            Files.write(metricsFile, metrics.toJson().getBytes(StandardCharsets.UTF_8));
+            return true;
+        } catch (IOException e) {
+            out.println("ERROR: cannot write metrics to " + metricsFile + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
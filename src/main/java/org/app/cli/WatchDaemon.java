@@ -0,0 +1,246 @@
+package org.app.cli;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * --watch INBOX: stays up and converts every workbook that lands in INBOX, so JVM start-up,
+ * class loading and JIT warm-up are paid once instead of per manifest.
+ * <p>
+ * A file is taken once its size and modification time have not changed for the settle time
+ * and it can be opened for writing (Windows keeps files locked while they are copied). It is
+ * then converted on a pool of --threads workers with the same options as a batch run, and
+ * moved to INBOX/done, or to INBOX/failed if it could not be converted. Rows rejected by
+ * validation do not fail the file; they end up in its errors.json as usual. A file that
+ * cannot be moved (e.g. still open in a viewer) is not converted again; the move is retried
+ * on every poll. Files already in INBOX at start-up are picked up too. Without --out the JSON
+ * files go to INBOX/out.
+ * <p>
+ * Stops on Ctrl+C / SIGTERM after the files being converted are finished, then prints the
+ * usual summary.
+ */
+class WatchDaemon {
+    static final long DEFAULT_SETTLE_MILLIS = 2000;
+    private static final long POLL_MILLIS = 250;
+    private static final long DRAIN_MINUTES = 10;
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final BatchCli cli;
+    private final Path inbox;
+    private final Path done;
+    private final Path failed;
+    private final long settleNanos;
+
+    /** Candidates waiting to settle; only touched by the watching thread. */
+    private final Map<Path, Pending> pending = new HashMap<>();
+    /** Submitted and not yet moved out of the inbox. */
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    /** Converted, but the move failed: the folder it still has to go to. */
+    private final Map<Path, Path> unmoved = new ConcurrentHashMap<>();
+    private final AtomicInteger processed = new AtomicInteger();
+    private volatile boolean running = true;
+
+    WatchDaemon(BatchCli cli, Path inbox, long settleMillis) {
+        this.cli = cli;
+        this.inbox = inbox.toAbsolutePath();
+        this.done = this.inbox.resolve("done");
+        this.failed = this.inbox.resolve("failed");
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMillis);
+    }
+
+    int run() throws IOException {
+        Files.createDirectories(done);
+        Files.createDirectories(failed);
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(cli.threads);
+        // the hook only waits for the drain below; main may already be blocked in System.exit
+        CountDownLatch stopped = new CountDownLatch(1);
+        Thread hook = new Thread(() -> {
+            running = false;
+            try {
+                stopped.await(DRAIN_MINUTES, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "watch-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+
+        int exit = BatchCli.EXIT_OK;
+        try (WatchService watcher = inbox.getFileSystem().newWatchService()) {
+            inbox.register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+            cli.out.println("Watching " + inbox + " (output: " + cli.outputDir.toAbsolutePath() + ")");
+            scan();
+            while (running) {
+                WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            scan();
+                        } else {
+                            track(inbox.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        cli.out.println("ERROR: " + inbox + " is no longer accessible");
+                        exit = BatchCli.EXIT_FAILED;
+                        break;
+                    }
+                }
+                submitSettled(pool);
+                retryMoves();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+            awaitTermination(pool);
+            retryMoves();
+            unmoved.keySet().forEach(f -> cli.out.println("ERROR: " + f + " was converted but left in " + inbox));
+            cli.printSummary("Workbooks", processed.get(), System.nanoTime() - start);
+            cli.metrics.commitSummaryEvent();
+            if (!cli.writeMetrics()) exit = BatchCli.EXIT_FAILED;
+            stopped.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException e) {
+                // already shutting down: the hook is what stopped us
+            }
+        }
+        return exit;
+    }
+
+    /** Picks up workbooks that are in the inbox without an event for them, e.g. after a restart. */
+    private void scan() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inbox)) {
+            for (Path file : files) {
+                track(file);
+            }
+        }
+    }
+
+    private void track(Path file) {
+        if (inFlight.contains(file) || pending.containsKey(file) || !BatchCli.isWorkbook(file)) return;
+        pending.put(file, new Pending());
+    }
+
+    private void submitSettled(ExecutorService pool) {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Pending> e = it.next();
+            Path file = e.getKey();
+            Pending p = e.getValue();
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException gone) {
+                it.remove(); // deleted or moved away before it settled
+                continue;
+            }
+            long modified = attrs.lastModifiedTime().toMillis();
+            if (attrs.size() != p.size || modified != p.modified) {
+                p.size = attrs.size();
+                p.modified = modified;
+                p.since = now;
+                continue;
+            }
+            if (p.size == 0 || now - p.since < settleNanos || !canOpen(file)) continue;
+
+            it.remove();
+            inFlight.add(file);
+            pool.submit(() -> process(file));
+        }
+    }
+
+    private static boolean canOpen(Path file) {
+        try (FileChannel ignored = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void process(Path file) {
+        Path dir = failed;
+        try {
+            if (cli.convert(file.toFile())) dir = done;
+        } finally {
+            processed.incrementAndGet();
+            moveOut(file, dir);
+        }
+    }
+
+    private void retryMoves() {
+        for (Map.Entry<Path, Path> e : unmoved.entrySet()) {
+            if (Files.exists(e.getKey())) {
+                moveOut(e.getKey(), e.getValue());
+            } else {
+                // someone took it out of the inbox by hand
+                unmoved.remove(e.getKey());
+                inFlight.remove(e.getKey());
+            }
+        }
+    }
+
+    /** Only takes the file off the in-flight list once it has left the inbox; reports the first failure. */
+    private void moveOut(Path file, Path dir) {
+        try {
+            move(file, dir);
+            if (unmoved.remove(file) != null) cli.out.println("Moved " + file + " to " + dir);
+            inFlight.remove(file);
+        } catch (IOException e) {
+            if (unmoved.put(file, dir) == null) {
+                cli.out.println("ERROR: cannot move " + file + " to " + dir + ", will retry: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Moves {@code file} into {@code dir}; a name already taken there gets a timestamp suffix. */
+    private static void move(Path file, Path dir) throws IOException {
+        String name = file.getFileName().toString();
+        Path target = dir.resolve(name);
+        if (Files.exists(target)) {
+            int dot = name.lastIndexOf('.');
+            String stamp = "-" + LocalDateTime.now().format(STAMP);
+            target = dir.resolve(dot < 0 ? name + stamp : name.substring(0, dot) + stamp + name.substring(dot));
+        }
+        Files.move(file, target);
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            pool.awaitTermination(DRAIN_MINUTES, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Pending {
+        long size = -1;
+        long modified = -1;
+        long since;
+    }
+}
@@ -0,0 +1,84 @@
+package org.app.generator;
+
+import lombok.Getter;
+import org.app.model.RowStore;
+import org.app.model.RowStore.Field;
+import org.app.reference.Countries;
+import org.app.reference.Country;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Row-derived values of one IE3F33 declaration (a chunk of up to 3 rows of the same group).
+ * Everything else in the JSON is static and written by the emitters directly.
+ * Text values come from the first row of the chunk; masses and package counts from the
+ * values parsed by RowValidator.
+ */
+@Getter
+public class Declaration {
+    private final String masterDocument;
+    private final String masterAwb;
+    private final String descriptionOfGoods;
+    private final String importerName;
+    private final String importerCity;
+    private final String importerCountry;
+    private final String importerAddress;
+    private final String importerPostCode;
+    private final String shipperName;
+    private final String shipperCity;
+    private final String shipperAddress;
+    private final String[] countriesOfRoutingOfConsignment;
+    /** Reference entry of {@link #importerCountry}; null if the code is unknown. */
+    private final Country country;
+    private final double totalGrossMass;
+    private final int totalPackages;
+    private final String joinedTracking;
+    private final String documentIssueDate;
+
+    private Declaration(RowStore rows, int first, double totalGrossMass, int totalPackages,
+                        String joinedTracking, String documentIssueDate) {
+        this.masterDocument = rows.get(first, Field.MASTER_DOCUMENT);
+        this.masterAwb = rows.get(first, Field.MASTER_AWB);
+        this.descriptionOfGoods = rows.get(first, Field.DESCRIPTION_OF_GOODS);
+        this.importerName = rows.get(first, Field.IMPORTER_NAME);
+        this.importerCity = rows.get(first, Field.IMPORTER_CITY);
+        this.importerCountry = rows.get(first, Field.IMPORTER_COUNTRY);
+        this.importerAddress = rows.get(first, Field.IMPORTER_ADDRESS);
+        this.importerPostCode = rows.get(first, Field.IMPORTER_POST_CODE);
+        this.shipperName = rows.get(first, Field.SHIPPER_NAME);
+        this.shipperCity = rows.get(first, Field.SHIPPER_CITY);
+        this.shipperAddress = rows.get(first, Field.SHIPPER_ADDRESS);
+        this.countriesOfRoutingOfConsignment = rows.getRouting(first);
+        this.country = Countries.get(importerCountry);
+        this.totalGrossMass = totalGrossMass;
+        this.totalPackages = totalPackages;
+        this.joinedTracking = joinedTracking;
+        this.documentIssueDate = documentIssueDate;
+    }
+
+    /** @param chunk indexes into {@code rows}, in row order */
+    public static Declaration of(RowStore rows, int[] chunk) {
+        // DoubleStream.sum() is compensated; keep it so totals stay what they always were
+        double totalGrossMass = Arrays.stream(chunk).mapToDouble(rows::getGrossMass).sum();
+        int totalPackages = 0;
+        StringBuilder joinedTracking = new StringBuilder();
+        for (int r : chunk) {
+            totalPackages += rows.getPackages(r);
+            if (joinedTracking.length() > 0) joinedTracking.append(' ');
+            joinedTracking.append(rows.getTrackingNr(r));
+        }
+
+        return new Declaration(rows, chunk[0], totalGrossMass, totalPackages,
+                joinedTracking.toString(), Instant.now().toString());
+    }
+
+    /** Capital of the importer country, or null if the country is unknown. */
+    public String getPlaceOfDelivery() {
+        return country == null ? null : country.getCapital();
+    }
+
+    public String getFileName() {
+        return joinedTracking + ".json";
+    }
+}
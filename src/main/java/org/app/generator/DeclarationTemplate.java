@@ -0,0 +1,166 @@
+package org.app.generator;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.NumberOutput;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import org.app.generator.DeclarationWriter.Slot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A declaration pre-rendered once per {@link Envelope}: the static JSON between two
+ * row-derived values is kept as ready-to-write UTF-8 bytes, and only the {@link Slot}
+ * values are encoded per declaration. Output is byte-identical to {@link DeclarationWriter}.
+ * <p>
+ * The template is compiled by running {@link DeclarationWriter} with a NUL marker in place
+ * of every slot; Jackson always escapes NUL inside strings, so a raw 0 byte can only be ours.
+ */
+public class DeclarationTemplate {
+    private static final byte MARKER = 0;
+    private static final byte QUOTE = '"';
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final JsonFactory factory;
+    private final boolean pretty;
+    private final byte[][] segments;
+    private final Slot[] slots;
+    private final int routingNesting;
+    private final Map<List<String>, byte[]> routingCache = new ConcurrentHashMap<>();
+
+    private DeclarationTemplate(JsonFactory factory, boolean pretty, byte[][] segments,
+                                Slot[] slots, int routingNesting) {
+        this.factory = factory;
+        this.pretty = pretty;
+        this.segments = segments;
+        this.slots = slots;
+        this.routingNesting = routingNesting;
+    }
+
+    public static DeclarationTemplate compile(JsonFactory factory, Envelope env, boolean pretty) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        int[] routingNesting = {0};
+        try (JsonGenerator g = factory.createGenerator(buf, JsonEncoding.UTF8)) {
+            if (pretty) g.setPrettyPrinter(new DefaultPrettyPrinter());
+            DeclarationWriter.write(g, env, (gen, slot) -> {
+                if (slot == Slot.ROUTING) routingNesting[0] = nesting(gen.getOutputContext());
+                gen.writeRawValue(new String(new char[]{(char) MARKER, (char) ('A' + slot.ordinal())}));
+            });
+        }
+
+        byte[] raw = buf.toByteArray();
+        List<byte[]> segments = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+        int from = 0;
+        for (int i = 0; i < raw.length; i++) {
+            if (raw[i] == MARKER) {
+                segments.add(Arrays.copyOfRange(raw, from, i));
+                slots.add(Slot.values()[raw[i + 1] - 'A']);
+                from = i + 2;
+                i++;
+            }
+        }
+        segments.add(Arrays.copyOfRange(raw, from, raw.length));
+
+        return new DeclarationTemplate(factory, pretty, segments.toArray(new byte[0][]),
+                slots.toArray(new Slot[0]), routingNesting[0]);
+    }
+
+    /**
+     * Indentation level of DefaultPrettyPrinter at {@code ctx}: it only indents objects
+     * (arrays are inline) and JsonWriteContext does not track getNestingDepth().
+     */
+    private static int nesting(JsonStreamContext ctx) {
+        int depth = 0;
+        for (JsonStreamContext c = ctx; c != null; c = c.getParent()) {
+            if (c.inObject()) depth++;
+        }
+        return depth;
+    }
+
+    public void write(OutputStream out, Declaration d) throws IOException {
+        for (int i = 0; i < slots.length; i++) {
+            out.write(segments[i]);
+            switch (slots[i]) {
+                case DOCUMENT_ISSUE_DATE:  writeString(out, d.getDocumentIssueDate()); break;
+                case TOTAL_GROSS_MASS:     writeNumber(out, d.getTotalGrossMass()); break;
+                case MASTER_DOCUMENT:      writeString(out, d.getMasterDocument()); break;
+                case IMPORTER_NAME:        writeString(out, d.getImporterName()); break;
+                case IMPORTER_CITY:        writeString(out, d.getImporterCity()); break;
+                case IMPORTER_COUNTRY:     writeString(out, d.getImporterCountry()); break;
+                case IMPORTER_ADDRESS:     writeString(out, d.getImporterAddress()); break;
+                case IMPORTER_POST_CODE:   writeString(out, d.getImporterPostCode()); break;
+                case DESCRIPTION_OF_GOODS: writeString(out, d.getDescriptionOfGoods()); break;
+                case HS_CODE:              writeString(out, d.getMasterAwb()); break;
+                case TOTAL_PACKAGES:       writeAscii(out, Integer.toString(d.getTotalPackages())); break;
+                case SHIPPER_NAME:         writeString(out, d.getShipperName()); break;
+                case SHIPPER_CITY:         writeString(out, d.getShipperCity()); break;
+                case SHIPPER_ADDRESS:      writeString(out, d.getShipperAddress()); break;
+                case PLACE_OF_DELIVERY:    writeString(out, d.getPlaceOfDelivery()); break;
+                case ROUTING:              out.write(routing(d.getCountriesOfRoutingOfConsignment())); break;
+                case JOINED_TRACKING:      writeString(out, d.getJoinedTracking()); break;
+            }
+        }
+        out.write(segments[slots.length]);
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.write(NULL);
+            return;
+        }
+        out.write(QUOTE);
+        out.write(JsonStringEncoder.getInstance().quoteAsUTF8(value));
+        out.write(QUOTE);
+    }
+
+    /** Same rules as Jackson's writeNumber(double): NaN and infinities become quoted strings. */
+    private static void writeNumber(OutputStream out, double value) throws IOException {
+        String text = NumberOutput.toString(value);
+        if (NumberOutput.notFinite(value)) {
+            writeString(out, text);
+        } else {
+            writeAscii(out, text);
+        }
+    }
+
+    private static void writeAscii(OutputStream out, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            out.write(text.charAt(i));
+        }
+    }
+
+    /** Routing arrays repeat a lot (MD, RO, DE + importer country), so each one is rendered once. */
+    private byte[] routing(String[] countries) throws IOException {
+        List<String> key = Arrays.asList(countries);
+        byte[] cached = routingCache.get(key);
+        if (cached != null) return cached;
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (JsonGenerator g = factory.createGenerator(buf, JsonEncoding.UTF8)) {
+            if (pretty) g.setPrettyPrinter(new NestedPrettyPrinter(routingNesting));
+            DeclarationWriter.writeRouting(g, countries);
+        }
+        byte[] bytes = buf.toByteArray();
+        routingCache.put(Arrays.asList(countries.clone()), bytes);
+        return bytes;
+    }
+
+    /** Pretty printer that starts indenting as if it were already {@code nesting} levels deep. */
+    private static class NestedPrettyPrinter extends DefaultPrettyPrinter {
+        NestedPrettyPrinter(int nesting) {
+            _nesting = nesting;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package org.app.generator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes one IE3F33 declaration straight to a Jackson {@link JsonGenerator}, without
+ * building an intermediate ObjectNode tree. Field order and values must stay identical
+ * to {@code JsonGenerator.buildTree}, which is kept as the reference implementation.
+ * <p>
+ * Every row-derived value goes through a {@link Slot}; {@link DeclarationTemplate}
+ * relies on that to find the places where static bytes end.
+ */
+public class DeclarationWriter {
+
+    /** The row-derived values of a declaration, in the order they appear in the JSON. */
+    public enum Slot {
+        DOCUMENT_ISSUE_DATE,
+        TOTAL_GROSS_MASS,
+        MASTER_DOCUMENT,
+        IMPORTER_NAME,
+        IMPORTER_CITY,
+        IMPORTER_COUNTRY,
+        IMPORTER_ADDRESS,
+        IMPORTER_POST_CODE,
+        DESCRIPTION_OF_GOODS,
+        HS_CODE,
+        TOTAL_PACKAGES,
+        SHIPPER_NAME,
+        SHIPPER_CITY,
+        SHIPPER_ADDRESS,
+        PLACE_OF_DELIVERY,
+        ROUTING,
+        JOINED_TRACKING;
+
+        /** Writes the real value of this slot for {@code d}. */
+        void write(JsonGenerator g, Declaration d) throws IOException {
+            switch (this) {
+                case DOCUMENT_ISSUE_DATE:  g.writeString(d.getDocumentIssueDate()); break;
+                case TOTAL_GROSS_MASS:     g.writeNumber(d.getTotalGrossMass()); break;
+                case MASTER_DOCUMENT:      g.writeString(d.getMasterDocument()); break;
+                case IMPORTER_NAME:        g.writeString(d.getImporterName()); break;
+                case IMPORTER_CITY:        g.writeString(d.getImporterCity()); break;
+                case IMPORTER_COUNTRY:     g.writeString(d.getImporterCountry()); break;
+                case IMPORTER_ADDRESS:     g.writeString(d.getImporterAddress()); break;
+                case IMPORTER_POST_CODE:   g.writeString(d.getImporterPostCode()); break;
+                case DESCRIPTION_OF_GOODS: g.writeString(d.getDescriptionOfGoods()); break;
+                case HS_CODE:              g.writeString(d.getMasterAwb()); break;
+                case TOTAL_PACKAGES:       g.writeNumber(d.getTotalPackages()); break;
+                case SHIPPER_NAME:         g.writeString(d.getShipperName()); break;
+                case SHIPPER_CITY:         g.writeString(d.getShipperCity()); break;
+                case SHIPPER_ADDRESS:      g.writeString(d.getShipperAddress()); break;
+                case PLACE_OF_DELIVERY:    g.writeString(d.getPlaceOfDelivery()); break;
+                case ROUTING:              writeRouting(g, d.getCountriesOfRoutingOfConsignment()); break;
+                case JOINED_TRACKING:      g.writeString(d.getJoinedTracking()); break;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface SlotWriter {
+        void write(JsonGenerator g, Slot slot) throws IOException;
+    }
+
+    public static void write(JsonGenerator g, Envelope env, Declaration d) throws IOException {
+        write(g, env, (gen, slot) -> slot.write(gen, d));
+    }
+
+    static void write(JsonGenerator g, Envelope env, SlotWriter slots) throws IOException {
+        g.writeStartObject();
+        // Top‑level metadata
+        g.writeStringField("type", "IE3F33");
+        g.writeStringField("version", "2.0");
+        g.writeNullField("draftId");
+        g.writeStringField("lrn", env.getLrn());
+        g.writeNullField("referralRequestReference");
+        g.writeNullField("attachments");
+        g.writeFieldName("documentIssueDate");
+        slots.write(g, Slot.DOCUMENT_ISSUE_DATE);
+
+        // Data section
+        g.writeObjectFieldStart("data");
+        g.writeStringField("LRN", env.getLrn());
+        g.writeObjectFieldStart("documentIssueDate");
+        g.writeFieldName("DateTime");
+        slots.write(g, Slot.DOCUMENT_ISSUE_DATE);
+        g.writeEndObject();
+        g.writeStringField("SpecificCircumstanceIndicator", env.getSpecificCircumstanceIndicator());
+
+        g.writeObjectFieldStart("addressedMemberState");
+        g.writeStringField("country", env.getAddressedMemberStateCountry());
+        g.writeEndObject();
+
+        // Representative (static)
+        g.writeObjectFieldStart("representative");
+        g.writeStringField("name", env.getRepresentativeName());
+        g.writeStringField("identificationNumber", env.getRepresentativeIdentificationNumber());
+        g.writeStringField("status", env.getRepresentativeStatus());
+        g.writeObjectFieldStart("address");
+        g.writeStringField("city", env.getRepresentativeAddressCity());
+        g.writeStringField("country", env.getRepresentativeAddressCountry());
+        g.writeStringField("street", env.getRepresentativeAddressStreet());
+        g.writeStringField("postCode", env.getRepresentativeAddressPostCode());
+        g.writeStringField("number", env.getRepresentativeAddressNumber());
+        g.writeEndObject();
+        writeCommunication(g, env.getRepresentativeEmail());
+        g.writeEndObject();
+
+        // Active transport means
+        g.writeObjectFieldStart("activeBorderTransportMeans");
+        g.writeStringField("ModeOfTransport", env.getActiveBorderTransportMeansModeOfTransport());
+        g.writeEndObject();
+
+        // Consignment master level
+        g.writeObjectFieldStart("consignmentMasterLevel");
+        g.writeArrayFieldStart("consignmentHouseLevel");
+        g.writeStartObject();
+        g.writeStringField("containerIndicator", "0");
+        g.writeFieldName("totalGrossMass");
+        slots.write(g, Slot.TOTAL_GROSS_MASS);
+
+        // Place of acceptance
+        g.writeObjectFieldStart("placeOfAcceptance");
+        g.writeStringField("location", env.getPlaceOfAcceptanceLocation());
+        g.writeObjectFieldStart("address");
+        g.writeStringField("country", env.getPlaceOfAcceptanceCountry());
+        g.writeEndObject();
+        g.writeEndObject();
+
+        // Transport document master level
+        g.writeObjectFieldStart("transportDocumentMasterLevel");
+        g.writeFieldName("documentNumber");
+        slots.write(g, Slot.MASTER_DOCUMENT);
+        g.writeStringField("type", env.getTransportDocumentMasterLevelType());
+        g.writeEndObject();
+
+        // Carrier
+        g.writeObjectFieldStart("carrier");
+        g.writeStringField("identificationNumber", env.getCarrierIdentificationNumber());
+        g.writeEndObject();
+
+        // Consignee
+        g.writeObjectFieldStart("consignee");
+        g.writeFieldName("name");
+        slots.write(g, Slot.IMPORTER_NAME);
+        g.writeStringField("typeOfPerson", env.getConsigneeTypeOfPerson());
+        g.writeObjectFieldStart("address");
+        g.writeFieldName("city");
+        slots.write(g, Slot.IMPORTER_CITY);
+        g.writeFieldName("country");
+        slots.write(g, Slot.IMPORTER_COUNTRY);
+        g.writeFieldName("street");
+        slots.write(g, Slot.IMPORTER_ADDRESS);
+        g.writeFieldName("postCode");
+        slots.write(g, Slot.IMPORTER_POST_CODE);
+        g.writeStringField("number", env.getConsigneeAddressNumber());
+        g.writeEndObject();
+        writeCommunication(g, env.getConsigneeEmail());
+        g.writeEndObject();
+
+        // Goods items (single)
+        g.writeArrayFieldStart("goodsItem");
+        g.writeStartObject();
+        g.writeNumberField("goodsItemNumber", 1);
+        g.writeObjectFieldStart("commodity");
+        g.writeFieldName("descriptionOfGoods");
+        slots.write(g, Slot.DESCRIPTION_OF_GOODS);
+        g.writeObjectFieldStart("commodityCode");
+        g.writeFieldName("harmonizedSystemSubHeadingCode");
+        slots.write(g, Slot.HS_CODE);
+        g.writeEndObject();
+        g.writeEndObject();
+        g.writeObjectFieldStart("weight");
+        g.writeFieldName("grossMass");
+        slots.write(g, Slot.TOTAL_GROSS_MASS);
+        g.writeEndObject();
+        g.writeArrayFieldStart("packaging");
+        g.writeStartObject();
+        g.writeStringField("typeOfPackages", env.getPackagingTypeOfPackages());
+        g.writeFieldName("numberOfPackages");
+        slots.write(g, Slot.TOTAL_PACKAGES);
+        g.writeStringField("shippingMarks", env.getPackagingShippingMarks());
+        g.writeEndObject();
+        g.writeEndArray();
+        g.writeEndObject();
+        g.writeEndArray();
+
+        // Consignor
+        g.writeObjectFieldStart("consignor");
+        g.writeFieldName("name");
+        slots.write(g, Slot.SHIPPER_NAME);
+        g.writeStringField("typeOfPerson", env.getConsignorTypeOfPerson());
+        g.writeObjectFieldStart("address");
+        g.writeFieldName("city");
+        slots.write(g, Slot.SHIPPER_CITY);
+        g.writeStringField("country", env.getConsignorAddressCountry());
+        g.writeFieldName("street");
+        slots.write(g, Slot.SHIPPER_ADDRESS);
+        g.writeStringField("postCode", env.getConsignorAddressPostCode());
+        g.writeStringField("number", env.getConsignorAddressNumber());
+        g.writeEndObject();
+        writeCommunication(g, env.getConsignorEmail());
+        g.writeEndObject();
+
+        // Transport charges
+        g.writeObjectFieldStart("transportCharges");
+        g.writeStringField("methodOfPayment", env.getTransportChargesMethodOfPayment());
+        g.writeEndObject();
+
+        // Place of delivery
+        g.writeObjectFieldStart("placeOfDelivery");
+        g.writeFieldName("location");
+        slots.write(g, Slot.PLACE_OF_DELIVERY);
+        g.writeObjectFieldStart("address");
+        g.writeFieldName("country");
+        slots.write(g, Slot.IMPORTER_COUNTRY);
+        g.writeEndObject();
+        g.writeEndObject();
+
+        // Routing countries
+        g.writeFieldName("countriesOfRoutingOfConsignment");
+        slots.write(g, Slot.ROUTING);
+
+        // Transport document house level
+        g.writeObjectFieldStart("transportDocumentHouseLevel");
+        g.writeFieldName("documentNumber");
+        slots.write(g, Slot.JOINED_TRACKING);
+        g.writeStringField("type", env.getTransportDocumentHouseLevelType());
+        g.writeEndObject();
+
+        // Reference UCR
+        g.writeObjectFieldStart("referenceNumberUCR");
+        g.writeFieldName("referenceNumberUCR");
+        slots.write(g, Slot.MASTER_DOCUMENT);
+        g.writeEndObject();
+
+        g.writeEndObject(); // house
+        g.writeEndArray();  // consignmentHouseLevel
+        g.writeEndObject(); // consignmentMasterLevel
+
+        // Declarant (static)
+        g.writeObjectFieldStart("declarant");
+        g.writeStringField("name", env.getDeclarantName());
+        g.writeStringField("identificationNumber", env.getDeclarantIdentificationNumber());
+        g.writeObjectFieldStart("address");
+        g.writeStringField("city", env.getDeclarantAddressCity());
+        g.writeStringField("country", env.getDeclarantAddressCountry());
+        g.writeStringField("street", env.getDeclarantAddressStreet());
+        g.writeStringField("postCode", env.getDeclarantAddressPostCode());
+        g.writeStringField("number", env.getDeclarantAddressNumber());
+        g.writeEndObject();
+        writeCommunication(g, env.getDeclarantEmail());
+        g.writeEndObject();
+
+        g.writeEndObject(); // data
+        g.writeEndObject(); // root
+    }
+
+    static void writeRouting(JsonGenerator g, String[] countries) throws IOException {
+        g.writeStartArray();
+        int seq = 1;
+        for (String c : countries) {
+            g.writeStartObject();
+            g.writeNumberField("sequenceNumber", seq++);
+            g.writeStringField("country", c);
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+    }
+
+    private static void writeCommunication(JsonGenerator g, String email) throws IOException {
+        g.writeArrayFieldStart("communication");
+        g.writeStartObject();
+        g.writeStringField("identifier", email);
+        g.writeStringField("type", "EM");
+        g.writeEndObject();
+        g.writeEndArray();
+    }
+}
@@ -0,0 +1,138 @@
+package org.app.generator;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * The static envelope of a declaration: representative, declarant, carrier and the other
+ * values that do not come from the workbook. Defaults live in {@code declaration.properties};
+ * an override file only needs the keys it changes.
+ */
+@Getter
+public class Envelope {
+    private static final String DEFAULTS = "/declaration.properties";
+
+    private final String lrn;
+    private final String specificCircumstanceIndicator;
+    private final String addressedMemberStateCountry;
+    private final String representativeName;
+    private final String representativeIdentificationNumber;
+    private final String representativeStatus;
+    private final String representativeAddressCity;
+    private final String representativeAddressCountry;
+    private final String representativeAddressStreet;
+    private final String representativeAddressPostCode;
+    private final String representativeAddressNumber;
+    private final String representativeEmail;
+    private final String activeBorderTransportMeansModeOfTransport;
+    private final String placeOfAcceptanceLocation;
+    private final String placeOfAcceptanceCountry;
+    private final String transportDocumentMasterLevelType;
+    private final String carrierIdentificationNumber;
+    private final String consigneeTypeOfPerson;
+    private final String consigneeAddressNumber;
+    private final String consigneeEmail;
+    private final String packagingTypeOfPackages;
+    private final String packagingShippingMarks;
+    private final String consignorTypeOfPerson;
+    private final String consignorAddressCountry;
+    private final String consignorAddressPostCode;
+    private final String consignorAddressNumber;
+    private final String consignorEmail;
+    private final String transportChargesMethodOfPayment;
+    private final String transportDocumentHouseLevelType;
+    private final String declarantName;
+    private final String declarantIdentificationNumber;
+    private final String declarantAddressCity;
+    private final String declarantAddressCountry;
+    private final String declarantAddressStreet;
+    private final String declarantAddressPostCode;
+    private final String declarantAddressNumber;
+    private final String declarantEmail;
+
+    /** Every effective key=value pair, sorted; changes whenever any static value does. */
+    private final String fingerprint;
+
+    private Envelope(Properties p) {
+        StringBuilder sb = new StringBuilder();
+        for (String key : new TreeSet<>(p.stringPropertyNames())) {
+            sb.append(key).append('=').append(p.getProperty(key)).append('\n');
+        }
+        fingerprint = sb.toString();
+        lrn = require(p, "lrn");
+        specificCircumstanceIndicator = require(p, "specificCircumstanceIndicator");
+        addressedMemberStateCountry = require(p, "addressedMemberState.country");
+        representativeName = require(p, "representative.name");
+        representativeIdentificationNumber = require(p, "representative.identificationNumber");
+        representativeStatus = require(p, "representative.status");
+        representativeAddressCity = require(p, "representative.address.city");
+        representativeAddressCountry = require(p, "representative.address.country");
+        representativeAddressStreet = require(p, "representative.address.street");
+        representativeAddressPostCode = require(p, "representative.address.postCode");
+        representativeAddressNumber = require(p, "representative.address.number");
+        representativeEmail = require(p, "representative.email");
+        activeBorderTransportMeansModeOfTransport = require(p, "activeBorderTransportMeans.modeOfTransport");
+        placeOfAcceptanceLocation = require(p, "placeOfAcceptance.location");
+        placeOfAcceptanceCountry = require(p, "placeOfAcceptance.country");
+        transportDocumentMasterLevelType = require(p, "transportDocumentMasterLevel.type");
+        carrierIdentificationNumber = require(p, "carrier.identificationNumber");
+        consigneeTypeOfPerson = require(p, "consignee.typeOfPerson");
+        consigneeAddressNumber = require(p, "consignee.address.number");
+        consigneeEmail = require(p, "consignee.email");
+        packagingTypeOfPackages = require(p, "packaging.typeOfPackages");
+        packagingShippingMarks = require(p, "packaging.shippingMarks");
+        consignorTypeOfPerson = require(p, "consignor.typeOfPerson");
+        consignorAddressCountry = require(p, "consignor.address.country");
+        consignorAddressPostCode = require(p, "consignor.address.postCode");
+        consignorAddressNumber = require(p, "consignor.address.number");
+        consignorEmail = require(p, "consignor.email");
+        transportChargesMethodOfPayment = require(p, "transportCharges.methodOfPayment");
+        transportDocumentHouseLevelType = require(p, "transportDocumentHouseLevel.type");
+        declarantName = require(p, "declarant.name");
+        declarantIdentificationNumber = require(p, "declarant.identificationNumber");
+        declarantAddressCity = require(p, "declarant.address.city");
+        declarantAddressCountry = require(p, "declarant.address.country");
+        declarantAddressStreet = require(p, "declarant.address.street");
+        declarantAddressPostCode = require(p, "declarant.address.postCode");
+        declarantAddressNumber = require(p, "declarant.address.number");
+        declarantEmail = require(p, "declarant.email");
+    }
+
+    public static Envelope defaults() {
+        return new Envelope(loadDefaults());
+    }
+
+    public static Envelope load(Path overrides) throws IOException {
+        Properties p = new Properties(loadDefaults());
+        try (Reader r = Files.newBufferedReader(overrides, StandardCharsets.UTF_8)) {
+            p.load(r);
+        }
+        return new Envelope(p);
+    }
+
+    private static Properties loadDefaults() {
+        Properties p = new Properties();
+        try (InputStream in = Envelope.class.getResourceAsStream(DEFAULTS)) {
+            if (in == null) throw new IllegalStateException(DEFAULTS + " missing from classpath");
+            p.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + DEFAULTS, e);
+        }
+        return p;
+    }
+
+    private static String require(Properties p, String key) {
+        String value = p.getProperty(key);
+        if (value == null) throw new IllegalArgumentException("Missing declaration property " + key);
+        return value.trim();
+    }
+}
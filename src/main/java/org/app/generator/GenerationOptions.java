@@ -0,0 +1,127 @@
+package org.app.generator;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import org.app.metrics.RunMetrics;
+import org.app.output.DeclarationSink;
+import org.app.output.SubmittedIndex;
+
+import java.nio.file.Path;
+
+/**
+ * Knobs for {@link JsonGenerator#generate}. By default the original per-file JSON (the same
+ * bytes, rendered from the template) goes next to the workbook through a writer thread, every
+ * declaration is checked against the schema, and grouping spills to disk beyond a quarter of
+ * the heap. Incremental mode, compact JSON, fsync and the submitted index are off.
+ */
+@Getter
+@Setter
+public class GenerationOptions {
+
+    public enum Emitter {
+        /** Builds an ObjectNode tree per declaration; kept as the reference output. */
+        TREE,
+        /** Writes straight to a Jackson streaming generator, same bytes as TREE. */
+        STREAMING,
+        /** Splices row values into the pre-encoded static bytes of a {@link DeclarationTemplate}. */
+        TEMPLATE
+    }
+
+    public enum Output {
+        /** One {@code <tracking>.json} per declaration (the original layout). */
+        FILES,
+        /** A single {@code <workbook>.zip} with one entry per declaration. */
+        ZIP,
+        /** A single {@code <workbook>.ndjson}, one compact declaration per line. */
+        NDJSON
+    }
+
+    public enum Duplicates {
+        /** Leave rows whose tracking number was submitted before out of the run. */
+        SKIP,
+        /** Generate them anyway and log a warning per row. */
+        FLAG
+    }
+
+    private Emitter emitter = Emitter.TEMPLATE;
+
+    /** Static declaration values (representative, declarant, carrier...). */
+    private Envelope envelope = Envelope.defaults();
+
+    /**
+     * Number of threads building and writing declarations. 1 keeps everything on the
+     * calling thread; above that the log consumer is called from several threads.
+     */
+    private int workers = 1;
+
+    /** Where the JSON files go; null means next to the workbook. */
+    private Path outputDir;
+
+    private Output output = Output.FILES;
+
+    /**
+     * Caller-owned destination that overrides {@link #output} and {@link #outputDir}.
+     * The generator writes to it but never closes or aborts it.
+     */
+    private DeclarationSink sink;
+
+    /**
+     * Only rebuild declarations whose rows changed since the last run into the same folder,
+     * and delete outputs that no longer correspond to any chunk. Per-file output only.
+     */
+    private boolean incremental;
+
+    /**
+     * Indentation-free JSON even for per-file and ZIP output (NDJSON is always compact);
+     * roughly a third smaller and cheaper to write.
+     */
+    private boolean compact;
+
+    /**
+     * Capacity of the queue in front of the writer thread that creates and writes the output
+     * of an owned sink (see {@link org.app.output.AsyncSink}). 0 writes on the generation
+     * threads. With a queue the WRITE phase only measures the hand-off, including any wait for
+     * a full queue.
+     */
+    private int writeQueue = 256;
+
+    /** Declarations the writer thread writes before each flush (and fsync). */
+    private int writeBatch = 32;
+
+    /**
+     * Force outputs to disk before they are renamed into place, so a crash or power loss
+     * never leaves a declaration that looks complete but is not. With a write queue this
+     * happens once per batch on the writer thread, without one once at the end of the run.
+     */
+    private boolean fsync;
+
+    /**
+     * Check every declaration against the IE3F33 schema ({@code /ie3f33.schema.json}) before
+     * it is written. Failures are still written, counted as declarationsInvalid and, for
+     * outputs the generator owns, listed in {@code <run>.schema-errors.json}.
+     */
+    private boolean schemaCheck = true;
+
+    /**
+     * Tracking numbers submitted in earlier runs. Rows found in it are handled as
+     * {@link #duplicates} says, and the tracking numbers of a successful run are added to it.
+     * Caller-owned, like {@link #sink}; null turns the check off.
+     */
+    private SubmittedIndex submitted;
+
+    private Duplicates duplicates = Duplicates.SKIP;
+
+    /**
+     * Bytes the rows waiting to be grouped may take when generating as a pipeline (see
+     * {@link JsonGenerator#generate(org.app.reader.RowSource, org.app.validation.RowValidator,
+     * java.io.File, GenerationOptions, java.util.function.Consumer)}). Beyond that, rows already
+     * in a declaration are dropped and, if that is not enough, the rest are partitioned by
+     * shipper/importer into temporary files under {@code java.io.tmpdir} and grouped one
+     * partition at a time. 0 keeps every row in memory.
+     */
+    private long groupMemory = Runtime.getRuntime().maxMemory() / 4;
+
+    /** Counters and phase timings; pass one in to read them after the run or share it across runs. */
+    private RunMetrics metrics;
+}
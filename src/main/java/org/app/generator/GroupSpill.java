@@ -0,0 +1,264 @@
+package org.app.generator;
+
+import org.app.generator.JsonGenerator.GroupKey;
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.app.model.RowStore;
+import org.app.model.RowStore.Field;
+import org.app.output.SubmittedIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Temporary files of {@link StagedRun} once the rows waiting to be grouped outgrow
+ * {@link GenerationOptions#getGroupMemory()}: rows hash-partitioned by shipper/importer, so a
+ * partition holds whole groups and can be grouped on its own, and the tracking numbers of the
+ * run for the submitted index. Everything lives in one directory that {@link #close} deletes.
+ * <p>
+ * Records are written and read back by the grouping thread only. A partition keeps the input
+ * order of each group's rows, which is all chunking into 3s depends on.
+ */
+class GroupSpill implements Closeable {
+    static final int PARTITIONS = 16;
+    private static final int BUFFER = 64 * 1024;
+    private static final byte ROW = 1;
+    /** A group that already had all its rows in declarations; counts it, adds no rows. */
+    private static final byte KNOWN = 2;
+    private static final Field[] FIELDS = Field.values();
+
+    private final RunMetrics metrics;
+    private final Path dir;
+    private int files;
+    private Path trackingFile;
+    private DataOutputStream trackingNrs;
+
+    GroupSpill(RunMetrics metrics) throws IOException {
+        this.metrics = metrics;
+        this.dir = Files.createTempDirectory("declaration-groups");
+    }
+
+    /** What a partition file holds, in the order it was written. */
+    interface Records {
+        /** {@code keyOnly}: only the shipper/importer fields are set, see {@link #KNOWN}. */
+        void record(ExcelDto row, boolean keyOnly) throws IOException, InterruptedException;
+    }
+
+    /** A fresh set of {@value #PARTITIONS} files, split by a hash that differs per {@code level}. */
+    Partitions partitions(int level) {
+        return new Partitions(level);
+    }
+
+    void trackingNr(String trackingNr) throws IOException {
+        if (trackingNrs == null) {
+            trackingFile = newFile("tracking");
+            trackingNrs = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(trackingFile), BUFFER));
+        }
+        writeString(trackingNrs, trackingNr);
+    }
+
+    boolean hasTrackingNrs() {
+        return trackingFile != null;
+    }
+
+    /** Adds every tracking number written with {@link #trackingNr}; returns how many were new. */
+    int record(SubmittedIndex index, long millis) throws IOException {
+        trackingNrs.close();
+        int added = 0;
+        try (DataInputStream in = open(trackingFile)) {
+            while (true) {
+                String nr;
+                try {
+                    nr = readString(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (index.add(nr, millis)) added++;
+            }
+        }
+        return added;
+    }
+
+    String describe() {
+        return dir.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (trackingNrs != null) trackingNrs.close();
+        try (Stream<Path> left = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) left::iterator) {
+                Files.deleteIfExists(f);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    class Partitions {
+        private final int level;
+        private final Path[] paths = new Path[PARTITIONS];
+        private final DataOutputStream[] out = new DataOutputStream[PARTITIONS];
+
+        private Partitions(int level) {
+            this.level = level;
+        }
+
+        void row(RowStore rows, int r) throws IOException {
+            DataOutputStream o = stream(rows.get(r, Field.SHIPPER_NAME), rows.get(r, Field.SHIPPER_CITY),
+                    rows.get(r, Field.IMPORTER_NAME), rows.get(r, Field.IMPORTER_CITY));
+            o.writeByte(ROW);
+            for (Field f : FIELDS) {
+                writeString(o, rows.get(r, f));
+            }
+            String[] routing = rows.getRouting(r);
+            o.writeShort(routing.length);
+            for (String country : routing) {
+                writeString(o, country);
+            }
+            writeString(o, rows.getSheet(r));
+            o.writeInt(rows.getRowNum(r));
+            o.writeDouble(rows.getGrossMass(r));
+            o.writeInt(rows.getPackages(r));
+            metrics.rowSpilled();
+        }
+
+        void known(RowStore rows, GroupKey key) throws IOException {
+            known(rows.value(key.sName), rows.value(key.sCity), rows.value(key.iName), rows.value(key.iCity));
+        }
+
+        void known(String shipperName, String shipperCity, String importerName, String importerCity) throws IOException {
+            DataOutputStream o = stream(shipperName, shipperCity, importerName, importerCity);
+            o.writeByte(KNOWN);
+            writeString(o, shipperName);
+            writeString(o, shipperCity);
+            writeString(o, importerName);
+            writeString(o, importerCity);
+        }
+
+        /** Ends writing; partitions are read afterwards. */
+        void finish() throws IOException {
+            for (DataOutputStream o : out) {
+                if (o != null) o.close();
+            }
+        }
+
+        /** Reads partition {@code p} back and deletes it. */
+        void read(int p, Records records) throws IOException, InterruptedException {
+            if (paths[p] == null) return;
+            try (DataInputStream in = open(paths[p])) {
+                int kind;
+                while ((kind = in.read()) != -1) {
+                    records.record(kind == ROW ? readRow(in) : readKey(in), kind == KNOWN);
+                }
+            }
+            Files.delete(paths[p]);
+            paths[p] = null;
+        }
+
+        private DataOutputStream stream(String shipperName, String shipperCity,
+                                        String importerName, String importerCity) throws IOException {
+            int h = hash(shipperName);
+            h = h * 31 + hash(shipperCity);
+            h = h * 31 + hash(importerName);
+            h = h * 31 + hash(importerCity);
+            int p = mix(h ^ level * 0x9E3779B9) & (PARTITIONS - 1);
+            if (out[p] == null) {
+                paths[p] = newFile("L" + level + "-P" + p);
+                out[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(paths[p]), BUFFER));
+            }
+            return out[p];
+        }
+    }
+
+    private Path newFile(String name) {
+        return dir.resolve(name + "-" + files++ + ".bin");
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER));
+    }
+
+    private static ExcelDto readRow(DataInputStream in) throws IOException {
+        String[] v = new String[FIELDS.length];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = readString(in);
+        }
+        ExcelDto d = new ExcelDto();
+        d.setTrackingNr(v[Field.TRACKING_NR.ordinal()]);
+        d.setWeight(v[Field.WEIGHT.ordinal()]);
+        d.setShipperName(v[Field.SHIPPER_NAME.ordinal()]);
+        d.setShipperAddress(v[Field.SHIPPER_ADDRESS.ordinal()]);
+        d.setShipperCity(v[Field.SHIPPER_CITY.ordinal()]);
+        d.setImporterPostCode(v[Field.IMPORTER_POST_CODE.ordinal()]);
+        d.setImporterName(v[Field.IMPORTER_NAME.ordinal()]);
+        d.setImporterAddress(v[Field.IMPORTER_ADDRESS.ordinal()]);
+        d.setImporterCity(v[Field.IMPORTER_CITY.ordinal()]);
+        d.setImporterCountry(v[Field.IMPORTER_COUNTRY.ordinal()]);
+        d.setMasterAwb(v[Field.MASTER_AWB.ordinal()]);
+        d.setMasterDocument(v[Field.MASTER_DOCUMENT.ordinal()]);
+        d.setDescriptionOfGoods(v[Field.DESCRIPTION_OF_GOODS.ordinal()]);
+        d.setNrOfPackages(v[Field.NR_OF_PACKAGES.ordinal()]);
+        String[] routing = new String[in.readUnsignedShort()];
+        for (int i = 0; i < routing.length; i++) {
+            routing[i] = readString(in);
+        }
+        d.setCountriesOfRoutingOfConsignment(routing);
+        d.setSheet(readString(in));
+        d.setRowNum(in.readInt());
+        d.setGrossMass(in.readDouble());
+        d.setPackages(in.readInt());
+        return d;
+    }
+
+    private static ExcelDto readKey(DataInputStream in) throws IOException {
+        ExcelDto d = new ExcelDto();
+        d.setShipperName(readString(in));
+        d.setShipperCity(readString(in));
+        d.setImporterName(readString(in));
+        d.setImporterCity(readString(in));
+        d.setCountriesOfRoutingOfConsignment(new String[0]);
+        return d;
+    }
+
+    /** Length-prefixed UTF-8; writeUTF stops at 64 KB, which a long description could pass. */
+    private static void writeString(DataOutputStream o, String s) throws IOException {
+        if (s == null) {
+            o.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        o.writeInt(b.length);
+        o.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) return null;
+        byte[] b = new byte[n];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String s) {
+        return s == null ? 0 : s.hashCode();
+    }
+
+    /** Final step of MurmurHash3, so the partitions of one level split evenly on the next. */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -1,254 +1,693 @@
 package org.app.generator;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.app.metrics.BuildEvent;
+import org.app.metrics.GroupEvent;
+import org.app.metrics.RunMetrics;
+import org.app.metrics.WriteEvent;
 import org.app.model.ExcelDto;
+import org.app.model.RowStore;
+import org.app.model.RowStore.Field;
+import org.app.output.AsyncSink;
+import org.app.output.DeclarationSink;
+import org.app.output.FileSink;
+import org.app.output.IncrementalManifest;
+import org.app.output.NdjsonSink;
+import org.app.output.SubmittedIndex;
+import org.app.output.ValidatingSink;
+import org.app.output.ZipSink;
+import org.app.reader.RowSource;
+import org.app.validation.DeclarationSchema;
+import org.app.validation.RowValidator;
+import org.app.validation.SchemaReport;
+import org.app.validation.ValidationReport;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-
-import static org.app.generator.CountryCapital.getCapital;
+import java.util.regex.Pattern;
 
 public class JsonGenerator {
-    private final ObjectMapper MAPPER = new ObjectMapper();
+    /** Thread-safe once configured; shared so runs in a long-lived JVM (--watch) reuse a warm one. */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    /** Compiled templates by layout and envelope fingerprint, reused across runs. */
+    private static final Map<String, DeclarationTemplate> TEMPLATES = new ConcurrentHashMap<>();
+    private static final DateTimeFormatter SUBMITTED_AT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+    private static final Pattern UNSAFE_FILE_NAME = Pattern.compile("[^A-Za-z0-9 ._-]");
+    private final ThreadLocal<RenderBuffer> buffers = ThreadLocal.withInitial(RenderBuffer::new);
     private Consumer<String> log;
-    private Path outputDir;
+    private GenerationOptions options;
+    private DeclarationSink sink;
+    private RunMetrics metrics;
+    private IncrementalManifest manifest;
+    private boolean pretty;
+    private DeclarationTemplate template;
+    /** Temporary files of a pipeline run whose grouping went over its memory budget. */
+    GroupSpill spill;
 
     /**
-     * dtos     = list of all rows read from Excel
+     * dtos     = list of all rows read from Excel, validated here: rows {@link RowValidator}
+     *            rejects are logged and left out
      * excelFile = the File the user selected (so we can resolve its parent folder)
+     * returns the number of declarations written
      **/
-    public static void generate(List<ExcelDto> dtos, File excelFile, Consumer<String> log) throws IOException {
+    public static int generate(List<ExcelDto> dtos, File excelFile, Consumer<String> log) throws IOException {
+        return generate(dtos, excelFile, new GenerationOptions(), log);
+    }
+
+    public static int generate(List<ExcelDto> dtos, File excelFile, GenerationOptions options,
+                               Consumer<String> log) throws IOException {
+        return generate(dtos, outputDir(excelFile, options), excelFile.getName(), options, log);
+    }
+
+    /**
+     * Same as above for rows that do not come from one workbook, e.g. several merged ones.
+     * {@code runName} takes the place of the workbook name in bundle and manifest file names;
+     * {@code outputDir} is used as is.
+     */
+    public static int generate(List<ExcelDto> dtos, Path outputDir, String runName, GenerationOptions options,
+                               Consumer<String> log) throws IOException {
+        // mass and package count are only parsed by validation; unvalidated rows would sum to 0
+        ValidationReport report = RowValidator.validate(dtos,
+                options.getMetrics() != null ? options.getMetrics() : new RunMetrics());
+        report.getErrors().forEach(e -> log.accept("REJECTED " + e));
+        return generate(report.getAccepted(), outputDir, runName, options, log);
+    }
+
+    /**
+     * Generates from rows already in a {@link RowStore}, e.g. {@link ValidationReport#getAccepted()}.
+     * The rows must have been through {@link RowValidator}, which parses their mass and package count.
+     */
+    public static int generate(RowStore rows, File excelFile, GenerationOptions options,
+                               Consumer<String> log) throws IOException {
+        return generate(rows, outputDir(excelFile, options), excelFile.getName(), options, log);
+    }
+
+    public static int generate(RowStore rows, Path outputDir, String runName, GenerationOptions options,
+                               Consumer<String> log) throws IOException {
+        return run(rows, outputDir, runName, options, log, gen -> gen.doGenerate(rows));
+    }
+
+    /**
+     * Reads, validates, groups and generates one workbook as a pipeline instead of one step
+     * after the other: rows {@code validator} accepts are grouped as they arrive, and every
+     * chunk of 3 goes to the generation threads as soon as it is complete, so the first
+     * declarations are written while the rest of the file is still being read. Groups that
+     * end with fewer than 3 rows are generated once the input is exhausted. The declarations
+     * are the same as those of the other methods; only their order differs (which shows in
+     * bundles). Rejected rows are in {@code validator}'s report when this returns.
+     * <p>
+     * Grouping keeps within {@link GenerationOptions#getGroupMemory()}, spilling to temporary
+     * files beyond it, so the heap a manifest needs does not grow with its length. The
+     * report's row store then no longer holds every accepted row; its counts stay complete.
+     *
+     * @param source e.g. {@code rows -> ParallelReader.read(file, sheets, streaming, metrics, rows, log)}
+     */
+    public static int generate(RowSource source, RowValidator validator, File excelFile, GenerationOptions options,
+                               Consumer<String> log) throws IOException {
+        RowStore rows = validator.getReport().getAccepted();
+        return run(rows, outputDir(excelFile, options), excelFile.getName(), options, log,
+                gen -> new StagedRun(gen, validator, options, gen.metrics, log).run(source));
+    }
+
+    /** Sets up sink, manifest and checks around {@code body}, then commits or aborts them. */
+    private static int run(RowStore rows, Path outputDir, String runName, GenerationOptions options,
+                           Consumer<String> log, Body body) throws IOException {
         JsonGenerator gen = new JsonGenerator();
         gen.log = log;
-        gen.outputDir = excelFile.toPath().getParent();
-        gen.doGenerate(dtos);
+        gen.options = options;
+        gen.metrics = options.getMetrics() != null ? options.getMetrics() : new RunMetrics();
+        boolean ownSink = options.getSink() == null;
+        if (options.isIncremental() && (!ownSink || options.getOutput() != GenerationOptions.Output.FILES)) {
+            throw new IllegalArgumentException("Incremental mode only works with one JSON file per declaration");
+        }
+        if (options.isIncremental() && options.getSubmitted() != null
+                && options.getDuplicates() == GenerationOptions.Duplicates.SKIP) {
+            // the outputs of the skipped rows would count as stale and be deleted
+            throw new IllegalArgumentException("Incremental mode can only flag already submitted rows, not skip them");
+        }
+        SchemaReport schemaReport = options.isSchemaCheck() ? new SchemaReport() : null;
+        gen.sink = ownSink
+                ? openSink(outputDir, runName, options, schemaReport, gen.metrics)
+                : schemaSink(options.getSink(), schemaReport, gen.metrics);
+
+        int written;
+        try {
+            gen.pretty = !options.isCompact() && !gen.sink.singleLine();
+            if (options.getEmitter() == GenerationOptions.Emitter.TEMPLATE) {
+                gen.template = template(options.getEnvelope(), gen.pretty);
+            }
+            if (options.isIncremental()) {
+                gen.manifest = IncrementalManifest.load(outputDir, runName,
+                        IncrementalManifest.hash(options.getEnvelope().getFingerprint()
+                                + options.getEmitter() + gen.pretty));
+            }
+            written = body.generate(gen);
+            if (ownSink) gen.sink.close();
+            if (gen.manifest != null) {
+                int stale = gen.manifest.commit();
+                log.accept("Up to date: " + gen.metrics.getDeclarationsUnchanged()
+                        + ", removed stale: " + stale);
+            }
+            if (schemaReport != null) gen.reportSchema(schemaReport, ownSink ? outputDir : null, runName);
+            if (options.getSubmitted() != null) gen.recordSubmitted(rows);
+        } catch (IOException | RuntimeException e) {
+            if (ownSink) gen.sink.abort();
+            throw e;
+        } finally {
+            if (gen.spill != null) gen.spill.close();
+        }
+        if (options.getOutput() != GenerationOptions.Output.FILES) {
+            log.accept("Bundle written: " + gen.sink.describe());
+        }
         log.accept("All JSONs written.");
+        return written;
     }
 
-    private void doGenerate(List<ExcelDto> dtos) throws IOException {
-        // Group by shipper/importer as before
-        Map<GroupKey, List<ExcelDto>> groups = dtos.stream().collect(
-                Collectors.groupingBy(d -> new GroupKey(
-                        d.getShipperName(),
-                        d.getShipperCity(),
-                        d.getImporterName(),
-                        d.getImporterCity()
-                ))
-        );
+    private static DeclarationTemplate template(Envelope env, boolean pretty) throws IOException {
+        String key = pretty + "\n" + env.getFingerprint();
+        DeclarationTemplate template = TEMPLATES.get(key);
+        if (template == null) {
+            template = DeclarationTemplate.compile(MAPPER.getFactory(), env, pretty);
+            TEMPLATES.putIfAbsent(key, template);
+        }
+        return template;
+    }
+
+    private static Path outputDir(File excelFile, GenerationOptions options) {
+        return options.getOutputDir() != null
+                ? options.getOutputDir()
+                : excelFile.getAbsoluteFile().toPath().getParent();
+    }
+
+    private static DeclarationSink openSink(Path outputDir, String runName, GenerationOptions options,
+                                            SchemaReport schemaReport, RunMetrics metrics) throws IOException {
+        String baseName = runName.replaceFirst("\\.[^.]+$", "");
+        DeclarationSink sink;
+        switch (options.getOutput()) {
+            case ZIP:
+                sink = new ZipSink(outputDir.resolve(baseName + ".zip"), options.isFsync());
+                break;
+            case NDJSON:
+                sink = new NdjsonSink(outputDir.resolve(baseName + ".ndjson"), options.isFsync());
+                break;
+            default:
+                sink = new FileSink(outputDir, options.isFsync());
+        }
+        // checked on the writer thread when there is one
+        sink = schemaSink(sink, schemaReport, metrics);
+        if (options.getWriteQueue() <= 0) return sink;
+        return new AsyncSink(sink, options.getWriteQueue(), Math.max(1, options.getWriteBatch()));
+    }
 
-        for (List<ExcelDto> group : groups.values()) {
+    private static DeclarationSink schemaSink(DeclarationSink sink, SchemaReport report, RunMetrics metrics) {
+        return report != null ? new ValidatingSink(sink, DeclarationSchema.ie3f33(), report, metrics) : sink;
+    }
+
+    /** Logs the declarations that failed the schema check and saves the report next to the output. */
+    private void reportSchema(SchemaReport report, Path outputDir, String runName) throws IOException {
+        if (outputDir != null) report.save(SchemaReport.reportFile(outputDir, runName));
+        if (report.getInvalid() == 0) return;
+        report.getErrors().forEach(e -> log.accept("INVALID " + e));
+        log.accept("Schema check: " + report.getInvalid() + " of " + report.getChecked() + " declarations invalid"
+                + (outputDir != null ? ", see " + SchemaReport.reportFile(outputDir, runName) : ""));
+    }
+
+    private int doGenerate(RowStore rows) throws IOException {
+        GroupEvent event = new GroupEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int[][] groups = group(rows, checkSubmitted(rows));
+        List<int[]> chunks = chunks(groups);
+        metrics.addTime(RunMetrics.Phase.GROUP, System.nanoTime() - start);
+        metrics.grouped(groups.length, chunks.size());
+        event.rows = rows.size();
+        event.groups = groups.length;
+        event.declarations = chunks.size();
+        event.commit();
+
+        if (options.getWorkers() <= 1) {
+            for (int[] chunk : chunks) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Generation interrupted");
+                writeDeclaration(rows, chunk);
+            }
+        } else {
+            generateParallel(rows, chunks);
+        }
+        return chunks.size();
+    }
+
+    /**
+     * Groups rows by shipper/importer and splits every group into chunks of 3 rows,
+     * one chunk per declaration. A chunk holds indexes into {@code rows}.
+     */
+    public static List<int[]> chunks(RowStore rows) {
+        return chunks(group(rows, null));
+    }
+
+    /**
+     * Looks every tracking number up in the submitted index, if there is one. Returns the
+     * rows to leave out (SKIP), or null when none are.
+     */
+    private boolean[] checkSubmitted(RowStore rows) {
+        SubmittedIndex index = options.getSubmitted();
+        if (index == null) return null;
+        boolean[] skipped = null;
+        for (int r = 0; r < rows.size(); r++) {
+            if (!skipSubmitted(rows, r)) continue;
+            if (skipped == null) skipped = new boolean[rows.size()];
+            skipped[r] = true;
+        }
+        return skipped;
+    }
+
+    /**
+     * Looks row {@code r} up in the submitted index, if there is one, and logs it when found.
+     * Returns true if the row is to be left out.
+     */
+    boolean skipSubmitted(RowStore rows, int r) {
+        SubmittedIndex index = options.getSubmitted();
+        if (index == null) return false;
+        long at = index.submittedAt(rows.getTrackingNr(r));
+        if (at == 0) return false;
+        metrics.rowAlreadySubmitted();
+        String when = SUBMITTED_AT.format(Instant.ofEpochMilli(at));
+        if (options.getDuplicates() == GenerationOptions.Duplicates.SKIP) {
+            log.accept("SKIPPED " + rows.getTrackingNr(r) + " (row " + rows.getRowNum(r)
+                    + "): already submitted " + when);
+            return true;
+        }
+        log.accept("WARNING " + rows.getTrackingNr(r) + " (row " + rows.getRowNum(r)
+                + ") was already submitted " + when);
+        return false;
+    }
+
+    /** Adds the tracking numbers of this run to the submitted index; earlier entries keep their time. */
+    private void recordSubmitted(RowStore rows) throws IOException {
+        SubmittedIndex index = options.getSubmitted();
+        long now = System.currentTimeMillis();
+        int added = 0;
+        if (spill != null && spill.hasTrackingNrs()) {
+            // rows were dropped from the store on the way; the spill has all of them
+            added = spill.record(index, now);
+        } else {
+            for (int r = 0; r < rows.size(); r++) {
+                if (index.add(rows.getTrackingNr(r), now)) added++;
+            }
+        }
+        index.force();
+        log.accept("Recorded " + added + " tracking numbers in " + index.describe());
+    }
+
+    /**
+     * Row indexes per shipper/importer group, groups in order of first appearance and rows
+     * in input order within a group. Compares dictionary codes, never the Strings.
+     * Rows flagged in {@code skipped} (may be null) are left out.
+     */
+    private static int[][] group(RowStore rows, boolean[] skipped) {
+        int n = rows.size();
+        Map<GroupKey, Integer> ids = new HashMap<>();
+        int[] groupOf = new int[n];
+        int[] counts = new int[16];
+        for (int r = 0; r < n; r++) {
+            if (skipped != null && skipped[r]) {
+                groupOf[r] = -1;
+                continue;
+            }
+            GroupKey key = GroupKey.of(rows, r);
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+                if (id == counts.length) counts = Arrays.copyOf(counts, id * 2);
+            }
+            groupOf[r] = id;
+            counts[id]++;
+        }
+
+        int[][] groups = new int[ids.size()][];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = new int[counts[g]];
+            counts[g] = 0;
+        }
+        for (int r = 0; r < n; r++) {
+            int g = groupOf[r];
+            if (g >= 0) groups[g][counts[g]++] = r;
+        }
+        return groups;
+    }
+
+    private static List<int[]> chunks(int[][] groups) {
+        List<int[]> chunks = new ArrayList<>();
+        for (int[] group : groups) {
             // Split into chunks of 3 rows each (if needed)
-            for (int i = 0; i < group.size(); i += 3) {
-                List<ExcelDto> subList = group.subList(i, Math.min(i + 3, group.size()));
-
-                // Compute aggregates
-                double totalGrossMass = subList.stream()
-                        .mapToDouble(d -> {
-                            try { return Double.parseDouble(d.getWeight()); }
-                            catch (Exception e) { return 0.0; }
-                        }).sum();
-                int totalPackages = subList.stream()
-                        .mapToInt(d -> {
-                            try { return Integer.parseInt(d.getNrOfPackages()); }
-                            catch (Exception e) { return 0; }
-                        }).sum();
-                String joinedTracking = subList.stream()
-                        .map(ExcelDto::getTrackingNr)
-                        .collect(Collectors.joining(" "));
-
-                // Prepare root node
-                ObjectNode root = MAPPER.createObjectNode();
-                // Top‑level metadata
-                root.put("type", "IE3F33");
-                root.put("version", "2.0");
-                root.putNull("draftId");
-                root.put("lrn", "F33BIS"); // or derive dynamically
-                root.putNull("referralRequestReference");
-                root.putNull("attachments");
-                String now = Instant.now().toString();
-                root.put("documentIssueDate", now);
-
-                // Data section
-                ObjectNode data = root.putObject("data");
-                data.put("LRN", "F33BIS");
-                ObjectNode di = data.putObject("documentIssueDate");
-                di.put("DateTime", now);
-                data.put("SpecificCircumstanceIndicator", "F33");
-
-                ObjectNode addrMember = data.putObject("addressedMemberState");
-                addrMember.put("country", "RO");
-
-                // Representative (static)
-                ObjectNode rep = data.putObject("representative");
-                rep.put("name", "MARIANS TRADING SRL");
-                rep.put("identificationNumber", "RO15467129");
-                rep.put("status", "2");
-                ObjectNode repAddr = rep.putObject("address");
-                repAddr.put("city", "Bucuresti");
-                repAddr.put("country", "RO");
-                repAddr.put("street", "MEDITATIEI");
-                repAddr.put("postCode", "1111");
-                repAddr.put("number", "7");
-                ArrayNode repComm = rep.putArray("communication");
-                repComm.addObject()
-                        .put("identifier", "UPS@MTRADING.RO")
-                        .put("type", "EM");
-
-                // Active transport means
-                ObjectNode transport = data.putObject("activeBorderTransportMeans");
-                transport.put("ModeOfTransport", "4");
-
-                // Consignment master level
-                ObjectNode cml = data.putObject("consignmentMasterLevel");
-                ArrayNode chl = cml.putArray("consignmentHouseLevel");
-                ObjectNode house = chl.addObject();
-                house.put("containerIndicator", "0");
-                house.put("totalGrossMass", totalGrossMass);
-
-                // Place of acceptance (example: static or from DTO)
-                ObjectNode poa = house.putObject("placeOfAcceptance");
-                poa.put("location", "OTOPENI");
-                poa.putObject("address").put("country", "RO");
-
-                // Transport document master level
-                ObjectNode tdm = house.putObject("transportDocumentMasterLevel");
-                tdm.put("documentNumber", subList.get(0).getMasterDocument());
-                tdm.put("type", "N741");
-
-                // Carrier
-                house.putObject("carrier")
-                        .put("identificationNumber", "RO13191000");
-
-                // Consignee
-                ObjectNode consignee = house.putObject("consignee");
-                consignee.put("name", subList.get(0).getImporterName());
-                consignee.put("typeOfPerson", "2");
-                ObjectNode coAddr = consignee.putObject("address");
-                coAddr.put("city", subList.get(0).getImporterCity());
-                coAddr.put("country", subList.get(0).getImporterCountry());
-                coAddr.put("street", subList.get(0).getImporterAddress());
-                coAddr.put("postCode", subList.get(0).getImporterPostCode());
-                coAddr.put("number", "5");
-                consignee.putArray("communication")
-                        .addObject()
-                        .put("identifier", "dkurteanu@ups.com")
-                        .put("type", "EM");
-
-                // Goods items (single)
-                ArrayNode goods = house.putArray("goodsItem");
-                ObjectNode gi = goods.addObject();
-                gi.put("goodsItemNumber", 1);
-                ObjectNode comm = gi.putObject("commodity");
-                comm.put("descriptionOfGoods", subList.get(0).getDescriptionOfGoods());
-                comm.putObject("commodityCode")
-                        .put("harmonizedSystemSubHeadingCode", subList.get(0).getMasterAwb());
-                gi.putObject("weight").put("grossMass", totalGrossMass);
-                ArrayNode packaging = gi.putArray("packaging");
-                packaging.addObject()
-                        .put("typeOfPackages", "PC")
-                        .put("numberOfPackages", totalPackages)
-                        .put("shippingMarks", "FARA MARCA");
-
-                // Consignor
-                ObjectNode consignor = house.putObject("consignor");
-                consignor.put("name", subList.get(0).getShipperName());
-                consignor.put("typeOfPerson", "2");
-                ObjectNode cAddr = consignor.putObject("address");
-                cAddr.put("city", subList.get(0).getShipperCity());
-                cAddr.put("country", "MD");
-                cAddr.put("street", subList.get(0).getShipperAddress());
-                cAddr.put("postCode", "2005");
-                cAddr.put("number", "30");
-                consignor.putArray("communication")
-                        .addObject()
-                        .put("identifier", "dkurteanu@ups.ro")
-                        .put("type", "EM");
-
-                // Transport charges
-                house.putObject("transportCharges")
-                        .put("methodOfPayment", "Z");
-
-                // Place of delivery
-                ObjectNode pod = house.putObject("placeOfDelivery");
-                pod.put("location", getCapital(subList.get(0).getImporterCountry()));
-                pod.putObject("address").put("country", subList.get(0).getImporterCountry());
-
-                // Routing countries
-                ArrayNode routing = house.putArray("countriesOfRoutingOfConsignment");
-                int seq = 1;
-                for (String c : subList.get(0).getCountriesOfRoutingOfConsignment()) {
-                    routing.addObject()
-                            .put("sequenceNumber", seq++)
-                            .put("country", c);
-                }
+            for (int i = 0; i < group.length; i += 3) {
+                chunks.add(Arrays.copyOfRange(group, i, Math.min(i + 3, group.length)));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Runs {@link #writeDeclaration} on a fixed pool. The first failure cancels the
+     * remaining chunks and is rethrown; in-flight temp files are removed by the workers.
+     */
+    private void generateParallel(RowStore rows, List<int[]> chunks) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(options.getWorkers());
+        CompletionService<Void> done = new ExecutorCompletionService<>(pool);
+        try {
+            for (int[] chunk : chunks) {
+                done.submit(() -> {
+                    writeDeclaration(rows, chunk);
+                    return null;
+                });
+            }
+            for (int i = 0; i < chunks.size(); i++) {
+                done.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Generation interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause.getMessage(), cause);
+        } finally {
+            pool.shutdownNow();
+            awaitTermination(pool);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeDeclaration(RowStore rows, int[] chunk) throws IOException {
+        writeDeclaration(Declaration.of(rows, chunk), inputHash(rows, chunk));
+    }
+
+    /** Fingerprint of the rows of {@code chunk} for the incremental manifest; null when not incremental. */
+    String inputHash(RowStore rows, int[] chunk) {
+        return manifest != null ? IncrementalManifest.hashRows(rows, chunk) : null;
+    }
 
-                // Transport document house level
-                ObjectNode tdh = house.putObject("transportDocumentHouseLevel");
-                tdh.put("documentNumber", joinedTracking);
-                tdh.put("type", "N740");
-
-                // Reference UCR
-                house.putObject("referenceNumberUCR")
-                        .put("referenceNumberUCR", subList.get(0).getMasterDocument());
-
-                // Declarant (static)
-                ObjectNode decl = data.putObject("declarant");
-                decl.put("name", "UPS ROMANIA");
-                decl.put("identificationNumber", "RO13191000");
-                ObjectNode dAddr = decl.putObject("address");
-                dAddr.put("city", "OTOPENI");
-                dAddr.put("country", "RO");
-                dAddr.put("street", "AUREL VLAICU");
-                dAddr.put("postCode", "075100");
-                dAddr.put("number", "11C");
-                ArrayNode dComm = decl.putArray("communication");
-                dComm.addObject()
-                        .put("identifier", "dkurteanu@ups.ro")
-                        .put("type", "EM");
-
-                // Write JSON to file
-                String fileName = joinedTracking + ".json";
-                Path out = outputDir.resolve(fileName);
-                MAPPER.writerWithDefaultPrettyPrinter()
-                        .writeValue(out.toFile(), root);
-                log.accept("Written JSON: " + fileName);
+    /**
+     * Renders one declaration into this thread's buffer and hands it to the sink.
+     */
+    void writeDeclaration(Declaration d, String inputHash) throws IOException {
+        BuildEvent buildEvent = new BuildEvent();
+        buildEvent.begin();
+        long start = System.nanoTime();
+        String fileName = safeFileName(d.getFileName());
+        if (d.getCountry() == null) {
+            // RowValidator rejects these; rows handed in without validation still get through
+            log.accept("WARNING unknown importer country '" + d.getImporterCountry() + "' in " + fileName);
+        }
+        if (manifest != null) {
+            if (manifest.isUnchanged(fileName, inputHash)) {
+                metrics.declarationUnchanged();
+                return;
             }
         }
+        RenderBuffer buf = buffers.get();
+        buf.reset();
+        switch (options.getEmitter()) {
+            case TREE:
+                (pretty ? MAPPER.writerWithDefaultPrettyPrinter() : MAPPER.writer())
+                        .writeValue(buf, buildTree(d));
+                break;
+            case STREAMING:
+                try (com.fasterxml.jackson.core.JsonGenerator g =
+                             MAPPER.getFactory().createGenerator(buf, JsonEncoding.UTF8)) {
+                    if (pretty) g.setPrettyPrinter(new DefaultPrettyPrinter());
+                    DeclarationWriter.write(g, options.getEnvelope(), d);
+                }
+                break;
+            case TEMPLATE:
+                template.write(buf, d);
+                break;
+        }
+        long built = System.nanoTime();
+        metrics.addTime(RunMetrics.Phase.BUILD, built - start);
+        metrics.declarationBuilt();
+        buildEvent.fileName = fileName;
+        buildEvent.bytes = buf.size();
+        buildEvent.commit();
+
+        WriteEvent writeEvent = new WriteEvent();
+        writeEvent.begin();
+        sink.write(fileName, buf.array(), 0, buf.size());
+        if (manifest != null) manifest.written(fileName, inputHash, buf.array(), 0, buf.size());
+        metrics.addTime(RunMetrics.Phase.WRITE, System.nanoTime() - built);
+        metrics.declarationWritten(buf.size());
+        writeEvent.fileName = fileName;
+        writeEvent.bytes = buf.size();
+        writeEvent.commit();
+        log.accept("Written JSON: " + fileName);
+    }
+
+    /**
+     * The tracking numbers come straight from the manifest and the name ends up in a folder, a
+     * ZIP handed to HTTP clients or a log: anything but letters, digits, space, '.', '_' and
+     * '-' becomes '_', and so does a leading dot, so "../x" or "a/b" cannot leave the output.
+     */
+    static String safeFileName(String name) {
+        String safe = UNSAFE_FILE_NAME.matcher(name).replaceAll("_");
+        return safe.startsWith(".") ? "_" + safe.substring(1) : safe;
+    }
+
+    /**
+     * Reference tree model of one declaration. {@link DeclarationWriter} must emit the same bytes.
+     */
+    private ObjectNode buildTree(Declaration d) {
+        Envelope env = options.getEnvelope();
+
+        // Prepare root node
+        ObjectNode root = MAPPER.createObjectNode();
+        // Top‑level metadata
+        root.put("type", "IE3F33");
+        root.put("version", "2.0");
+        root.putNull("draftId");
+        root.put("lrn", env.getLrn());
+        root.putNull("referralRequestReference");
+        root.putNull("attachments");
+        String now = d.getDocumentIssueDate();
+        root.put("documentIssueDate", now);
+
+        // Data section
+        ObjectNode data = root.putObject("data");
+        data.put("LRN", env.getLrn());
+        ObjectNode di = data.putObject("documentIssueDate");
+        di.put("DateTime", now);
+        data.put("SpecificCircumstanceIndicator", env.getSpecificCircumstanceIndicator());
+
+        ObjectNode addrMember = data.putObject("addressedMemberState");
+        addrMember.put("country", env.getAddressedMemberStateCountry());
+
+        // Representative (static)
+        ObjectNode rep = data.putObject("representative");
+        rep.put("name", env.getRepresentativeName());
+        rep.put("identificationNumber", env.getRepresentativeIdentificationNumber());
+        rep.put("status", env.getRepresentativeStatus());
+        ObjectNode repAddr = rep.putObject("address");
+        repAddr.put("city", env.getRepresentativeAddressCity());
+        repAddr.put("country", env.getRepresentativeAddressCountry());
+        repAddr.put("street", env.getRepresentativeAddressStreet());
+        repAddr.put("postCode", env.getRepresentativeAddressPostCode());
+        repAddr.put("number", env.getRepresentativeAddressNumber());
+        ArrayNode repComm = rep.putArray("communication");
+        repComm.addObject()
+                .put("identifier", env.getRepresentativeEmail())
+                .put("type", "EM");
+
+        // Active transport means
+        ObjectNode transport = data.putObject("activeBorderTransportMeans");
+        transport.put("ModeOfTransport", env.getActiveBorderTransportMeansModeOfTransport());
+
+        // Consignment master level
+        ObjectNode cml = data.putObject("consignmentMasterLevel");
+        ArrayNode chl = cml.putArray("consignmentHouseLevel");
+        ObjectNode house = chl.addObject();
+        house.put("containerIndicator", "0");
+        house.put("totalGrossMass", d.getTotalGrossMass());
+
+        // Place of acceptance (example: static or from DTO)
+        ObjectNode poa = house.putObject("placeOfAcceptance");
+        poa.put("location", env.getPlaceOfAcceptanceLocation());
+        poa.putObject("address").put("country", env.getPlaceOfAcceptanceCountry());
+
+        // Transport document master level
+        ObjectNode tdm = house.putObject("transportDocumentMasterLevel");
+        tdm.put("documentNumber", d.getMasterDocument());
+        tdm.put("type", env.getTransportDocumentMasterLevelType());
+
+        // Carrier
+        house.putObject("carrier")
+                .put("identificationNumber", env.getCarrierIdentificationNumber());
+
+        // Consignee
+        ObjectNode consignee = house.putObject("consignee");
+        consignee.put("name", d.getImporterName());
+        consignee.put("typeOfPerson", env.getConsigneeTypeOfPerson());
+        ObjectNode coAddr = consignee.putObject("address");
+        coAddr.put("city", d.getImporterCity());
+        coAddr.put("country", d.getImporterCountry());
+        coAddr.put("street", d.getImporterAddress());
+        coAddr.put("postCode", d.getImporterPostCode());
+        coAddr.put("number", env.getConsigneeAddressNumber());
+        consignee.putArray("communication")
+                .addObject()
+                .put("identifier", env.getConsigneeEmail())
+                .put("type", "EM");
+
+        // Goods items (single)
+        ArrayNode goods = house.putArray("goodsItem");
+        ObjectNode gi = goods.addObject();
+        gi.put("goodsItemNumber", 1);
+        ObjectNode comm = gi.putObject("commodity");
+        comm.put("descriptionOfGoods", d.getDescriptionOfGoods());
+        comm.putObject("commodityCode")
+                .put("harmonizedSystemSubHeadingCode", d.getMasterAwb());
+        gi.putObject("weight").put("grossMass", d.getTotalGrossMass());
+        ArrayNode packaging = gi.putArray("packaging");
+        packaging.addObject()
+                .put("typeOfPackages", env.getPackagingTypeOfPackages())
+                .put("numberOfPackages", d.getTotalPackages())
+                .put("shippingMarks", env.getPackagingShippingMarks());
+
+        // Consignor
+        ObjectNode consignor = house.putObject("consignor");
+        consignor.put("name", d.getShipperName());
+        consignor.put("typeOfPerson", env.getConsignorTypeOfPerson());
+        ObjectNode cAddr = consignor.putObject("address");
+        cAddr.put("city", d.getShipperCity());
+        cAddr.put("country", env.getConsignorAddressCountry());
+        cAddr.put("street", d.getShipperAddress());
+        cAddr.put("postCode", env.getConsignorAddressPostCode());
+        cAddr.put("number", env.getConsignorAddressNumber());
+        consignor.putArray("communication")
+                .addObject()
+                .put("identifier", env.getConsignorEmail())
+                .put("type", "EM");
+
+        // Transport charges
+        house.putObject("transportCharges")
+                .put("methodOfPayment", env.getTransportChargesMethodOfPayment());
+
+        // Place of delivery
+        ObjectNode pod = house.putObject("placeOfDelivery");
+        pod.put("location", d.getPlaceOfDelivery());
+        pod.putObject("address").put("country", d.getImporterCountry());
+
+        // Routing countries
+        ArrayNode routing = house.putArray("countriesOfRoutingOfConsignment");
+        int seq = 1;
+        for (String c : d.getCountriesOfRoutingOfConsignment()) {
+            routing.addObject()
+                    .put("sequenceNumber", seq++)
+                    .put("country", c);
+        }
+
+        // Transport document house level
+        ObjectNode tdh = house.putObject("transportDocumentHouseLevel");
+        tdh.put("documentNumber", d.getJoinedTracking());
+        tdh.put("type", env.getTransportDocumentHouseLevelType());
+
+        // Reference UCR
+        house.putObject("referenceNumberUCR")
+                .put("referenceNumberUCR", d.getMasterDocument());
+
+        // Declarant (static)
+        ObjectNode decl = data.putObject("declarant");
+        decl.put("name", env.getDeclarantName());
+        decl.put("identificationNumber", env.getDeclarantIdentificationNumber());
+        ObjectNode dAddr = decl.putObject("address");
+        dAddr.put("city", env.getDeclarantAddressCity());
+        dAddr.put("country", env.getDeclarantAddressCountry());
+        dAddr.put("street", env.getDeclarantAddressStreet());
+        dAddr.put("postCode", env.getDeclarantAddressPostCode());
+        dAddr.put("number", env.getDeclarantAddressNumber());
+        ArrayNode dComm = decl.putArray("communication");
+        dComm.addObject()
+                .put("identifier", env.getDeclarantEmail())
+                .put("type", "EM");
+
+        return root;
     }
 
-    private static class GroupKey {
-        final String sName, sCity, iName, iCity;
+    /** The generation step of {@link #run}, with sink, manifest and template in place. */
+    private interface Body {
+        int generate(JsonGenerator gen) throws IOException;
+    }
 
-        GroupKey(String sName, String sCity, String iName, String iCity) {
+    /** Reusable per-thread render target; declarations are a few KB, so the array stays small. */
+    private static class RenderBuffer extends ByteArrayOutputStream {
+        RenderBuffer() {
+            super(8192);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    /** Shipper/importer identity of a row, by dictionary code. */
+    static class GroupKey {
+        final int sName, sCity, iName, iCity;
+
+        GroupKey(int sName, int sCity, int iName, int iCity) {
             this.sName = sName;
             this.sCity = sCity;
             this.iName = iName;
             this.iCity = iCity;
         }
 
+        static GroupKey of(RowStore rows, int r) {
+            return new GroupKey(
+                    rows.code(r, Field.SHIPPER_NAME),
+                    rows.code(r, Field.SHIPPER_CITY),
+                    rows.code(r, Field.IMPORTER_NAME),
+                    rows.code(r, Field.IMPORTER_CITY));
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
             if (!(o instanceof GroupKey)) return false;
             GroupKey g = (GroupKey) o;
-            return Objects.equals(sName, g.sName)
-                    && Objects.equals(sCity, g.sCity)
-                    && Objects.equals(iName, g.iName)
-                    && Objects.equals(iCity, g.iCity);
+            return sName == g.sName && sCity == g.sCity && iName == g.iName && iCity == g.iCity;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(sName, sCity, iName, iCity);
+            return ((sName * 31 + sCity) * 31 + iName) * 31 + iCity;
         }
     }
 }
@@ -0,0 +1,409 @@
+package org.app.generator;
+
+import org.app.generator.JsonGenerator.GroupKey;
+import org.app.metrics.GroupEvent;
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.app.model.RowStore;
+import org.app.reader.RowSource;
+import org.app.validation.RowValidator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The stages of {@link JsonGenerator#generate(RowSource, RowValidator, java.io.File, GenerationOptions,
+ * java.util.function.Consumer)}, connected by bounded queues so a slow stage holds up the one
+ * before it instead of letting rows or declarations pile up:
+ * <ol>
+ *   <li>the reader, on a thread of its own, hands rows over in batches of {@value #ROW_BATCH};</li>
+ *   <li>the calling thread validates them into the {@link RowStore} and groups them; a group's
+ *       pending rows become a {@link Declaration} as soon as there are 3 of them, handed on at
+ *       the latest after each batch of rows;</li>
+ *   <li>{@code workers} threads render and write the declarations.</li>
+ * </ol>
+ * The row store only ever sees one thread: declarations are resolved from it by the grouping
+ * stage, so the generation threads never read it while it grows. The first failure of any
+ * stage stops the others and is rethrown.
+ * <p>
+ * Grouping keeps within {@link GenerationOptions#getGroupMemory()}. Beyond it, rows that are
+ * already in a declaration are dropped from the store; if the rest, up to 2 per group, still
+ * take more than half the budget, they and every row after them go to a {@link GroupSpill},
+ * partitioned by group, and each partition is grouped the same way once the input is
+ * exhausted (spilling again if it is still too big). Every group's rows keep their order,
+ * so the chunks are the same as with everything in memory.
+ */
+class StagedRun {
+    private static final int ROW_BATCH = 256;
+    /** Batches the reader may be ahead of grouping. */
+    private static final int ROW_QUEUE = 4;
+    private static final int CHUNK_BATCH = 32;
+    /** Batches of declarations grouping may be ahead of generation. */
+    private static final int CHUNK_QUEUE = 32;
+    private static final long POLL_MILLIS = 100;
+    /** Heap of a pending group besides its rows: key, slots, map entry. */
+    private static final int GROUP_BYTES = 128;
+    /** Smallest memory budget; below it even an empty row store would not fit. */
+    private static final long MIN_BUDGET = 1 << 20;
+    /**
+     * Deepest partition that still spills; 16^4 partitions split any realistic set of groups,
+     * only keys with colliding hashes are left together.
+     */
+    private static final int MAX_LEVEL = 4;
+    private static final List<ExcelDto> END_OF_ROWS = Collections.emptyList();
+    private static final List<Chunk> END_OF_CHUNKS = Collections.emptyList();
+
+    private final JsonGenerator gen;
+    private final Consumer<String> log;
+    private final RowValidator validator;
+    private final RowStore rows;
+    private final RunMetrics metrics;
+    private final int workers;
+    private final long budget;
+    /** Whether the tracking numbers of the run are needed afterwards, for the submitted index. */
+    private final boolean recording;
+    private final BlockingQueue<List<ExcelDto>> rowQueue = new ArrayBlockingQueue<>(ROW_QUEUE);
+    private final BlockingQueue<List<Chunk>> chunkQueue = new ArrayBlockingQueue<>(CHUNK_QUEUE);
+    private volatile Throwable failure;
+    private int chunks;
+    private int groups;
+    /** Rows of {@link #rows} from here on are not among the spilled tracking numbers yet. */
+    private int unrecorded;
+    /** Rows read and not yet handed over; reader thread only. */
+    private List<ExcelDto> batch = new ArrayList<>(ROW_BATCH);
+    /** Declarations cut and not yet handed over; grouping thread only. */
+    private List<Chunk> cut = new ArrayList<>(CHUNK_BATCH);
+
+    StagedRun(JsonGenerator gen, RowValidator validator, GenerationOptions options, RunMetrics metrics,
+              Consumer<String> log) {
+        this.gen = gen;
+        this.log = log;
+        this.validator = validator;
+        this.rows = validator.getReport().getAccepted();
+        this.metrics = metrics;
+        this.workers = Math.max(1, options.getWorkers());
+        this.budget = options.getGroupMemory() > 0 ? Math.max(options.getGroupMemory(), MIN_BUDGET) : 0;
+        this.recording = options.getSubmitted() != null;
+    }
+
+    /** Returns the number of declarations generated. */
+    int run(RowSource source) throws IOException {
+        GroupEvent event = new GroupEvent();
+        event.begin();
+        ExecutorService pool = Executors.newFixedThreadPool(1 + workers);
+        try {
+            pool.execute(() -> read(source));
+            List<Future<?>> generators = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                generators.add(pool.submit(this::generate));
+            }
+            group();
+            emit(END_OF_CHUNKS);
+            for (Future<?> f : generators) {
+                f.get();
+            }
+            checkFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Generation interrupted");
+        } catch (ExecutionException e) {
+            fail(e.getCause());
+            checkFailure();
+        } finally {
+            pool.shutdownNow();
+            awaitTermination(pool);
+        }
+        metrics.grouped(groups, chunks);
+        event.rows = validator.getReport().getAcceptedRows();
+        event.groups = groups;
+        event.declarations = chunks;
+        event.spilledRows = metrics.getRowsSpilled();
+        event.commit();
+        return chunks;
+    }
+
+    /** Reader stage. Always ends the row queue, so grouping never waits for a reader that failed. */
+    private void read(RowSource source) {
+        try {
+            source.read(row -> {
+                batch.add(row);
+                if (batch.size() == ROW_BATCH) {
+                    hand(batch);
+                    batch = new ArrayList<>(ROW_BATCH);
+                }
+            });
+            if (!batch.isEmpty()) hand(batch);
+        } catch (Throwable t) {
+            fail(t);
+        } finally {
+            hand(END_OF_ROWS);
+        }
+    }
+
+    private void hand(List<ExcelDto> handed) {
+        try {
+            rowQueue.put(handed);
+        } catch (InterruptedException e) {
+            // the reader notices on its next row and gives up
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Grouping stage, on the calling thread: validates, stores, and cuts chunks of 3 rows. */
+    private void group() throws InterruptedException, IOException {
+        Grouping grouping = new Grouping(rows, 0);
+        while (true) {
+            List<ExcelDto> read = rowQueue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            checkFailure();
+            if (read == null) continue;
+            if (read == END_OF_ROWS) break;
+            for (ExcelDto dto : read) {
+                int r = rows.size();
+                validator.accept(dto);
+                if (rows.size() == r) continue; // rejected
+                long start = System.nanoTime();
+                if (!gen.skipSubmitted(rows, r)) grouping.add(r);
+                grouping.fit(); // skipped rows take room too
+                metrics.addTime(RunMetrics.Phase.GROUP, System.nanoTime() - start);
+            }
+            // a slow reader must not hold back declarations that are ready
+            if (!cut.isEmpty()) emit();
+        }
+        long start = System.nanoTime();
+        grouping.finish();
+        if (!cut.isEmpty()) emit();
+        metrics.addTime(RunMetrics.Phase.GROUP, System.nanoTime() - start);
+    }
+
+    private void cut(RowStore store, int[] group, int n) throws InterruptedException, IOException {
+        int[] chunk = new int[n];
+        System.arraycopy(group, 0, chunk, 0, n);
+        chunks++;
+        cut.add(new Chunk(Declaration.of(store, chunk), gen.inputHash(store, chunk)));
+        if (cut.size() == CHUNK_BATCH) emit();
+    }
+
+    /** Spills the tracking numbers of the rows of {@link #rows} not spilled yet, if they are needed. */
+    private void recordDropped(GroupSpill spill) throws IOException {
+        if (!recording) return;
+        for (int r = unrecorded; r < rows.size(); r++) {
+            spill.trackingNr(rows.getTrackingNr(r));
+        }
+    }
+
+    private GroupSpill spill() throws IOException {
+        if (gen.spill == null) gen.spill = new GroupSpill(metrics);
+        return gen.spill;
+    }
+
+    private void emit() throws InterruptedException, IOException {
+        emit(cut);
+        cut = new ArrayList<>(CHUNK_BATCH);
+    }
+
+    /** Blocks while generation is behind, but gives up as soon as a stage has failed. */
+    private void emit(List<Chunk> handed) throws InterruptedException, IOException {
+        while (!chunkQueue.offer(handed, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+    }
+
+    /** Generation stage; one per worker thread. */
+    private Void generate() throws Exception {
+        try {
+            while (failure == null) {
+                List<Chunk> handed = chunkQueue.take();
+                if (handed == END_OF_CHUNKS) {
+                    chunkQueue.put(END_OF_CHUNKS); // for the other workers
+                    break;
+                }
+                for (Chunk chunk : handed) {
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Generation interrupted");
+                    gen.writeDeclaration(chunk.declaration, chunk.inputHash);
+                }
+            }
+            return null;
+        } catch (Throwable t) {
+            fail(t);
+            throw t;
+        }
+    }
+
+    private void fail(Throwable t) {
+        if (failure == null) failure = t;
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t == null) return;
+        if (t instanceof IOException) throw (IOException) t;
+        if (t instanceof Error) throw (Error) t;
+        throw new IOException(t.getMessage(), t);
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Incremental grouping of the rows of one store: the accepted rows ({@code level} 0), or
+     * one partition of a spill of the level above.
+     */
+    private class Grouping implements GroupSpill.Records {
+        private final RowStore store;
+        private final int level;
+        /**
+         * Rows of each group not yet in a declaration, 3 slots and a count; groups in order of
+         * first appearance. Full chunks never wait in here.
+         */
+        private Map<GroupKey, int[]> pending = new LinkedHashMap<>();
+        /** Set once this level spilled; every row after that goes to the partitions. */
+        private GroupSpill.Partitions partitions;
+
+        Grouping(RowStore store, int level) {
+            this.store = store;
+            this.level = level;
+        }
+
+        void add(int r) throws InterruptedException, IOException {
+            if (partitions != null) {
+                partitions.row(store, r);
+            } else {
+                int[] group = pending.computeIfAbsent(GroupKey.of(store, r), k -> new int[4]);
+                group[group[3]++] = r;
+                if (group[3] == 3) {
+                    cut(store, group, 3);
+                    group[3] = 0;
+                }
+            }
+        }
+
+        /** A spilled row, or a group the level above already took all rows of. */
+        @Override
+        public void record(ExcelDto row, boolean keyOnly) throws IOException, InterruptedException {
+            if (keyOnly && partitions != null) {
+                partitions.known(row.getShipperName(), row.getShipperCity(), row.getImporterName(), row.getImporterCity());
+                return;
+            }
+            store.add(row);
+            int r = store.size() - 1;
+            if (keyOnly) {
+                pending.computeIfAbsent(GroupKey.of(store, r), k -> new int[4]);
+            } else {
+                add(r);
+            }
+            fit();
+        }
+
+        void fit() throws IOException {
+            if (budget > 0 && footprint() > budget) shrink();
+        }
+
+        private long footprint() {
+            return store.estimatedBytes() + (long) pending.size() * GROUP_BYTES;
+        }
+
+        /** Drops the rows already in declarations, and spills when that is not enough. */
+        private void shrink() throws IOException {
+            if (level == 0 && recording) recordDropped(spill());
+            if (partitions == null) {
+                int[] live = pendingRows();
+                retain(live);
+                if (level == 0) unrecorded = live.length;
+                if (footprint() <= budget / 2 || level == MAX_LEVEL) return;
+                // too many groups with rows waiting: partition them, and all rows to come
+                partitions = spill().partitions(level);
+                for (Map.Entry<GroupKey, int[]> e : pending.entrySet()) {
+                    int[] group = e.getValue();
+                    if (group[3] == 0) partitions.known(store, e.getKey());
+                    for (int i = 0; i < group[3]; i++) {
+                        partitions.row(store, group[i]);
+                    }
+                }
+                pending = new LinkedHashMap<>();
+                if (level == 0) log.accept("Grouping is over its memory budget, spilling to " + gen.spill.describe());
+            }
+            store.clear();
+            if (level == 0) unrecorded = 0;
+        }
+
+        /** Rows of the pending groups, ascending. */
+        private int[] pendingRows() {
+            int n = 0;
+            for (int[] group : pending.values()) {
+                n += group[3];
+            }
+            int[] live = new int[n];
+            int i = 0;
+            for (int[] group : pending.values()) {
+                for (int k = 0; k < group[3]; k++) {
+                    live[i++] = group[k];
+                }
+            }
+            Arrays.sort(live);
+            return live;
+        }
+
+        private void retain(int[] live) {
+            store.retain(live);
+            for (int[] group : pending.values()) {
+                for (int k = 0; k < group[3]; k++) {
+                    group[k] = Arrays.binarySearch(live, group[k]);
+                }
+            }
+        }
+
+        /** Cuts what is left of each group, or groups the partitions one after the other. */
+        void finish() throws InterruptedException, IOException {
+            if (level == 0 && gen.spill != null) {
+                recordDropped(gen.spill);
+                unrecorded = rows.size();
+            }
+            if (partitions == null) {
+                // in the order the groups first appeared
+                for (int[] group : pending.values()) {
+                    int n = group[3];
+                    if (n > 0) cut(store, group, n);
+                }
+                groups += pending.size();
+                return;
+            }
+            partitions.finish();
+            store.clear();
+            for (int p = 0; p < GroupSpill.PARTITIONS; p++) {
+                checkFailure();
+                Grouping partition = new Grouping(new RowStore(), level + 1);
+                partitions.read(p, partition);
+                partition.finish();
+            }
+        }
+    }
+
+    private static class Chunk {
+        final Declaration declaration;
+        final String inputHash;
+
+        Chunk(Declaration declaration, String inputHash) {
+            this.declaration = declaration;
+            this.inputHash = inputHash;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.app.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One declaration rendered to JSON bytes. */
+@Name("org.app.Build")
+@Label("Build Declaration")
+@Category({"Excel to JSON", "Generate"})
+@StackTrace(false)
+public class BuildEvent extends Event {
+    @Label("File Name")
+    public String fileName;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,26 @@
+package org.app.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Rows grouped by shipper/importer and split into declarations. */
+@Name("org.app.Group")
+@Label("Group Rows")
+@Category({"Excel to JSON", "Generate"})
+@StackTrace(false)
+public class GroupEvent extends Event {
+    @Label("Rows")
+    public long rows;
+
+    @Label("Groups")
+    public long groups;
+
+    @Label("Declarations")
+    public long declarations;
+
+    @Label("Spilled Rows")
+    public long spilledRows;
+}
@@ -0,0 +1,23 @@
+package org.app.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One workbook (or sheet) read into rows. */
+@Name("org.app.Read")
+@Label("Read Workbook")
+@Category({"Excel to JSON", "Read"})
+@StackTrace(false)
+public class ReadEvent extends Event {
+    @Label("File")
+    public String file;
+
+    @Label("Rows Read")
+    public long rows;
+
+    @Label("Empty Rows Skipped")
+    public long emptyRows;
+}
@@ -0,0 +1,197 @@
+package org.app.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and phase timings of one run (one workbook, or a whole CLI batch when shared).
+ * All methods are thread-safe; phase times are summed over every thread that worked in
+ * that phase, so with several workers BUILD + WRITE can exceed the wall time.
+ */
+public class RunMetrics {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public enum Phase { READ, VALIDATE, GROUP, BUILD, SCHEMA, WRITE }
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder emptyRowsSkipped = new LongAdder();
+    private final LongAdder rowsRejected = new LongAdder();
+    private final LongAdder groupsFormed = new LongAdder();
+    private final LongAdder declarationsPlanned = new LongAdder();
+    private final LongAdder declarationsBuilt = new LongAdder();
+    private final LongAdder declarationsWritten = new LongAdder();
+    private final LongAdder declarationsUnchanged = new LongAdder();
+    private final LongAdder declarationsInvalid = new LongAdder();
+    private final LongAdder rowsAlreadySubmitted = new LongAdder();
+    private final LongAdder rowsSpilled = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+    public RunMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    public void rowRead() {
+        rowsRead.increment();
+    }
+
+    public void emptyRowSkipped() {
+        emptyRowsSkipped.increment();
+    }
+
+    public void rowRejected() {
+        rowsRejected.increment();
+    }
+
+    public void grouped(int groups, int declarations) {
+        groupsFormed.add(groups);
+        declarationsPlanned.add(declarations);
+    }
+
+    public void declarationBuilt() {
+        declarationsBuilt.increment();
+    }
+
+    public void declarationWritten(long bytes) {
+        declarationsWritten.increment();
+        bytesWritten.add(bytes);
+    }
+
+    /** Incremental mode found the output up to date and did not rebuild it. */
+    public void declarationUnchanged() {
+        declarationsUnchanged.increment();
+    }
+
+    /** A generated declaration failed the schema check (it is still written). */
+    public void declarationInvalid() {
+        declarationsInvalid.increment();
+    }
+
+    /** The row's tracking number is in the submitted index (skipped or flagged). */
+    public void rowAlreadySubmitted() {
+        rowsAlreadySubmitted.increment();
+    }
+
+    /** Grouping ran out of its memory budget and wrote a row to a temporary partition file. */
+    public void rowSpilled() {
+        rowsSpilled.increment();
+    }
+
+    public void addTime(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    public long getEmptyRowsSkipped() {
+        return emptyRowsSkipped.sum();
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected.sum();
+    }
+
+    public long getGroupsFormed() {
+        return groupsFormed.sum();
+    }
+
+    public long getDeclarationsPlanned() {
+        return declarationsPlanned.sum();
+    }
+
+    public long getDeclarationsBuilt() {
+        return declarationsBuilt.sum();
+    }
+
+    public long getDeclarationsWritten() {
+        return declarationsWritten.sum();
+    }
+
+    public long getDeclarationsUnchanged() {
+        return declarationsUnchanged.sum();
+    }
+
+    public long getDeclarationsInvalid() {
+        return declarationsInvalid.sum();
+    }
+
+    public long getRowsAlreadySubmitted() {
+        return rowsAlreadySubmitted.sum();
+    }
+
+    public long getRowsSpilled() {
+        return rowsSpilled.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getTimeNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /** Machine-readable snapshot; keys are stable so scripts can rely on them. */
+    public Map<String, Object> summary() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("rowsRead", getRowsRead());
+        m.put("emptyRowsSkipped", getEmptyRowsSkipped());
+        m.put("rowsRejected", getRowsRejected());
+        m.put("groupsFormed", getGroupsFormed());
+        m.put("declarationsPlanned", getDeclarationsPlanned());
+        m.put("declarationsBuilt", getDeclarationsBuilt());
+        m.put("declarationsWritten", getDeclarationsWritten());
+        m.put("declarationsUnchanged", getDeclarationsUnchanged());
+        m.put("declarationsInvalid", getDeclarationsInvalid());
+        m.put("rowsAlreadySubmitted", getRowsAlreadySubmitted());
+        m.put("rowsSpilled", getRowsSpilled());
+        m.put("bytesWritten", getBytesWritten());
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (Phase p : Phase.values()) {
+            phases.put(p.name().toLowerCase(Locale.ROOT) + "Millis", getTimeNanos(p) / 1_000_000);
+        }
+        m.put("phases", phases);
+        m.put("elapsedMillis", getElapsedNanos() / 1_000_000);
+        return m;
+    }
+
+    public String toJson() {
+        try {
+            return MAPPER.writeValueAsString(summary());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Emits the totals as a {@link RunSummaryEvent} for JFR recordings. */
+    public void commitSummaryEvent() {
+        RunSummaryEvent e = new RunSummaryEvent();
+        if (!e.isEnabled()) return;
+        e.rowsRead = getRowsRead();
+        e.emptyRowsSkipped = getEmptyRowsSkipped();
+        e.rowsRejected = getRowsRejected();
+        e.groupsFormed = getGroupsFormed();
+        e.declarationsWritten = getDeclarationsWritten();
+        e.bytesWritten = getBytesWritten();
+        e.readMillis = getTimeNanos(Phase.READ) / 1_000_000;
+        e.validateMillis = getTimeNanos(Phase.VALIDATE) / 1_000_000;
+        e.groupMillis = getTimeNanos(Phase.GROUP) / 1_000_000;
+        e.buildMillis = getTimeNanos(Phase.BUILD) / 1_000_000;
+        e.writeMillis = getTimeNanos(Phase.WRITE) / 1_000_000;
+        e.commit();
+    }
+}
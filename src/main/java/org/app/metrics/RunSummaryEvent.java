@@ -0,0 +1,49 @@
+package org.app.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Totals of a finished run, see {@link RunMetrics#summary()}. */
+@Name("org.app.RunSummary")
+@Label("Run Summary")
+@Category({"Excel to JSON"})
+@StackTrace(false)
+public class RunSummaryEvent extends Event {
+    @Label("Rows Read")
+    public long rowsRead;
+
+    @Label("Empty Rows Skipped")
+    public long emptyRowsSkipped;
+
+    @Label("Rows Rejected")
+    public long rowsRejected;
+
+    @Label("Groups Formed")
+    public long groupsFormed;
+
+    @Label("Declarations Written")
+    public long declarationsWritten;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    @Label("Read Time (ms)")
+    public long readMillis;
+
+    @Label("Validate Time (ms)")
+    public long validateMillis;
+
+    @Label("Group Time (ms)")
+    public long groupMillis;
+
+    @Label("Build Time (ms)")
+    public long buildMillis;
+
+    @Label("Write Time (ms)")
+    public long writeMillis;
+}
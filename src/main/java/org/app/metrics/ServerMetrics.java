@@ -0,0 +1,97 @@
+package org.app.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request-level counters of the HTTP service: how long conversions waited for a worker and
+ * how long they took once running. Together with the queue depth this tells whether more
+ * workers or a longer queue are needed. Row and declaration counts stay in {@link RunMetrics}.
+ */
+public class ServerMetrics {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxServiceNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    /** A conversion was queued; {@code queueDepth} counts it. */
+    public void accepted(int queueDepth) {
+        accepted.increment();
+        maxQueueDepth.accumulate(queueDepth);
+    }
+
+    /** Turned away with 503 because every worker was busy and the queue was full. */
+    public void rejected() {
+        rejected.increment();
+    }
+
+    public void started(long queuedNanos) {
+        queueNanos.add(queuedNanos);
+        maxQueueNanos.accumulate(queuedNanos);
+    }
+
+    public void finished(long nanos, boolean ok) {
+        (ok ? completed : failed).increment();
+        serviceNanos.add(nanos);
+        maxServiceNanos.accumulate(nanos);
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @param queueDepth conversions waiting for a worker right now
+     * @param active     conversions running right now
+     */
+    public Map<String, Object> summary(int queueDepth, int active, RunMetrics run) {
+        long started = Math.max(1, accepted.sum() - queueDepth);
+        long finished = Math.max(1, completed.sum() + failed.sum());
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("accepted", getAccepted());
+        m.put("rejected", getRejected());
+        m.put("completed", getCompleted());
+        m.put("failed", getFailed());
+        m.put("active", active);
+        m.put("queueDepth", queueDepth);
+        m.put("maxQueueDepth", maxQueueDepth.get());
+        m.put("avgQueueMillis", queueNanos.sum() / started / 1_000_000);
+        m.put("maxQueueMillis", maxQueueNanos.get() / 1_000_000);
+        m.put("avgServiceMillis", serviceNanos.sum() / finished / 1_000_000);
+        m.put("maxServiceMillis", maxServiceNanos.get() / 1_000_000);
+        m.put("run", run.summary());
+        return m;
+    }
+
+    public String toJson(int queueDepth, int active, RunMetrics run) {
+        try {
+            return MAPPER.writeValueAsString(summary(queueDepth, active, run));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
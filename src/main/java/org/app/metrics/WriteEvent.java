@@ -0,0 +1,22 @@
+package org.app.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One declaration handed to the output sink. */
+@Name("org.app.Write")
+@Label("Write Declaration")
+@Category({"Excel to JSON", "Write"})
+@StackTrace(false)
+public class WriteEvent extends Event {
+    @Label("File Name")
+    public String fileName;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -25,4 +25,14 @@ public class ExcelDto {
     private String descriptionOfGoods;
     private String nrOfPackages;
     private String[] countriesOfRoutingOfConsignment = new String[]{"MD", "RO", "DE"};
+
+    /** Source sheet name and 1-based row in it, for error reports. */
+    private String sheet;
+    private int rowNum;
+    /**
+     * Parsed {@link #weight} and {@link #nrOfPackages}; filled in by RowValidator, or already
+     * by the reader when the cell held a number.
+     */
+    private double grossMass;
+    private int packages;
 }
@@ -0,0 +1,264 @@
+package org.app.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accepted rows of a run, stored by column instead of as one {@link ExcelDto} per row.
+ * <p>
+ * Text columns repeat heavily (a shipper, importer or description appears on hundreds of
+ * rows), so each distinct value is kept once in a dictionary and a row holds an int code per
+ * column. Tracking numbers are unique and kept as plain Strings. Routing arrays are shared
+ * between rows with the same routing, and the parsed mass and package count stay primitives.
+ * A row costs a few dozen bytes plus its tracking number, against roughly a kilobyte as a
+ * populated ExcelDto with its own Strings.
+ * <p>
+ * Filled from one thread with {@link #add}; safe to read from several threads afterwards.
+ * Equal codes mean equal values, so grouping can compare codes instead of Strings.
+ * {@link #estimatedBytes()} lets a caller that must stay within a memory budget drop rows it
+ * is done with ({@link #retain}, {@link #clear}).
+ */
+public class RowStore {
+    /** Text columns of {@link ExcelDto}, in its declaration order. */
+    public enum Field {
+        TRACKING_NR, WEIGHT, SHIPPER_NAME, SHIPPER_ADDRESS, SHIPPER_CITY, IMPORTER_POST_CODE,
+        IMPORTER_NAME, IMPORTER_ADDRESS, IMPORTER_CITY, IMPORTER_COUNTRY, MASTER_AWB,
+        MASTER_DOCUMENT, DESCRIPTION_OF_GOODS, NR_OF_PACKAGES
+    }
+
+    private static final Field[] FIELDS = Field.values();
+    /** Dictionary code of null. */
+    private static final int NULL = 0;
+    /** Heap of one row slot: the int and double columns and the tracking number reference. */
+    private static final int ROW_BYTES = 16 * 4 + 8 + 8;
+    /** Heap of a dictionary entry besides its String: map node, boxed code, array slots. */
+    private static final int ENTRY_BYTES = 64;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[256];
+    private int distinct = 1;
+
+    private final Map<List<String>, Integer> routingCodes = new HashMap<>();
+    private String[][] routings = new String[16][];
+    private int distinctRoutings;
+
+    private int size;
+    private int capacity;
+    private String[] trackingNrs;
+    /** Per field a code array; the slot of TRACKING_NR stays null. */
+    private final int[][] columns = new int[FIELDS.length][];
+    private int[] routing;
+    private int[] sheet;
+    private int[] rowNum;
+    private double[] grossMass;
+    private int[] packages;
+    private long trackingNrBytes;
+    private long dictionaryBytes;
+
+    public RowStore() {
+        this(1024);
+    }
+
+    public RowStore(int expectedRows) {
+        allocate(Math.max(expectedRows, 16));
+    }
+
+    public static RowStore of(List<ExcelDto> rows) {
+        RowStore store = new RowStore(rows.size());
+        for (ExcelDto row : rows) {
+            store.add(row);
+        }
+        return store;
+    }
+
+    /** Copies {@code row} in; the dto itself is not retained. */
+    public void add(ExcelDto row) {
+        if (size == capacity) allocate(capacity * 2);
+        int r = size++;
+        trackingNrs[r] = row.getTrackingNr();
+        trackingNrBytes += stringBytes(row.getTrackingNr());
+        columns[Field.WEIGHT.ordinal()][r] = encode(row.getWeight());
+        columns[Field.SHIPPER_NAME.ordinal()][r] = encode(row.getShipperName());
+        columns[Field.SHIPPER_ADDRESS.ordinal()][r] = encode(row.getShipperAddress());
+        columns[Field.SHIPPER_CITY.ordinal()][r] = encode(row.getShipperCity());
+        columns[Field.IMPORTER_POST_CODE.ordinal()][r] = encode(row.getImporterPostCode());
+        columns[Field.IMPORTER_NAME.ordinal()][r] = encode(row.getImporterName());
+        columns[Field.IMPORTER_ADDRESS.ordinal()][r] = encode(row.getImporterAddress());
+        columns[Field.IMPORTER_CITY.ordinal()][r] = encode(row.getImporterCity());
+        columns[Field.IMPORTER_COUNTRY.ordinal()][r] = encode(row.getImporterCountry());
+        columns[Field.MASTER_AWB.ordinal()][r] = encode(row.getMasterAwb());
+        columns[Field.MASTER_DOCUMENT.ordinal()][r] = encode(row.getMasterDocument());
+        columns[Field.DESCRIPTION_OF_GOODS.ordinal()][r] = encode(row.getDescriptionOfGoods());
+        columns[Field.NR_OF_PACKAGES.ordinal()][r] = encode(row.getNrOfPackages());
+        routing[r] = encodeRouting(row.getCountriesOfRoutingOfConsignment());
+        sheet[r] = encode(row.getSheet());
+        rowNum[r] = row.getRowNum();
+        grossMass[r] = row.getGrossMass();
+        packages[r] = row.getPackages();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String get(int row, Field field) {
+        return field == Field.TRACKING_NR ? trackingNrs[row] : values[columns[field.ordinal()][row]];
+    }
+
+    /**
+     * Dictionary code of a text column; two rows have the same code exactly when their values
+     * are equal. Not available for TRACKING_NR.
+     */
+    public int code(int row, Field field) {
+        if (field == Field.TRACKING_NR) throw new IllegalArgumentException("Tracking numbers are not dictionary-encoded");
+        return columns[field.ordinal()][row];
+    }
+
+    public String getTrackingNr(int row) {
+        return trackingNrs[row];
+    }
+
+    /** Shared between rows with the same routing; do not modify. */
+    public String[] getRouting(int row) {
+        return routings[routing[row]];
+    }
+
+    public String getSheet(int row) {
+        return values[sheet[row]];
+    }
+
+    public int getRowNum(int row) {
+        return rowNum[row];
+    }
+
+    public double getGrossMass(int row) {
+        return grossMass[row];
+    }
+
+    public int getPackages(int row) {
+        return packages[row];
+    }
+
+    /** Number of distinct text values held for all rows. */
+    public int distinctValues() {
+        return distinct - 1;
+    }
+
+    /** The value behind a dictionary code from {@link #code}. */
+    public String value(int code) {
+        return values[code];
+    }
+
+    /** Rough heap footprint of the rows and the dictionary, for callers with a memory budget. */
+    public long estimatedBytes() {
+        return (long) capacity * ROW_BYTES + trackingNrBytes + dictionaryBytes;
+    }
+
+    /**
+     * Keeps only the rows {@code keep} (ascending), which become rows 0, 1, ... in that order.
+     * The dictionary stays as it is, so codes taken before still hold.
+     */
+    public void retain(int[] keep) {
+        trackingNrBytes = 0;
+        for (int i = 0; i < keep.length; i++) {
+            int r = keep[i];
+            trackingNrs[i] = trackingNrs[r];
+            trackingNrBytes += stringBytes(trackingNrs[i]);
+            for (int[] col : columns) {
+                if (col != null) col[i] = col[r];
+            }
+            routing[i] = routing[r];
+            sheet[i] = sheet[r];
+            rowNum[i] = rowNum[r];
+            grossMass[i] = grossMass[r];
+            packages[i] = packages[r];
+        }
+        Arrays.fill(trackingNrs, keep.length, size, null);
+        size = keep.length;
+        if (capacity > Math.max(1024, size * 2)) allocate(Math.max(1024, size * 2));
+    }
+
+    /** Drops all rows and the dictionary; codes taken before mean nothing afterwards. */
+    public void clear() {
+        codes.clear();
+        values = new String[256];
+        distinct = 1;
+        dictionaryBytes = 0;
+        routingCodes.clear();
+        routings = new String[16][];
+        distinctRoutings = 0;
+        Arrays.fill(trackingNrs, 0, size, null);
+        trackingNrBytes = 0;
+        size = 0;
+        if (capacity > 1024) allocate(1024);
+    }
+
+    /** A fresh ExcelDto with the values of {@code row}. */
+    public ExcelDto toDto(int row) {
+        ExcelDto d = new ExcelDto();
+        d.setTrackingNr(getTrackingNr(row));
+        d.setWeight(get(row, Field.WEIGHT));
+        d.setShipperName(get(row, Field.SHIPPER_NAME));
+        d.setShipperAddress(get(row, Field.SHIPPER_ADDRESS));
+        d.setShipperCity(get(row, Field.SHIPPER_CITY));
+        d.setImporterPostCode(get(row, Field.IMPORTER_POST_CODE));
+        d.setImporterName(get(row, Field.IMPORTER_NAME));
+        d.setImporterAddress(get(row, Field.IMPORTER_ADDRESS));
+        d.setImporterCity(get(row, Field.IMPORTER_CITY));
+        d.setImporterCountry(get(row, Field.IMPORTER_COUNTRY));
+        d.setMasterAwb(get(row, Field.MASTER_AWB));
+        d.setMasterDocument(get(row, Field.MASTER_DOCUMENT));
+        d.setDescriptionOfGoods(get(row, Field.DESCRIPTION_OF_GOODS));
+        d.setNrOfPackages(get(row, Field.NR_OF_PACKAGES));
+        d.setCountriesOfRoutingOfConsignment(getRouting(row).clone());
+        d.setSheet(getSheet(row));
+        d.setRowNum(getRowNum(row));
+        d.setGrossMass(getGrossMass(row));
+        d.setPackages(getPackages(row));
+        return d;
+    }
+
+    private int encode(String value) {
+        if (value == null) return NULL;
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        if (distinct == values.length) values = Arrays.copyOf(values, distinct * 2);
+        values[distinct] = value;
+        codes.put(value, distinct);
+        dictionaryBytes += ENTRY_BYTES + stringBytes(value);
+        return distinct++;
+    }
+
+    private int encodeRouting(String[] countries) {
+        List<String> key = Arrays.asList(countries);
+        Integer code = routingCodes.get(key);
+        if (code != null) return code;
+        if (distinctRoutings == routings.length) routings = Arrays.copyOf(routings, distinctRoutings * 2);
+        String[] copy = countries.clone();
+        routings[distinctRoutings] = copy;
+        routingCodes.put(Arrays.asList(copy), distinctRoutings);
+        return distinctRoutings++;
+    }
+
+    /** Object header, array and two chars per char (Latin-1 strings take half of that). */
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    private void allocate(int n) {
+        capacity = n;
+        trackingNrs = trackingNrs == null ? new String[n] : Arrays.copyOf(trackingNrs, n);
+        for (Field f : FIELDS) {
+            if (f == Field.TRACKING_NR) continue;
+            int[] col = columns[f.ordinal()];
+            columns[f.ordinal()] = col == null ? new int[n] : Arrays.copyOf(col, n);
+        }
+        routing = routing == null ? new int[n] : Arrays.copyOf(routing, n);
+        sheet = sheet == null ? new int[n] : Arrays.copyOf(sheet, n);
+        rowNum = rowNum == null ? new int[n] : Arrays.copyOf(rowNum, n);
+        grossMass = grossMass == null ? new double[n] : Arrays.copyOf(grossMass, n);
+        packages = packages == null ? new int[n] : Arrays.copyOf(packages, n);
+    }
+}
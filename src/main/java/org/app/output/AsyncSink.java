@@ -0,0 +1,173 @@
+package org.app.output;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writer stage in front of another sink: {@link #write} copies the declaration onto a bounded
+ * queue and returns, and a single "declaration-writer" thread hands queued declarations to the
+ * wrapped sink in batches of up to {@code batchSize}, calling {@link DeclarationSink#flush()}
+ * after each batch. File creation, writes and fsync then overlap with building instead of
+ * holding up the generation threads; when the disk falls behind, a full queue makes them wait.
+ * <p>
+ * The wrapped sink is only ever called from the writer thread. The first error it throws
+ * stops the writer and is rethrown by the next {@link #write}, {@link #flush()} or
+ * {@link #close()}.
+ */
+public class AsyncSink implements DeclarationSink {
+    private static final long POLL_MILLIS = 100;
+    private static final Item END = new Item(null, null, null);
+
+    private final DeclarationSink delegate;
+    private final BlockingQueue<Item> queue;
+    private final int batchSize;
+    private final Thread writer;
+    private volatile IOException failure;
+    private boolean closed;
+
+    public AsyncSink(DeclarationSink delegate, int capacity, int batchSize) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.writer = new Thread(this::drain, "declaration-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void write(String fileName, byte[] json, int offset, int length) throws IOException {
+        byte[] copy = new byte[length];
+        System.arraycopy(json, offset, copy, 0, length);
+        enqueue(new Item(fileName, copy, null));
+    }
+
+    /** Blocks while the queue is full, but gives up as soon as the writer has failed. */
+    private void enqueue(Item item) throws IOException {
+        try {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing a declaration");
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) throw new IOException("Writing declarations failed: " + e.getMessage(), e);
+    }
+
+    private void drain() {
+        List<Item> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                boolean end = false;
+                for (Item item : batch) {
+                    if (item == END) {
+                        end = true;
+                        break;
+                    }
+                    if (item.flushed != null) {
+                        delegate.flush();
+                        item.flushed.countDown();
+                        continue;
+                    }
+                    delegate.write(item.fileName, item.json, 0, item.json.length);
+                }
+                delegate.flush();
+                batch.clear();
+                if (end) return;
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Writer stopped");
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException(e);
+        } finally {
+            queue.clear(); // unblocks producers; they see the failure on their next check
+        }
+    }
+
+    @Override
+    public boolean singleLine() {
+        return delegate.singleLine();
+    }
+
+    @Override
+    public String describe() {
+        return delegate.describe();
+    }
+
+    /** Waits until everything queued so far is written and the wrapped sink is flushed. */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            checkFailure();
+            return;
+        }
+        Item barrier = new Item(null, null, new CountDownLatch(1));
+        enqueue(barrier);
+        try {
+            // a failed writer drops the queue, barrier included
+            while (!barrier.flushed.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the writer");
+        }
+        checkFailure();
+    }
+
+    /** Waits until everything queued is written, then closes the wrapped sink. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        enqueue(END);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the writer");
+        }
+        checkFailure();
+        delegate.close();
+    }
+
+    @Override
+    public synchronized void abort() {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.abort();
+    }
+
+    private static class Item {
+        final String fileName;
+        final byte[] json;
+        /** Set for a {@link #flush()} barrier; counted down once the wrapped sink is flushed. */
+        final CountDownLatch flushed;
+
+        Item(String fileName, byte[] json, CountDownLatch flushed) {
+            this.fileName = fileName;
+            this.json = json;
+            this.flushed = flushed;
+        }
+    }
+}
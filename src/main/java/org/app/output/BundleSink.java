@@ -0,0 +1,74 @@
+package org.app.output;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Base for sinks that put a whole run into one file. The bundle is written to
+ * {@code <target>.part} through a single buffered channel and renamed on close; with fsync
+ * the part file is forced to disk before the rename and the directory after it.
+ */
+abstract class BundleSink implements DeclarationSink {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path target;
+    private final Path part;
+    private final FileChannel channel;
+    private final boolean fsync;
+    protected final OutputStream out;
+    private boolean closed;
+
+    BundleSink(Path target, boolean fsync) throws IOException {
+        this.target = target;
+        this.fsync = fsync;
+        this.part = target.resolveSibling(target.getFileName() + ".part");
+        this.channel = FileChannel.open(part, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+    }
+
+    /** Writes the bundle trailer, if any, before the stream is closed. */
+    protected void finish() throws IOException {
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            finish();
+            out.flush();
+            if (fsync) channel.force(true);
+        } finally {
+            out.close();
+        }
+        FileSink.moveIntoPlace(part, target);
+        if (fsync) FileSink.syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    @Override
+    public synchronized void abort() {
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // the file is deleted anyway
+        }
+        try {
+            Files.deleteIfExists(part);
+        } catch (IOException ignored) {
+            // nothing more we can do
+        }
+    }
+
+    @Override
+    public String describe() {
+        return target.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package org.app.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of rendered declarations. Implementations must accept calls from several
+ * generator workers at once.
+ */
+public interface DeclarationSink extends Closeable {
+
+    /** Stores one declaration; {@code json[offset, offset + length)} is only valid during the call. */
+    void write(String fileName, byte[] json, int offset, int length) throws IOException;
+
+    /** True when every declaration has to fit on a single line (compact JSON). */
+    default boolean singleLine() {
+        return false;
+    }
+
+    /**
+     * End of a batch of writes: makes everything written so far durable if the sink was
+     * asked to (fsync), and puts staged files in place. Called by {@link AsyncSink} after
+     * each batch and implied by {@link #close()}.
+     */
+    default void flush() throws IOException {
+    }
+
+    /** Drops whatever this sink has produced so far after a failed or cancelled run. */
+    default void abort() {
+    }
+
+    /** Human-readable location for the log. */
+    String describe();
+}
@@ -0,0 +1,132 @@
+package org.app.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The original layout: one {@code <tracking>.json} per declaration in a directory.
+ * Each file is written to a temp file next to its target and renamed into place,
+ * so a failed or cancelled run never leaves a truncated JSON behind.
+ * <p>
+ * With fsync the temp files of a batch are only staged by {@link #write}; {@link #flush()}
+ * forces each to disk, renames them all and then syncs the directory once, so a crash
+ * leaves either the old file or the complete new one.
+ */
+public class FileSink implements DeclarationSink {
+    private final Path outputDir;
+    private final boolean fsync;
+    /** fsync mode: temp file and target of every write since the last flush. */
+    private final List<Path[]> staged = new ArrayList<>();
+
+    public FileSink(Path outputDir) {
+        this(outputDir, false);
+    }
+
+    public FileSink(Path outputDir, boolean fsync) {
+        this.outputDir = outputDir;
+        this.fsync = fsync;
+    }
+
+    @Override
+    public void write(String fileName, byte[] json, int offset, int length) throws IOException {
+        Path out = outputDir.resolve(fileName);
+        Path tmp = Files.createTempFile(outputDir, fileName, ".tmp");
+        if (fsync) {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buf = ByteBuffer.wrap(json, offset, length);
+                while (buf.hasRemaining()) ch.write(buf);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+            synchronized (staged) {
+                staged.add(new Path[]{tmp, out});
+            }
+            return;
+        }
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                os.write(json, offset, length);
+            }
+            moveIntoPlace(tmp, out);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!fsync) return;
+        List<Path[]> batch;
+        synchronized (staged) {
+            if (staged.isEmpty()) return;
+            batch = new ArrayList<>(staged);
+            staged.clear();
+        }
+        try {
+            for (Path[] f : batch) {
+                try (FileChannel ch = FileChannel.open(f[0], StandardOpenOption.WRITE)) {
+                    ch.force(true);
+                }
+            }
+            for (Path[] f : batch) {
+                moveIntoPlace(f[0], f[1]);
+            }
+            syncDirectory(outputDir);
+        } finally {
+            for (Path[] f : batch) {
+                Files.deleteIfExists(f[0]);
+            }
+        }
+    }
+
+    static void moveIntoPlace(Path tmp, Path out) throws IOException {
+        try {
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Makes renames durable where the platform allows opening a directory (not on Windows). */
+    static void syncDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignored) {
+            // best effort
+        }
+    }
+
+    @Override
+    public String describe() {
+        return outputDir.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    @Override
+    public void abort() {
+        synchronized (staged) {
+            for (Path[] f : staged) {
+                try {
+                    Files.deleteIfExists(f[0]);
+                } catch (IOException ignored) {
+                    // nothing more we can do
+                }
+            }
+            staged.clear();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.app.output;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.app.model.RowStore;
+import org.app.model.RowStore.Field;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers, per output file, a hash of the rows it was built from and of the bytes written,
+ * so a re-run only rebuilds declarations whose rows changed. Lives next to the output as
+ * {@code .<workbook>.manifest.json}; only entries of that workbook are ever touched.
+ * <p>
+ * An output counts as unchanged when its input hash matches and the file on disk still has
+ * the size and modification time recorded for it (no need to re-read every file).
+ */
+public class IncrementalManifest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int VERSION = 1;
+
+    private final Path outputDir;
+    private final Path file;
+    private final String config;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    /** Written by this run; their modification time is filled in by commit. */
+    private final Set<String> fresh = ConcurrentHashMap.newKeySet();
+
+    private IncrementalManifest(Path outputDir, Path file, String config, Map<String, Entry> previous) {
+        this.outputDir = outputDir;
+        this.file = file;
+        this.config = config;
+        this.previous = previous;
+    }
+
+    /**
+     * @param config fingerprint of everything besides the rows that shapes the output
+     *               (envelope, formatting); a different value invalidates every entry
+     */
+    public static IncrementalManifest load(Path outputDir, String workbookName, String config) throws IOException {
+        Path file = outputDir.resolve("." + workbookName + ".manifest.json");
+        Map<String, Entry> previous = new TreeMap<>();
+        if (Files.exists(file)) {
+            Stored stored = MAPPER.readValue(file.toFile(), Stored.class);
+            if (stored.getVersion() == VERSION && config.equals(stored.getConfig())) {
+                previous.putAll(stored.getEntries());
+            }
+        }
+        return new IncrementalManifest(outputDir, file, config, previous);
+    }
+
+    /** True if {@code fileName} was built from the same rows and is still intact on disk. */
+    public boolean isUnchanged(String fileName, String inputHash) throws IOException {
+        Entry old = previous.get(fileName);
+        if (old == null || !old.getInput().equals(inputHash)) return false;
+
+        Path out = outputDir.resolve(fileName);
+        if (!Files.isRegularFile(out)) return false;
+        BasicFileAttributes attrs = Files.readAttributes(out, BasicFileAttributes.class);
+        if (attrs.size() != old.getSize() || attrs.lastModifiedTime().toMillis() != old.getModified()) return false;
+
+        current.put(fileName, old);
+        return true;
+    }
+
+    /**
+     * Records a freshly written output. The file need not be in place yet (an asynchronous
+     * sink may still be writing it); its modification time is read in {@link #commit()}.
+     */
+    public void written(String fileName, String inputHash, byte[] json, int offset, int length) {
+        Entry e = new Entry();
+        e.setInput(inputHash);
+        e.setOutput(sha256(json, offset, length));
+        e.setSize(length);
+        current.put(fileName, e);
+        fresh.add(fileName);
+    }
+
+    /**
+     * Deletes outputs that belonged to this workbook last time but were not produced now,
+     * then saves the manifest. Call once the sink is closed and every output is in place.
+     * Returns the number of stale files removed.
+     */
+    public int commit() throws IOException {
+        for (String name : fresh) {
+            current.get(name).setModified(Files.getLastModifiedTime(outputDir.resolve(name)).toMillis());
+        }
+        int deleted = 0;
+        for (String name : previous.keySet()) {
+            if (!current.containsKey(name) && Files.deleteIfExists(outputDir.resolve(name))) {
+                deleted++;
+            }
+        }
+
+        Stored stored = new Stored();
+        stored.setVersion(VERSION);
+        stored.setConfig(config);
+        stored.setEntries(new TreeMap<>(current));
+        Path tmp = Files.createTempFile(outputDir, file.getFileName().toString(), ".tmp");
+        try {
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), stored);
+            FileSink.moveIntoPlace(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return deleted;
+    }
+
+    /** Hash of every field of every row of a chunk, in order. */
+    public static String hashRows(RowStore rows, int[] chunk) {
+        MessageDigest md = sha256();
+        for (int r : chunk) {
+            update(md, rows.getTrackingNr(r));
+            update(md, rows.get(r, Field.WEIGHT));
+            update(md, rows.get(r, Field.SHIPPER_NAME));
+            update(md, rows.get(r, Field.SHIPPER_ADDRESS));
+            update(md, rows.get(r, Field.SHIPPER_CITY));
+            update(md, rows.get(r, Field.IMPORTER_POST_CODE));
+            update(md, rows.get(r, Field.IMPORTER_NAME));
+            update(md, rows.get(r, Field.IMPORTER_ADDRESS));
+            update(md, rows.get(r, Field.IMPORTER_CITY));
+            update(md, rows.get(r, Field.IMPORTER_COUNTRY));
+            update(md, rows.get(r, Field.MASTER_AWB));
+            update(md, rows.get(r, Field.MASTER_DOCUMENT));
+            update(md, rows.get(r, Field.DESCRIPTION_OF_GOODS));
+            update(md, rows.get(r, Field.NR_OF_PACKAGES));
+            String[] routing = rows.getRouting(r);
+            md.update((byte) routing.length);
+            for (String c : routing) {
+                update(md, c);
+            }
+        }
+        return hex(md.digest());
+    }
+
+    public static String hash(String text) {
+        MessageDigest md = sha256();
+        update(md, text);
+        return hex(md.digest());
+    }
+
+    private static String sha256(byte[] bytes, int offset, int length) {
+        MessageDigest md = sha256();
+        md.update(bytes, offset, length);
+        return hex(md.digest());
+    }
+
+    /** Length-prefixed so ("ab", "c") and ("a", "bc") hash differently; null differs from "". */
+    private static void update(MessageDigest md, String value) {
+        if (value == null) {
+            md.update((byte) 0xFF);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int n = bytes.length;
+        md.update(new byte[]{(byte) (n >>> 24), (byte) (n >>> 16), (byte) (n >>> 8), (byte) n});
+        md.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            out[2 * i + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(out);
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class Entry {
+        private String input;
+        private String output;
+        private long size;
+        private long modified;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    static class Stored {
+        private int version;
+        private String config;
+        private Map<String, Entry> entries = new TreeMap<>();
+    }
+}
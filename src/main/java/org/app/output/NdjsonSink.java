@@ -0,0 +1,27 @@
+package org.app.output;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/** One NDJSON file per run: each declaration as compact JSON on its own line. */
+public class NdjsonSink extends BundleSink {
+
+    public NdjsonSink(Path ndjsonFile) throws IOException {
+        this(ndjsonFile, false);
+    }
+
+    public NdjsonSink(Path ndjsonFile, boolean fsync) throws IOException {
+        super(ndjsonFile, fsync);
+    }
+
+    @Override
+    public synchronized void write(String fileName, byte[] json, int offset, int length) throws IOException {
+        out.write(json, offset, length);
+        out.write('\n');
+    }
+
+    @Override
+    public boolean singleLine() {
+        return true;
+    }
+}
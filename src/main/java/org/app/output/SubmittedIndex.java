@@ -0,0 +1,280 @@
+package org.app.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tracking numbers submitted in earlier runs, kept in a memory-mapped open-addressing hash
+ * file so a lookup touches one or two slots on disk (or in the page cache) and the history
+ * never has to be loaded into the heap.
+ * <p>
+ * A slot is 16 bytes: a 64-bit hash of the tracking number (0 = empty) and the time it was
+ * recorded, in epoch millis. Slots are found by linear probing. Two different tracking numbers
+ * with the same 64-bit hash would be mistaken for each other; with ten million entries the
+ * chance of that happening at all is around one in a million.
+ * <p>
+ * Layout: a 64-byte header whose long at {@link #TABLE_OFFSET} points to the live table, a
+ * long with the table's slot count, then the slots. When the table is three quarters full a
+ * table twice the size is appended to the file, filled, forced to disk, and only then made
+ * live by rewriting that one pointer. The old table stays behind as dead space (never more
+ * than the live table), so the file is never renamed or truncated while mapped.
+ * <p>
+ * One process at a time may open the file for writing ({@link #open}); any number may
+ * {@link #openReadOnly read} it meanwhile and pick up a grown table on their next lookup.
+ * Within a process, lookups are lock-free and may run on any number of threads alongside
+ * {@link #add}.
+ */
+public class SubmittedIndex implements Closeable {
+    private static final long MAGIC = 0x5452_4B49_4458_0001L; // "TRKIDX" 0 1
+    private static final int HEADER_SIZE = 64;
+    private static final int TABLE_OFFSET = 8;
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    /** One mapping per table and a mapping is limited to 2 GB. */
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final boolean readOnly;
+    private final FileLock lock;
+    private final MappedByteBuffer header;
+    private volatile Table table;
+    private int size;
+
+    private SubmittedIndex(Path file, FileChannel channel, boolean readOnly, FileLock lock) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.readOnly = readOnly;
+        this.lock = lock;
+        if (!readOnly && channel.size() == 0) {
+            initialize();
+        }
+        if (channel.size() < HEADER_SIZE) throw new IOException(file + " is not a tracking number index");
+        this.header = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE,
+                0, HEADER_SIZE);
+        if (header.getLong(0) != MAGIC) throw new IOException(file + " is not a tracking number index");
+        this.table = map(header.getLong(TABLE_OFFSET));
+        if (!readOnly) this.size = table.count();
+    }
+
+    /**
+     * Opens or creates the index for lookups and {@link #add}. Fails if another process has
+     * it open for writing.
+     */
+    public static SubmittedIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) throw new IOException(file + " is in use by another run");
+            return new SubmittedIndex(file, channel, false, lock);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Opens an existing index for lookups only; a writer may keep adding to it meanwhile. */
+    public static SubmittedIndex openReadOnly(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new SubmittedIndex(file, channel, true, null);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** When {@code trackingNr} was recorded (epoch millis), or 0 if it never was. */
+    public long submittedAt(String trackingNr) {
+        if (trackingNr == null) return 0;
+        long key = hash(trackingNr);
+        Table t = current();
+        for (int slot = t.slotOf(key); ; slot = (slot + 1) & t.mask) {
+            long k = t.slots.getLong(slot * SLOT_SIZE);
+            if (k == 0) return 0;
+            if (k == key) {
+                long at = t.slots.getLong(slot * SLOT_SIZE + 8);
+                return at != 0 ? at : 1; // a slot being written right now
+            }
+        }
+    }
+
+    public boolean contains(String trackingNr) {
+        return submittedAt(trackingNr) != 0;
+    }
+
+    /**
+     * Records {@code trackingNr} as submitted at {@code millis}. Returns false, leaving the
+     * earlier time, if it was already there. Not durable until {@link #force()} or close.
+     */
+    public synchronized boolean add(String trackingNr, long millis) throws IOException {
+        if (readOnly) throw new IllegalStateException(file + " is open read-only");
+        if (trackingNr == null) return false;
+        long key = hash(trackingNr);
+        if (size + 1 > table.capacity / 4 * 3) grow();
+        Table t = table;
+        int slot = t.slotOf(key);
+        for (long k; (k = t.slots.getLong(slot * SLOT_SIZE)) != 0; slot = (slot + 1) & t.mask) {
+            if (k == key) return false;
+        }
+        // time first: a reader that sees the key also sees a time
+        t.slots.putLong(slot * SLOT_SIZE + 8, millis);
+        t.slots.putLong(slot * SLOT_SIZE, key);
+        size++;
+        return true;
+    }
+
+    /** Number of tracking numbers held; for a read-only index, as of the last check. */
+    public synchronized int size() {
+        return readOnly ? current().count() : size;
+    }
+
+    public String describe() {
+        return file.toString();
+    }
+
+    /** Writes recorded entries through to the disk. */
+    public synchronized void force() {
+        if (!readOnly) table.slots.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            force();
+            if (lock != null) lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void initialize() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + SLOT_SIZE);
+        buf.putLong(0, MAGIC);
+        buf.putLong(TABLE_OFFSET, HEADER_SIZE);
+        buf.putLong(HEADER_SIZE, INITIAL_CAPACITY);
+        while (buf.hasRemaining()) channel.write(buf, buf.position());
+        // the slots are zero-filled when the mapping extends the file
+        map(HEADER_SIZE, INITIAL_CAPACITY).slots.force();
+        channel.force(true);
+    }
+
+    /** Rehashes into a table twice the size, appended at the end of the file. */
+    private void grow() throws IOException {
+        Table old = table;
+        if (old.capacity >= MAX_CAPACITY) {
+            throw new IOException(file + " is full (" + size + " tracking numbers)");
+        }
+        long offset = channel.size();
+        int capacity = old.capacity * 2;
+        ByteBuffer preamble = ByteBuffer.allocate(SLOT_SIZE);
+        preamble.putLong(0, capacity);
+        channel.write(preamble, offset);
+        Table grown = map(offset, capacity);
+        for (int i = 0; i < old.capacity; i++) {
+            long key = old.slots.getLong(i * SLOT_SIZE);
+            if (key == 0) continue;
+            int slot = grown.slotOf(key);
+            while (grown.slots.getLong(slot * SLOT_SIZE) != 0) slot = (slot + 1) & grown.mask;
+            grown.slots.putLong(slot * SLOT_SIZE + 8, old.slots.getLong(i * SLOT_SIZE + 8));
+            grown.slots.putLong(slot * SLOT_SIZE, key);
+        }
+        grown.slots.force();
+        header.putLong(TABLE_OFFSET, offset);
+        header.force();
+        table = grown;
+    }
+
+    /** The live table; a read-only index follows the writer when it has grown the file. */
+    private Table current() {
+        Table t = table;
+        if (!readOnly) return t;
+        long offset = header.getLong(TABLE_OFFSET);
+        if (offset == t.offset) return t;
+        synchronized (this) {
+            if (table.offset != offset) {
+                try {
+                    table = map(offset);
+                } catch (IOException e) {
+                    // keep answering from the table we have; it holds everything but the newest entries
+                    return table;
+                }
+            }
+            return table;
+        }
+    }
+
+    private Table map(long offset) throws IOException {
+        ByteBuffer preamble = ByteBuffer.allocate(8);
+        while (preamble.hasRemaining()) {
+            if (channel.read(preamble, offset + preamble.position()) < 0) {
+                throw new IOException(file + " is truncated");
+            }
+        }
+        long capacity = preamble.getLong(0);
+        if (capacity < INITIAL_CAPACITY || capacity > MAX_CAPACITY || Long.bitCount(capacity) != 1) {
+            throw new IOException(file + " is corrupt (table of " + capacity + " slots)");
+        }
+        return map(offset, (int) capacity);
+    }
+
+    private Table map(long offset, int capacity) throws IOException {
+        MappedByteBuffer slots = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE,
+                offset + SLOT_SIZE, (long) capacity * SLOT_SIZE);
+        return new Table(offset, capacity, slots);
+    }
+
+    /** FNV-1a over the UTF-8 bytes, then the MurmurHash3 finalizer to spread the bits; never 0. */
+    static long hash(String trackingNr) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : trackingNr.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+
+    private static final class Table {
+        final long offset;
+        final int capacity;
+        final int mask;
+        final MappedByteBuffer slots;
+
+        Table(long offset, int capacity, MappedByteBuffer slots) {
+            this.offset = offset;
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.slots = slots;
+        }
+
+        int slotOf(long key) {
+            return (int) (key >>> 32 ^ key) & mask;
+        }
+
+        int count() {
+            int n = 0;
+            for (int i = 0; i < capacity; i++) {
+                if (slots.getLong(i * SLOT_SIZE) != 0) n++;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.app.output;
+
+import org.app.metrics.RunMetrics;
+import org.app.validation.DeclarationSchema;
+import org.app.validation.SchemaError;
+import org.app.validation.SchemaReport;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Checks every declaration against a {@link DeclarationSchema} on its way to the wrapped
+ * sink and collects the outcome in a {@link SchemaReport}. Failing declarations are still
+ * written; the report says which ones to fix. Behind an {@link AsyncSink} this runs on the
+ * writer thread, alongside generation.
+ */
+public class ValidatingSink implements DeclarationSink {
+    private final DeclarationSink delegate;
+    private final DeclarationSchema schema;
+    private final SchemaReport report;
+    private final RunMetrics metrics;
+
+    public ValidatingSink(DeclarationSink delegate, DeclarationSchema schema, SchemaReport report, RunMetrics metrics) {
+        this.delegate = delegate;
+        this.schema = schema;
+        this.report = report;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void write(String fileName, byte[] json, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        List<SchemaError> errors = schema.validate(fileName, json, offset, length);
+        report.add(errors);
+        if (!errors.isEmpty()) metrics.declarationInvalid();
+        metrics.addTime(RunMetrics.Phase.SCHEMA, System.nanoTime() - start);
+        delegate.write(fileName, json, offset, length);
+    }
+
+    @Override
+    public boolean singleLine() {
+        return delegate.singleLine();
+    }
+
+    @Override
+    public String describe() {
+        return delegate.describe();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public void abort() {
+        delegate.abort();
+    }
+}
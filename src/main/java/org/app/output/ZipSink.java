@@ -0,0 +1,44 @@
+package org.app.output;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/** One ZIP archive per run, one entry per declaration. */
+public class ZipSink extends BundleSink {
+    private final ZipOutputStream zip;
+    private final Set<String> names = new HashSet<>();
+
+    public ZipSink(Path zipFile) throws IOException {
+        this(zipFile, false);
+    }
+
+    public ZipSink(Path zipFile, boolean fsync) throws IOException {
+        super(zipFile, fsync);
+        this.zip = new ZipOutputStream(out);
+    }
+
+    @Override
+    public synchronized void write(String fileName, byte[] json, int offset, int length) throws IOException {
+        zip.putNextEntry(new ZipEntry(uniqueName(names, fileName)));
+        zip.write(json, offset, length);
+        zip.closeEntry();
+    }
+
+    /** Per-file mode silently overwrote duplicates; an archive cannot hold the same name twice. */
+    static String uniqueName(Set<String> names, String fileName) {
+        String name = fileName;
+        for (int n = 2; !names.add(name); n++) {
+            name = fileName.replaceFirst("\\.json$", "") + " (" + n + ").json";
+        }
+        return name;
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        zip.finish();
+    }
+}
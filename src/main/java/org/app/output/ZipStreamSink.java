@@ -0,0 +1,51 @@
+package org.app.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Like {@link ZipSink}, but streams the archive to a caller's stream (e.g. an HTTP response)
+ * instead of a file. {@link #close()} writes the central directory and closes the stream.
+ * Nothing can be taken back once written, so {@link #abort()} only stops further writes; the
+ * receiver sees a truncated archive.
+ */
+public class ZipStreamSink implements DeclarationSink {
+    private final ZipOutputStream zip;
+    private final String description;
+    private final Set<String> names = new HashSet<>();
+    private boolean closed;
+
+    public ZipStreamSink(OutputStream out, String description) {
+        this.zip = new ZipOutputStream(out);
+        this.description = description;
+    }
+
+    @Override
+    public synchronized void write(String fileName, byte[] json, int offset, int length) throws IOException {
+        if (closed) throw new IOException("Archive already closed");
+        zip.putNextEntry(new ZipEntry(ZipSink.uniqueName(names, fileName)));
+        zip.write(json, offset, length);
+        zip.closeEntry();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        zip.close();
+    }
+
+    @Override
+    public synchronized void abort() {
+        closed = true;
+    }
+
+    @Override
+    public String describe() {
+        return description;
+    }
+}
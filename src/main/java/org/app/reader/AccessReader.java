@@ -0,0 +1,228 @@
+package org.app.reader;
+
+import org.app.metrics.ReadEvent;
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Reads the manifest straight from an MS Access database (.accdb/.mdb) as exported by the
+ * warehouse system, through the UCanAccess JDBC driver. Tables and saved queries play the part
+ * of sheets: the first one with a tracking number column by default, every one with such a
+ * column for {@link SheetSelection#ALL} (the others, e.g. lookup tables, are skipped with a
+ * warning), or those named by the selection (case-insensitively, like Access). Column names
+ * are matched like header cells (see {@link ColumnSchema}).
+ * <p>
+ * Rows are fetched forward-only, {@value #FETCH_SIZE} at a time, and handed on one by one,
+ * so they can flow through validation into the row store without a list in between.
+ * UCanAccess copies the database into an HSQLDB mirror when it opens it; databases larger
+ * than {@value #DISK_MIRROR_BYTES} bytes get a mirror on disk instead of on the heap.
+ */
+public class AccessReader {
+    static final int FETCH_SIZE = 1000;
+    static final long DISK_MIRROR_BYTES = 64L << 20;
+    private static final String DRIVER = "net.ucanaccess.jdbc.UcanaccessDriver";
+
+    public static boolean isAccess(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(".accdb") || name.endsWith(".mdb");
+    }
+
+    public static List<ExcelDto> read(File database, SheetSelection tables, RunMetrics metrics,
+                                      Consumer<String> log) throws IOException {
+        List<ExcelDto> excelDtos = new ArrayList<>();
+        read(database, tables, metrics, excelDtos::add, log);
+        return excelDtos;
+    }
+
+    public static void read(File database, SheetSelection tables, RunMetrics metrics,
+                            Consumer<ExcelDto> rows, Consumer<String> log) throws IOException {
+        ReadEvent event = new ReadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long[] counts = new long[2];
+        try (Connection connection = open(database)) {
+            List<String> names = tableNames(connection, tables, database, log);
+            if (names.isEmpty()) throw new IOException("No table or query " + tables + " in " + database.getName());
+            for (String name : names) {
+                readTable(connection, name, metrics, rows, counts);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Cannot read " + database.getName() + ": " + e.getMessage(), e);
+        } finally {
+            metrics.addTime(RunMetrics.Phase.READ, System.nanoTime() - start);
+            event.file = database.getPath();
+            event.rows = counts[0];
+            event.emptyRows = counts[1];
+            event.commit();
+        }
+    }
+
+    private static Connection open(File database) throws IOException, SQLException {
+        try {
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("MS Access databases need the full build; UCanAccess is not on the classpath");
+        }
+        // no indexes: every table is only ever scanned; release the mirror with the last connection
+        String url = "jdbc:ucanaccess://" + database.getAbsolutePath()
+                + ";memory=" + (database.length() <= DISK_MIRROR_BYTES)
+                + ";skipIndexes=true;immediatelyReleaseResources=true;columnOrder=display";
+        return DriverManager.getConnection(url);
+    }
+
+    /**
+     * User tables, then saved select queries, filtered by the selection. By default the first
+     * of them with a tracking number column, as a database usually holds more than the export.
+     */
+    private static List<String> tableNames(Connection connection, SheetSelection tables, File database,
+                                           Consumer<String> log) throws SQLException {
+        List<String> all = new ArrayList<>();
+        DatabaseMetaData meta = connection.getMetaData();
+        for (String type : new String[]{"TABLE", "VIEW"}) {
+            try (ResultSet rs = meta.getTables(null, null, "%", new String[]{type})) {
+                while (rs.next()) {
+                    all.add(rs.getString("TABLE_NAME"));
+                }
+            }
+        }
+        List<String> selected = new ArrayList<>();
+        if (tables.isAll()) {
+            for (String name : all) {
+                if (hasTrackingNr(meta, name)) {
+                    selected.add(name);
+                } else {
+                    log.accept("Skipping " + database.getName() + " [" + name + "]: no tracking number column");
+                }
+            }
+            return selected;
+        }
+        if (!tables.isMultiSheet()) {
+            for (String name : all) {
+                if (hasTrackingNr(meta, name)) {
+                    selected.add(name);
+                    break;
+                }
+            }
+            return selected;
+        }
+        for (int i = 0; i < all.size(); i++) {
+            if (tables.includesIgnoringCase(i, all.get(i))) selected.add(all.get(i));
+        }
+        return selected;
+    }
+
+    private static boolean hasTrackingNr(DatabaseMetaData meta, String table) throws SQLException {
+        try (ResultSet rs = meta.getColumns(null, null, table, "%")) {
+            while (rs.next()) {
+                if (ColumnSchema.forHeader(rs.getString("COLUMN_NAME")) == ColumnSchema.Column.TRACKING_NR) return true;
+            }
+        }
+        return false;
+    }
+
+    private static void readTable(Connection connection, String table, RunMetrics metrics,
+                                  Consumer<ExcelDto> rows, long[] counts) throws SQLException, IOException {
+        try (Statement st = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = st.executeQuery("SELECT * FROM [" + table.replace("]", "]]") + "]")) {
+                ResultSetMetaData meta = rs.getMetaData();
+                List<String> header = new ArrayList<>(meta.getColumnCount());
+                int[] types = new int[meta.getColumnCount()];
+                for (int c = 0; c < types.length; c++) {
+                    header.add(meta.getColumnLabel(c + 1));
+                    types[c] = meta.getColumnType(c + 1);
+                }
+                ColumnSchema schema = ColumnSchema.fromHeader(header);
+                int width = Math.min(schema.width(), types.length);
+
+                int rowNum = 0;
+                while (rs.next()) {
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Reading interrupted");
+                    ExcelDto dto = new ExcelDto();
+                    dto.setSheet(table);
+                    dto.setRowNum(++rowNum);
+                    boolean empty = true;
+                    for (int c = 0; c < width; c++) {
+                        if (!schema.isProjected(c)) continue;
+                        String val = format(rs, c + 1, types[c]);
+                        if (empty && !val.trim().isEmpty()) empty = false;
+                        schema.set(dto, c, val);
+                        if (isNumber(types[c]) && !val.isEmpty()) schema.setNumber(dto, c, rs.getDouble(c + 1));
+                    }
+                    if (empty) {
+                        metrics.emptyRowSkipped();
+                        counts[1]++;
+                        continue;
+                    }
+                    ExcelReader.addImporterCountryToRouting(dto);
+                    rows.accept(dto);
+                    metrics.rowRead();
+                    counts[0]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The value as the workbook export would have shown it: numbers without trailing zeros or
+     * exponent (a weight of 1.50 is "1.5", a numeric tracking number 1234567890 stays whole),
+     * everything else as the driver renders it, null as empty.
+     */
+    private static String format(ResultSet rs, int column, int type) throws SQLException {
+        switch (type) {
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL: {
+                double d = rs.getDouble(column);
+                return rs.wasNull() ? "" : plain(BigDecimal.valueOf(d));
+            }
+            case Types.DECIMAL:
+            case Types.NUMERIC: {
+                BigDecimal d = rs.getBigDecimal(column);
+                return d == null ? "" : plain(d);
+            }
+            default: {
+                String s = rs.getString(column);
+                return s == null ? "" : s;
+            }
+        }
+    }
+
+    private static boolean isNumber(int type) {
+        switch (type) {
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+            case Types.BIGINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String plain(BigDecimal d) {
+        return d.signum() == 0 ? "0" : d.stripTrailingZeros().toPlainString();
+    }
+}
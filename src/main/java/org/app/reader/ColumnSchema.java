@@ -0,0 +1,161 @@
+package org.app.reader;
+
+import org.app.model.ExcelDto;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Which sheet column feeds which {@link ExcelDto} field, resolved once from the header row.
+ * Readers look every cell up by column index in a plain array; cells of columns that are
+ * not in the schema are skipped before they are formatted.
+ * <p>
+ * Header names are matched case- and punctuation-insensitively against a few aliases per
+ * field. Aliases name one field only: no bare "Country", "Zip" or "AWB" that a shipper
+ * column or the master air waybill could carry as well, and two headers naming the same
+ * field are an error rather than one silently shadowing the other. A field whose name is
+ * not found falls back to its historical position (the layout the readers used to
+ * hard-code), as long as that column is not taken by another field, so old sheets with
+ * unusual headers still read the same.
+ */
+public final class ColumnSchema {
+
+    /** Fields in their historical column order. */
+    public enum Column {
+        TRACKING_NR(ExcelDto::setTrackingNr, "Tracking Nr", "Tracking", "Tracking Number", "Tracking No"),
+        SHIPPER_NAME(ExcelDto::setShipperName, "Shipper Name", "Shipper", "Consignor", "Consignor Name"),
+        SHIPPER_ADDRESS(ExcelDto::setShipperAddress, "Shipper Address", "Consignor Address", "Shipper Street"),
+        SHIPPER_CITY(ExcelDto::setShipperCity, "Shipper City", "Consignor City"),
+        IMPORTER_COUNTRY(ExcelDto::setImporterCountry, "Importer Country", "Consignee Country"),
+        IMPORTER_NAME(ExcelDto::setImporterName, "Importer Name", "Importer", "Consignee", "Consignee Name"),
+        IMPORTER_ADDRESS(ExcelDto::setImporterAddress, "Importer Address", "Consignee Address", "Importer Street"),
+        IMPORTER_CITY(ExcelDto::setImporterCity, "Importer City", "Consignee City"),
+        IMPORTER_POST_CODE(ExcelDto::setImporterPostCode, "Importer Post Code", "Importer Postcode", "Importer Zip",
+                "Consignee Post Code"),
+        NR_OF_PACKAGES(ExcelDto::setNrOfPackages, "Nr Of Packages", "Packages", "Pieces", "Number Of Packages", "Pcs"),
+        WEIGHT(ExcelDto::setWeight, "Weight", "Gross Weight", "Gross Mass", "Weight Kg"),
+        MASTER_AWB(ExcelDto::setMasterAwb, "Master AWB", "HS Code", "HS", "Commodity Code", "Tariff Code"),
+        DESCRIPTION_OF_GOODS(ExcelDto::setDescriptionOfGoods, "Description Of Goods", "Description",
+                "Goods Description"),
+        MASTER_DOCUMENT(ExcelDto::setMasterDocument, "Master Document", "Master Document Number");
+
+        private final BiConsumer<ExcelDto, String> setter;
+        private final String[] aliases;
+
+        Column(BiConsumer<ExcelDto, String> setter, String... aliases) {
+            this.setter = setter;
+            this.aliases = aliases;
+        }
+    }
+
+    private static final Map<String, Column> BY_NAME = new HashMap<>();
+
+    static {
+        for (Column c : Column.values()) {
+            for (String alias : c.aliases) {
+                BY_NAME.put(normalize(alias), c);
+            }
+        }
+    }
+
+    private static final ColumnSchema POSITIONAL = new ColumnSchema(Column.values());
+
+    /** Indexed by 0-based sheet column; null means the column is not read. */
+    private final Column[] columns;
+
+    private ColumnSchema(Column[] columns) {
+        this.columns = columns;
+    }
+
+    /** The hard-coded layout: column 0 is the tracking number, ..., 13 the master document. */
+    public static ColumnSchema positional() {
+        return POSITIONAL;
+    }
+
+    /**
+     * @param header formatted header cells by column index; null or blank for missing cells
+     * @throws IllegalArgumentException if two headers name the same field
+     */
+    public static ColumnSchema fromHeader(List<String> header) {
+        Column[] columns = new Column[Math.max(header.size(), Column.values().length)];
+        int[] at = new int[Column.values().length];
+        Set<Column> found = EnumSet.noneOf(Column.class);
+        for (int i = 0; i < header.size(); i++) {
+            Column c = forHeader(header.get(i));
+            if (c == null) continue;
+            if (!found.add(c)) {
+                throw new IllegalArgumentException("Headers \"" + header.get(at[c.ordinal()]).trim() + "\" (column "
+                        + (at[c.ordinal()] + 1) + ") and \"" + header.get(i).trim() + "\" (column " + (i + 1)
+                        + ") are both " + c);
+            }
+            at[c.ordinal()] = i;
+            columns[i] = c;
+        }
+        for (Column c : Column.values()) {
+            int i = c.ordinal();
+            if (!found.contains(c) && columns[i] == null && (i >= header.size() || forHeader(header.get(i)) == null)) {
+                columns[i] = c;
+            }
+        }
+        return new ColumnSchema(trim(columns));
+    }
+
+    /** The field a header cell names, or null. */
+    public static Column forHeader(String name) {
+        return name == null ? null : BY_NAME.get(normalize(name));
+    }
+
+    /** True if cells of {@code column} are read at all. */
+    public boolean isProjected(int column) {
+        return column >= 0 && column < columns.length && columns[column] != null;
+    }
+
+    /** Stores {@code value}, trimmed, into the field of {@code column}; the column must be projected. */
+    public void set(ExcelDto dto, int column, String value) {
+        columns[column].setter.accept(dto, value.trim());
+    }
+
+    /**
+     * Fills the parsed weight or package count from a cell that holds an actual number,
+     * so validation does not have to read it back from the formatted text, where "1,234"
+     * could be either 1.234 or 1234. Other columns, and values validation would reject,
+     * are left to the text.
+     */
+    public void setNumber(ExcelDto dto, int column, double value) {
+        Column c = columnAt(column);
+        if (c == Column.WEIGHT && value > 0 && !Double.isInfinite(value)) {
+            dto.setGrossMass(value);
+        } else if (c == Column.NR_OF_PACKAGES && value == Math.rint(value) && value >= 1 && value <= Integer.MAX_VALUE) {
+            dto.setPackages((int) value);
+        }
+    }
+
+    public Column columnAt(int index) {
+        return isProjected(index) ? columns[index] : null;
+    }
+
+    /** Number of sheet columns worth looking at; everything to the right is skipped. */
+    public int width() {
+        return columns.length;
+    }
+
+    private static Column[] trim(Column[] columns) {
+        int n = columns.length;
+        while (n > 0 && columns[n - 1] == null) n--;
+        return n == columns.length ? columns : Arrays.copyOf(columns, n);
+    }
+
+    private static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (Character.isLetterOrDigit(ch)) sb.append(Character.toLowerCase(ch));
+        }
+        return sb.toString();
+    }
+}
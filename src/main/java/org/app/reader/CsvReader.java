@@ -0,0 +1,288 @@
+package org.app.reader;
+
+import org.app.metrics.ReadEvent;
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Reads the same manifest as {@link ExcelReader} from a UTF-8 CSV or TSV file. The file is
+ * read in windows into one reused byte array and tokenized in place: a record is scanned for
+ * field boundaries first, and only fields the {@link ColumnSchema} uses are decoded into
+ * Strings.
+ * <p>
+ * Quoting follows RFC 4180 (fields in double quotes may contain the delimiter, line breaks
+ * and "" for a quote). The delimiter is a tab for .tsv files; for anything else it is the
+ * most frequent of , ; tab | in the header line. A record crossing the end of a window is
+ * moved to the start of the array and the rest of the window read after it.
+ * <p>
+ * The file is not memory-mapped: a mapping stays open until the buffer is garbage collected,
+ * and on Windows an open mapping keeps the {@link org.app.cli.WatchDaemon} from moving the
+ * file into done/ or failed/ once it has been read.
+ */
+public class CsvReader {
+    private static final int WINDOW = 4 << 20;
+    /** A record may grow the window up to this size. */
+    private static final int MAX_RECORD = 64 << 20;
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte[] DELIMITERS = {',', ';', '\t', '|'};
+
+    private final FileChannel channel;
+    private final long size;
+    private final RunMetrics metrics;
+    private byte delimiter;
+
+    /** Current window: file bytes [base, base + limit) in buf[0, limit). */
+    private byte[] buf;
+    private long base;
+    private int limit;
+
+    /** Field boundaries of the record being read, for the first {@code schema.width()} fields. */
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+    private int fields;
+    private byte[] scratch = new byte[256];
+
+    private CsvReader(FileChannel channel, RunMetrics metrics) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.metrics = metrics;
+        this.buf = new byte[(int) Math.min(WINDOW, size)];
+    }
+
+    public static boolean isCsv(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".tsv");
+    }
+
+    public static List<ExcelDto> read(File csvFile) throws IOException {
+        return read(csvFile, new RunMetrics());
+    }
+
+    public static List<ExcelDto> read(File csvFile, RunMetrics metrics) throws IOException {
+        List<ExcelDto> excelDtos = new ArrayList<>();
+        read(csvFile, metrics, excelDtos::add);
+        return excelDtos;
+    }
+
+    public static void read(File csvFile, RunMetrics metrics, Consumer<ExcelDto> rows) throws IOException {
+        ReadEvent event = new ReadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long[] counts = new long[2];
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            CsvReader reader = new CsvReader(channel, metrics);
+            reader.readAll(csvFile.getName().toLowerCase(Locale.ROOT).endsWith(".tsv"), rows, counts);
+        } finally {
+            metrics.addTime(RunMetrics.Phase.READ, System.nanoTime() - start);
+            event.file = csvFile.getPath();
+            event.rows = counts[0];
+            event.emptyRows = counts[1];
+            event.commit();
+        }
+    }
+
+    private void readAll(boolean tsv, Consumer<ExcelDto> rows, long[] counts) throws IOException {
+        if (size == 0) return;
+        fill(0);
+        long pos = startsWithBom() ? 3 : 0;
+        delimiter = tsv ? (byte) '\t' : sniffDelimiter((int) (pos - base));
+
+        // header: every field, so the schema can see all names
+        int width = Integer.MAX_VALUE;
+        pos = nextRecord(pos, width);
+        List<String> header = new ArrayList<>(fields);
+        for (int f = 0; f < fields; f++) {
+            header.add(decode(f));
+        }
+        ColumnSchema schema = ColumnSchema.fromHeader(header);
+        width = schema.width();
+
+        int rowNum = 1;
+        while (pos < size) {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Reading interrupted");
+            pos = nextRecord(pos, width);
+            rowNum++;
+
+            ExcelDto dto = new ExcelDto();
+            dto.setRowNum(rowNum);
+            boolean empty = true;
+            for (int f = 0; f < fields; f++) {
+                if (!schema.isProjected(f)) continue;
+                String val = decode(f);
+                if (empty && !val.trim().isEmpty()) empty = false;
+                schema.set(dto, f, val);
+            }
+            if (empty) {
+                metrics.emptyRowSkipped();
+                counts[1]++;
+                continue;
+            }
+            ExcelReader.addImporterCountryToRouting(dto);
+            rows.accept(dto);
+            metrics.rowRead();
+            counts[0]++;
+        }
+    }
+
+    /**
+     * Scans the record at file offset {@code pos}, reading on if it does not end inside the
+     * current window, and returns the offset of the next record.
+     */
+    private long nextRecord(long pos, int width) throws IOException {
+        while (true) {
+            int end = scanRecord((int) (pos - base), width);
+            if (end >= 0) return base + end;
+            if (pos == base) {
+                if (buf.length >= MAX_RECORD) {
+                    throw new IOException("Record at byte " + pos + " is larger than " + (MAX_RECORD >> 20) + " MB");
+                }
+                buf = Arrays.copyOf(buf, (int) Math.min(Math.min((long) buf.length * 2, MAX_RECORD), size - pos));
+            }
+            fill(pos);
+        }
+    }
+
+    /**
+     * Records field boundaries of the record starting at window index {@code i}. Returns the
+     * window index after its line break, or -1 if the window ends before the record does.
+     */
+    private int scanRecord(int i, int width) {
+        boolean eof = base + limit >= size;
+        fields = 0;
+        while (true) {
+            int start, end;
+            boolean esc = false;
+            if (i < limit && buf[i] == QUOTE) {
+                start = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (!eof) return -1;
+                        break; // unterminated quote: take the rest of the file
+                    }
+                    if (buf[i] == QUOTE) {
+                        if (i + 1 < limit && buf[i + 1] == QUOTE) {
+                            esc = true;
+                            i += 2;
+                            continue;
+                        }
+                        if (i + 1 >= limit && !eof) return -1;
+                        break;
+                    }
+                    i++;
+                }
+                end = i;
+                if (i < limit) i++; // closing quote
+                // anything between the closing quote and the delimiter is dropped
+                while (i < limit && !isFieldEnd(buf[i])) i++;
+            } else {
+                start = i;
+                while (i < limit && !isFieldEnd(buf[i])) i++;
+                end = i;
+            }
+            if (fields < width) addField(start, end, esc);
+            fields++;
+
+            if (i >= limit) {
+                if (!eof) return -1;
+                fields = Math.min(fields, width);
+                return i;
+            }
+            byte b = buf[i++];
+            if (b == delimiter) continue;
+            if (b == CR) {
+                if (i >= limit && !eof) return -1;
+                if (i < limit && buf[i] == LF) i++;
+            }
+            fields = Math.min(fields, width);
+            return i;
+        }
+    }
+
+    private boolean isFieldEnd(byte b) {
+        return b == delimiter || b == LF || b == CR;
+    }
+
+    private void addField(int start, int end, boolean esc) {
+        if (fields == starts.length) {
+            int n = fields * 2;
+            starts = Arrays.copyOf(starts, n);
+            ends = Arrays.copyOf(ends, n);
+            escaped = Arrays.copyOf(escaped, n);
+        }
+        starts[fields] = start;
+        ends[fields] = end;
+        escaped[fields] = esc;
+    }
+
+    /** The only copy a used field makes: window bytes to scratch, then one UTF-8 String. */
+    private String decode(int f) {
+        int start = starts[f];
+        int len = ends[f] - start;
+        if (len == 0) return "";
+        if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+        int n = 0;
+        for (int i = start; i < start + len; i++) {
+            byte b = buf[i];
+            scratch[n++] = b;
+            if (b == QUOTE && escaped[f]) i++; // "" -> "
+        }
+        return new String(scratch, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /** Makes file offset {@code from} the window start, keeping bytes already read after it. */
+    private void fill(long from) throws IOException {
+        int kept = 0;
+        if (from > base && from < base + limit) {
+            kept = (int) (base + limit - from);
+            System.arraycopy(buf, (int) (from - base), buf, 0, kept);
+        } else if (from == base) {
+            kept = limit;
+        }
+        base = from;
+        ByteBuffer target = ByteBuffer.wrap(buf, kept, (int) Math.min(buf.length, size - from) - kept);
+        while (target.hasRemaining()) {
+            if (channel.read(target, from + target.position()) < 0) break;
+        }
+        limit = target.position();
+    }
+
+    private boolean startsWithBom() {
+        return limit >= 3 && buf[0] == (byte) 0xEF && buf[1] == (byte) 0xBB && buf[2] == (byte) 0xBF;
+    }
+
+    /** Most frequent candidate delimiter outside quotes on the first line; ',' if none occurs. */
+    private byte sniffDelimiter(int i) {
+        int[] counts = new int[DELIMITERS.length];
+        boolean quoted = false;
+        for (; i < limit; i++) {
+            byte b = buf[i];
+            if (b == QUOTE) quoted = !quoted;
+            if (quoted) continue;
+            if (b == LF || b == CR) break;
+            for (int d = 0; d < DELIMITERS.length; d++) {
+                if (b == DELIMITERS[d]) counts[d]++;
+            }
+        }
+        int best = 0;
+        for (int d = 1; d < DELIMITERS.length; d++) {
+            if (counts[d] > counts[best]) best = d;
+        }
+        return DELIMITERS[best];
+    }
+}
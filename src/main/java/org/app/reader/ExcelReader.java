@@ -1,77 +1,131 @@
 package org.app.reader;
 
 import lombok.var;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.app.metrics.ReadEvent;
+import org.app.metrics.RunMetrics;
 import org.app.model.ExcelDto;
+import org.app.reference.Countries;
+import org.app.reference.Country;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Reads the first sheet of a workbook, or the sheets of a {@link SheetSelection}, into rows.
+ * The header row of each sheet decides which column is which (see {@link ColumnSchema});
+ * columns the schema does not know are never formatted.
+ */
 public class ExcelReader {
     public static List<ExcelDto> read(File excelFile) throws IOException {
+        return read(excelFile, new RunMetrics());
+    }
+
+    public static List<ExcelDto> read(File excelFile, RunMetrics metrics) throws IOException {
+        return read(excelFile, SheetSelection.FIRST, metrics);
+    }
+
+    public static List<ExcelDto> read(File excelFile, SheetSelection sheets, RunMetrics metrics) throws IOException {
         List<ExcelDto> excelDtos = new ArrayList<>();
+        ReadEvent event = new ReadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long skipped = 0;
+
+        try (var fis = new FileInputStream(excelFile);
+             Workbook wb = WorkbookFactory.create(fis)) {
+            DataFormatter fmt = new DataFormatter();
+            boolean found = false;
+            for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+                Sheet sheet = wb.getSheetAt(i);
+                if (!sheets.includes(i, sheet.getSheetName())) continue;
+                found = true;
+                skipped += readSheet(sheet, fmt, metrics, excelDtos);
+            }
+            if (!found) throw new IOException("No sheet " + sheets + " in " + excelFile.getName());
+        } finally {
+            metrics.addTime(RunMetrics.Phase.READ, System.nanoTime() - start);
+            event.file = excelFile.getPath();
+            event.rows = excelDtos.size();
+            event.emptyRows = skipped;
+            event.commit();
+        }
+        return excelDtos;
+    }
 
-        var fis = new FileInputStream(excelFile);
-        Workbook wb = WorkbookFactory.create(fis);
-        Sheet sheet = wb.getSheetAt(0);
+    /** Appends the rows of one sheet to {@code excelDtos}; returns the number of empty rows skipped. */
+    private static long readSheet(Sheet sheet, DataFormatter fmt, RunMetrics metrics,
+                                  List<ExcelDto> excelDtos) throws IOException {
+        long skipped = 0;
         Iterator<Row> rows = sheet.iterator();
-        rows.next(); // skip header
-        DataFormatter fmt = new DataFormatter();
+        if (!rows.hasNext()) return 0;
+        ColumnSchema schema = schema(rows.next(), fmt);
 
         while (rows.hasNext()) {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Reading interrupted");
             Row row = rows.next();
-            if (isEmpty(row, fmt)) continue;
-
             ExcelDto dto = new ExcelDto();
+            dto.setSheet(sheet.getSheetName());
+            dto.setRowNum(row.getRowNum() + 1);
 
+            // one pass: format projected cells only, note whether any of them had a value
+            boolean empty = true;
             for (Cell c : row) {
+                int column = c.getColumnIndex();
+                if (!schema.isProjected(column)) continue;
                 String val = fmt.formatCellValue(c);
-                switch (c.getColumnIndex()) {
-                    case 0:  dto.setTrackingNr(val.trim()); break;
-                    case 1:  dto.setShipperName(val.trim()); break;
-                    case 2:  dto.setShipperAddress(val.trim()); break;
-                    case 3:  dto.setShipperCity(val.trim()); break;
-                    case 4:  dto.setImporterCountry(val.trim()); break;
-                    case 5:  dto.setImporterName(val.trim()); break;
-                    case 6:  dto.setImporterAddress(val.trim()); break;
-                    case 7:  dto.setImporterCity(val.trim()); break;
-                    case 8:  dto.setImporterPostCode(val.trim()); break;
-                    case 9:  dto.setNrOfPackages(val.trim()); break;
-                    case 10: dto.setWeight(val.trim()); break;
-                    case 11: dto.setMasterAwb(val.trim()); break;
-                    case 12: dto.setDescriptionOfGoods(val.trim()); break;
-                    case 13: dto.setMasterDocument(val.trim()); break;
-                }
-
+                if (empty && !val.trim().isEmpty()) empty = false;
+                schema.set(dto, column, val);
+                if (c.getCellType() == CellType.NUMERIC) schema.setNumber(dto, column, c.getNumericCellValue());
             }
-
-            String[] currentCountries = dto.getCountriesOfRoutingOfConsignment();
-            String importerCountry = dto.getImporterCountry();
-
-            if (!Arrays.asList(currentCountries).contains(importerCountry)) {
-                dto.setCountriesOfRoutingOfConsignment(ArrayUtils.add(currentCountries, importerCountry));
+            if (empty) {
+                metrics.emptyRowSkipped();
+                skipped++;
+                continue;
             }
 
+            addImporterCountryToRouting(dto);
             excelDtos.add(dto);
+            metrics.rowRead();
         }
-        return excelDtos;
+        return skipped;
+    }
+
+    private static ColumnSchema schema(Row header, DataFormatter fmt) {
+        List<String> names = new ArrayList<>();
+        for (Cell c : header) {
+            while (names.size() < c.getColumnIndex()) names.add(null);
+            names.add(fmt.formatCellValue(c));
+        }
+        return ColumnSchema.fromHeader(names);
     }
 
-    private static boolean isEmpty(Row row, DataFormatter fmt) {
-        for (Cell c : row)
-            if (!fmt.formatCellValue(c).trim().isEmpty())
-                return false;
-        return true;
+    /** Known countries share their precomputed routing array; anything else gets its own copy. */
+    static void addImporterCountryToRouting(ExcelDto dto) {
+        Country country = Countries.get(dto.getImporterCountry());
+        if (country != null && country.getIso2().equals(dto.getImporterCountry())) {
+            dto.setCountriesOfRoutingOfConsignment(country.getRouting());
+            return;
+        }
+        String[] currentCountries = dto.getCountriesOfRoutingOfConsignment();
+        String importerCountry = dto.getImporterCountry();
+
+        if (!Arrays.asList(currentCountries).contains(importerCountry)) {
+            String[] routing = Arrays.copyOf(currentCountries, currentCountries.length + 1);
+            routing[currentCountries.length] = importerCountry;
+            dto.setCountriesOfRoutingOfConsignment(routing);
+        }
     }
 }
@@ -0,0 +1,89 @@
+package org.app.reader;
+
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Reads several workbooks, and the selected sheets inside them, at the same time and returns
+ * all rows as one list, so a day's manifests go through a single grouping pass. Row order
+ * does not depend on scheduling: workbooks in the given order, then sheets in workbook order.
+ * <p>
+ * Workbooks are opened on one pool. With the streaming reader their sheets are parsed on a
+ * second pool, so a workbook waiting for its sheets never keeps a sheet from running. The DOM
+ * reader parses the sheets of one workbook on a single thread, as POI workbooks are not
+ * thread-safe. CSV/TSV files go through {@link CsvReader}; the sheet selection does not apply.
+ * Access databases go through {@link AccessReader}, where the selection names tables and queries.
+ */
+public class ParallelReader {
+
+    /**
+     * One workbook on the calling thread, each row handed to {@code rows} as soon as it is
+     * read. Only the DOM reader builds a list first, since it holds the workbook anyway.
+     */
+    public static void read(File workbook, SheetSelection sheets, boolean streaming, RunMetrics metrics,
+                            Consumer<ExcelDto> rows, Consumer<String> log) throws IOException {
+        if (CsvReader.isCsv(workbook)) {
+            CsvReader.read(workbook, metrics, rows);
+        } else if (AccessReader.isAccess(workbook)) {
+            AccessReader.read(workbook, sheets, metrics, rows, log);
+        } else if (streaming) {
+            StreamingExcelReader.read(workbook, sheets, metrics, rows);
+        } else {
+            ExcelReader.read(workbook, sheets, metrics).forEach(rows);
+        }
+    }
+
+    public static List<ExcelDto> read(List<File> workbooks, SheetSelection sheets, boolean streaming,
+                                      int threads, RunMetrics metrics, Consumer<String> log) throws IOException {
+        if (threads <= 1) {
+            List<ExcelDto> all = new ArrayList<>();
+            for (File wb : workbooks) {
+                all.addAll(CsvReader.isCsv(wb) ? CsvReader.read(wb, metrics)
+                        : AccessReader.isAccess(wb) ? AccessReader.read(wb, sheets, metrics, log)
+                        : streaming ? StreamingExcelReader.read(wb, sheets, metrics)
+                        : ExcelReader.read(wb, sheets, metrics));
+            }
+            return all;
+        }
+
+        ExecutorService workbookPool = Executors.newFixedThreadPool(Math.min(threads, workbooks.size()));
+        ExecutorService sheetPool = streaming ? Executors.newFixedThreadPool(threads) : null;
+        List<Future<List<ExcelDto>>> futures = new ArrayList<>();
+        try {
+            for (File wb : workbooks) {
+                futures.add(workbookPool.submit(() -> CsvReader.isCsv(wb) ? CsvReader.read(wb, metrics)
+                        : AccessReader.isAccess(wb) ? AccessReader.read(wb, sheets, metrics, log)
+                        : streaming ? StreamingExcelReader.read(wb, sheets, metrics, sheetPool)
+                        : ExcelReader.read(wb, sheets, metrics)));
+            }
+            List<ExcelDto> all = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    all.addAll(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    throw new IOException("Cannot read " + workbooks.get(i).getName() + ": " + cause.getMessage(), cause);
+                }
+            }
+            return all;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reading interrupted");
+        } finally {
+            workbookPool.shutdownNow();
+            if (sheetPool != null) sheetPool.shutdownNow();
+        }
+    }
+}
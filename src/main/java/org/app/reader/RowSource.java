@@ -0,0 +1,15 @@
+package org.app.reader;
+
+import org.app.model.ExcelDto;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Rows of one input, pushed to a consumer as they are read, e.g.
+ * {@code rows -> ParallelReader.read(file, sheets, streaming, metrics, rows, log)}.
+ */
+@FunctionalInterface
+public interface RowSource {
+    void read(Consumer<ExcelDto> rows) throws IOException;
+}
@@ -0,0 +1,67 @@
+package org.app.reader;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/** Which sheets of a workbook the readers ingest: the first one (the default), all, or some by name. */
+public final class SheetSelection {
+    public static final SheetSelection FIRST = new SheetSelection(false, Collections.emptySet());
+    public static final SheetSelection ALL = new SheetSelection(true, Collections.emptySet());
+
+    private final boolean all;
+    private final Set<String> names;
+
+    private SheetSelection(boolean all, Set<String> names) {
+        this.all = all;
+        this.names = names;
+    }
+
+    public static SheetSelection named(Collection<String> names) {
+        if (names.isEmpty()) throw new IllegalArgumentException("No sheet names given");
+        return new SheetSelection(false, Collections.unmodifiableSet(new LinkedHashSet<>(names)));
+    }
+
+    /** "first", "all" or a comma separated list of sheet names. */
+    public static SheetSelection parse(String spec) {
+        String s = spec.trim();
+        if (s.equalsIgnoreCase("first")) return FIRST;
+        if (s.equalsIgnoreCase("all")) return ALL;
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : Arrays.asList(s.split(","))) {
+            if (!name.trim().isEmpty()) names.add(name.trim());
+        }
+        return named(names);
+    }
+
+    public boolean includes(int index, String sheetName) {
+        if (all) return true;
+        if (names.isEmpty()) return index == 0;
+        return names.contains(sheetName);
+    }
+
+    /** Like {@link #includes} but with names compared case-insensitively, as Access compares table names. */
+    public boolean includesIgnoringCase(int index, String name) {
+        if (all || names.isEmpty()) return includes(index, name);
+        for (String n : names) {
+            if (n.equalsIgnoreCase(name)) return true;
+        }
+        return false;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    /** True unless only the first sheet is read, i.e. a workbook may yield several sheets. */
+    public boolean isMultiSheet() {
+        return all || !names.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return all ? "all" : names.isEmpty() ? "first" : String.join(",", names);
+    }
+}
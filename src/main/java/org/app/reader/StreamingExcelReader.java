@@ -0,0 +1,346 @@
+package org.app.reader;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.app.metrics.ReadEvent;
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Low-memory alternative to {@link ExcelReader}: parses the selected sheets with POI's
+ * event model (XSSFReader + SAX) and hands out one {@link ExcelDto} per row, so the
+ * workbook is never materialized in heap.
+ * <p>
+ * Rows are mapped exactly like {@link ExcelReader} does. The only intended difference
+ * is that formula cells yield their cached result instead of the formula text.
+ */
+public class StreamingExcelReader {
+
+    public static List<ExcelDto> read(File excelFile) throws IOException {
+        return read(excelFile, new RunMetrics());
+    }
+
+    public static List<ExcelDto> read(File excelFile, RunMetrics metrics) throws IOException {
+        List<ExcelDto> excelDtos = new ArrayList<>();
+        read(excelFile, metrics, excelDtos::add);
+        return excelDtos;
+    }
+
+    public static void read(File excelFile, Consumer<ExcelDto> rows) throws IOException {
+        read(excelFile, new RunMetrics(), rows);
+    }
+
+    public static void read(File excelFile, RunMetrics metrics, Consumer<ExcelDto> rows) throws IOException {
+        read(excelFile, SheetSelection.FIRST, metrics, rows);
+    }
+
+    public static List<ExcelDto> read(File excelFile, SheetSelection sheets, RunMetrics metrics) throws IOException {
+        List<ExcelDto> excelDtos = new ArrayList<>();
+        read(excelFile, sheets, metrics, excelDtos::add);
+        return excelDtos;
+    }
+
+    /** Sheets are parsed one after the other, in workbook order; each has its own header row. */
+    public static void read(File excelFile, SheetSelection selection, RunMetrics metrics,
+                            Consumer<ExcelDto> rows) throws IOException {
+        ReadEvent event = new ReadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        RowHandler handler = new RowHandler(rows, metrics);
+
+        try (OPCPackage pkg = OPCPackage.open(excelFile, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            boolean found = false;
+            for (int index = 0; sheets.hasNext(); index++) {
+                try (InputStream sheet = sheets.next()) {
+                    if (!selection.includes(index, sheets.getSheetName())) continue;
+                    found = true;
+                    handler.startSheet(sheets.getSheetName());
+                    parse(sheet, reader.getStylesTable(), strings, handler);
+                }
+            }
+            if (!found) throw new IOException("No sheet " + selection + " in " + excelFile.getName());
+        } catch (SAXException | OpenXML4JException | ParserConfigurationException e) {
+            throw cannotRead(excelFile, e);
+        } finally {
+            metrics.addTime(RunMetrics.Phase.READ, System.nanoTime() - start);
+            event.file = excelFile.getPath();
+            event.rows = handler.read;
+            event.emptyRows = handler.skipped;
+            event.commit();
+        }
+    }
+
+    /**
+     * Like {@link #read(File, SheetSelection, RunMetrics)}, but the selected sheets are parsed
+     * concurrently on {@code sheetPool}. Shared strings and styles are parsed once and only
+     * read afterwards, so every sheet uses the same tables. Rows come back in sheet order.
+     * The calling thread waits for the sheets, so it must not be a {@code sheetPool} thread.
+     */
+    public static List<ExcelDto> read(File excelFile, SheetSelection selection, RunMetrics metrics,
+                                      ExecutorService sheetPool) throws IOException {
+        ReadEvent event = new ReadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        List<RowHandler> handlers = new ArrayList<>();
+        List<List<ExcelDto>> sheetRows = new ArrayList<>();
+        List<Future<?>> parsed = new ArrayList<>();
+
+        try (OPCPackage pkg = OPCPackage.open(excelFile, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Styles styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            for (int index = 0; sheets.hasNext(); index++) {
+                sheets.next().close();
+                if (!selection.includes(index, sheets.getSheetName())) continue;
+                PackagePart part = sheets.getSheetPart();
+                List<ExcelDto> rows = new ArrayList<>();
+                RowHandler handler = new RowHandler(rows::add, metrics);
+                handler.startSheet(sheets.getSheetName());
+                handlers.add(handler);
+                sheetRows.add(rows);
+                parsed.add(sheetPool.submit(() -> {
+                    try (InputStream in = part.getInputStream()) {
+                        parse(in, styles, strings, handler);
+                    }
+                    return null;
+                }));
+            }
+            if (handlers.isEmpty()) throw new IOException("No sheet " + selection + " in " + excelFile.getName());
+
+            for (Future<?> f : parsed) {
+                f.get();
+            }
+            List<ExcelDto> all = new ArrayList<>();
+            sheetRows.forEach(all::addAll);
+            return all;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reading interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw cannotRead(excelFile, cause instanceof Exception ? (Exception) cause : new Exception(cause));
+        } catch (SAXException | OpenXML4JException e) {
+            throw cannotRead(excelFile, e);
+        } finally {
+            parsed.forEach(f -> f.cancel(true));
+            metrics.addTime(RunMetrics.Phase.READ, System.nanoTime() - start);
+            event.file = excelFile.getPath();
+            event.rows = handlers.stream().mapToLong(h -> h.read).sum();
+            event.emptyRows = handlers.stream().mapToLong(h -> h.skipped).sum();
+            event.commit();
+        }
+    }
+
+    private static void parse(InputStream sheet, Styles styles, SharedStrings strings, RowHandler handler)
+            throws IOException, SAXException, ParserConfigurationException {
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(new SheetHandler(styles, strings, handler));
+        parser.parse(new InputSource(sheet));
+    }
+
+    /** Keeps cancellation recognisable; everything else becomes "Cannot read <file>". */
+    private static IOException cannotRead(File excelFile, Exception e) {
+        if (e instanceof SAXException && ((SAXException) e).getException() instanceof InterruptedIOException) {
+            return (InterruptedIOException) ((SAXException) e).getException();
+        }
+        return new IOException("Cannot read " + excelFile.getName() + ": " + e.getMessage(), e);
+    }
+
+    /** Column index of an A1-style reference ("C12" -> 2) without allocating a CellReference. */
+    static int columnIndex(String cellReference) {
+        int col = 0;
+        for (int i = 0; i < cellReference.length(); i++) {
+            char ch = cellReference.charAt(i);
+            if (ch < 'A' || ch > 'Z') break;
+            col = col * 26 + (ch - 'A' + 1);
+        }
+        return col - 1;
+    }
+
+    /**
+     * POI only reports cells that carry a value; the DOM reader also sees styled blank
+     * cells and stores them as "". Track every {@code <c>} element so both readers agree.
+     * <p>
+     * Cells of columns outside the {@link ColumnSchema} are swallowed here, before POI
+     * resolves shared strings or formats numbers for them.
+     */
+    private static class SheetHandler extends XSSFSheetXMLHandler {
+        private final RowHandler rowHandler;
+        private boolean skipping;
+        /** The current cell holds a number (no t attribute, or t="n"); its raw {@code <v>} text. */
+        private boolean numeric;
+        /** Inside {@code <v>}; a formula cell also has the text of its {@code <f>}. */
+        private boolean inValue;
+        private final StringBuilder number = new StringBuilder();
+
+        SheetHandler(Styles styles, SharedStrings strings, RowHandler rowHandler) {
+            super(styles, strings, rowHandler, new DataFormatter(), false);
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            if (skipping) return;
+            if ("row".equals(localName) && Thread.currentThread().isInterrupted()) {
+                throw new SAXException(new InterruptedIOException("Reading interrupted"));
+            }
+            if ("c".equals(localName)) {
+                String ref = attributes.getValue("r");
+                int column = ref == null ? -1 : columnIndex(ref);
+                if (column >= 0 && rowHandler.schema != null && !rowHandler.schema.isProjected(column)) {
+                    skipping = true;
+                    return;
+                }
+                rowHandler.pendingColumn = column;
+                String type = attributes.getValue("t");
+                numeric = type == null || "n".equals(type);
+                number.setLength(0);
+            } else if ("v".equals(localName)) {
+                inValue = true;
+            }
+            super.startElement(uri, localName, qName, attributes);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (skipping) {
+                if ("c".equals(localName)) skipping = false;
+                return;
+            }
+            if ("v".equals(localName)) inValue = false;
+            if ("v".equals(localName) && numeric && number.length() > 0) {
+                // POI reports the cell when <v> ends; hand over the unformatted value with it
+                try {
+                    rowHandler.pendingNumber = Double.parseDouble(number.toString());
+                } catch (NumberFormatException ignored) {
+                    // not a number after all; the formatted text is all there is
+                }
+            }
+            super.endElement(uri, localName, qName);
+            if ("c".equals(localName)) {
+                if (rowHandler.pendingColumn >= 0) rowHandler.cell(rowHandler.pendingColumn, "");
+                rowHandler.pendingColumn = -1;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (skipping) return;
+            if (numeric && inValue) number.append(ch, start, length);
+            super.characters(ch, start, length);
+        }
+    }
+
+    private static class RowHandler implements SheetContentsHandler {
+        private final Consumer<ExcelDto> rows;
+        private final RunMetrics metrics;
+        private long read;
+        private long skipped;
+        private boolean headerSkipped;
+        private boolean inHeader;
+        private boolean empty;
+        private ExcelDto dto;
+        private String sheetName;
+        private List<String> header;
+        ColumnSchema schema;
+        int pendingColumn = -1;
+        /** Raw value of the numeric cell POI is about to report, NaN otherwise. */
+        double pendingNumber = Double.NaN;
+
+        RowHandler(Consumer<ExcelDto> rows, RunMetrics metrics) {
+            this.rows = rows;
+            this.metrics = metrics;
+        }
+
+        void startSheet(String name) {
+            sheetName = name;
+            headerSkipped = false;
+            schema = null;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            inHeader = !headerSkipped;
+            headerSkipped = true;
+            if (inHeader) header = new ArrayList<>();
+            empty = true;
+            dto = inHeader ? null : new ExcelDto();
+            if (dto != null) {
+                dto.setSheet(sheetName);
+                dto.setRowNum(rowNum + 1);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            pendingColumn = -1;
+            int column = columnIndex(cellReference);
+            cell(column, formattedValue == null ? "" : formattedValue);
+            if (!Double.isNaN(pendingNumber) && dto != null && schema.isProjected(column)) {
+                schema.setNumber(dto, column, pendingNumber);
+            }
+            pendingNumber = Double.NaN;
+        }
+
+        void cell(int column, String formattedValue) {
+            if (inHeader) {
+                while (header.size() <= column) header.add(null);
+                if (header.get(column) == null) header.set(column, formattedValue);
+                return;
+            }
+            if (!schema.isProjected(column)) return;
+            if (empty && !formattedValue.trim().isEmpty()) empty = false;
+            schema.set(dto, column, formattedValue);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (inHeader) {
+                schema = ColumnSchema.fromHeader(header);
+                header = null;
+                return;
+            }
+            if (empty) {
+                metrics.emptyRowSkipped();
+                skipped++;
+                return;
+            }
+            ExcelReader.addImporterCountryToRouting(dto);
+            rows.accept(dto);
+            metrics.rowRead();
+            read++;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.app.reference;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Country reference data from the bundled {@code countries.tsv}, loaded once.
+ * <p>
+ * Lookups index a 26 x 26 array directly with the two letters of the ISO code, either case,
+ * so resolving a country costs two char reads and allocates nothing.
+ */
+public final class Countries {
+    private static final String RESOURCE = "/countries.tsv";
+    private static final String DEFAULT_ROUTING = "@default-routing";
+
+    private static final Country[] BY_CODE = new Country[26 * 26];
+    private static final int COUNT;
+
+    static {
+        try (InputStream in = Countries.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) throw new IllegalStateException("Missing resource " + RESOURCE);
+            COUNT = load(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + RESOURCE, e);
+        }
+    }
+
+    private Countries() {
+    }
+
+    /** @return the country with ISO 3166-1 alpha-2 code {@code iso2}, or null if unknown */
+    public static Country get(CharSequence iso2) {
+        int i = index(iso2);
+        return i < 0 ? null : BY_CODE[i];
+    }
+
+    public static boolean isKnown(CharSequence iso2) {
+        return get(iso2) != null;
+    }
+
+    /** @return the capital city, or null if the code is unknown */
+    public static String capitalOf(CharSequence iso2) {
+        Country c = get(iso2);
+        return c == null ? null : c.getCapital();
+    }
+
+    public static int size() {
+        return COUNT;
+    }
+
+    private static int index(CharSequence code) {
+        if (code == null || code.length() != 2) return -1;
+        int a = letter(code.charAt(0));
+        int b = letter(code.charAt(1));
+        return a < 0 || b < 0 ? -1 : a * 26 + b;
+    }
+
+    /** 0..25 for an ASCII letter of either case, otherwise -1. */
+    private static int letter(char c) {
+        int i = (c | 0x20) - 'a';
+        return i >= 0 && i < 26 ? i : -1;
+    }
+
+    private static int load(BufferedReader reader) throws IOException {
+        String[] defaultRouting = new String[0];
+        int count = 0;
+        int lineNo = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNo++;
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] cols = line.split("\t", -1);
+            if (cols[0].equals(DEFAULT_ROUTING)) {
+                defaultRouting = route(cols[1]);
+                continue;
+            }
+            if (cols.length != 5) throw bad(lineNo, "expected 5 columns, found " + cols.length);
+            String iso2 = cols[0];
+            int i = index(iso2);
+            if (i < 0 || !iso2.equals(iso2.toUpperCase())) throw bad(lineNo, "'" + iso2 + "' is not an upper-case ISO2 code");
+            if (BY_CODE[i] != null) throw bad(lineNo, "duplicate " + iso2);
+
+            String[] transit = cols[4].isEmpty() ? defaultRouting : route(cols[4]);
+            String[] routing = Arrays.asList(transit).contains(iso2) ? transit.clone() : append(transit, iso2);
+            BY_CODE[i] = new Country(iso2, cols[1], cols[2].equals("1"), cols[3], routing);
+            count++;
+        }
+        return count;
+    }
+
+    private static String[] route(String countries) {
+        return countries.trim().split(" +");
+    }
+
+    private static String[] append(String[] route, String iso2) {
+        String[] out = Arrays.copyOf(route, route.length + 1);
+        out[route.length] = iso2;
+        return out;
+    }
+
+    private static IllegalStateException bad(int lineNo, String reason) {
+        return new IllegalStateException(RESOURCE + " line " + lineNo + ": " + reason);
+    }
+}
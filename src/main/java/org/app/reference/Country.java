@@ -0,0 +1,26 @@
+package org.app.reference;
+
+import lombok.Getter;
+
+/** One row of {@code countries.tsv}. */
+@Getter
+public class Country {
+    private final String iso2;
+    private final String iso3;
+    private final boolean euMember;
+    /** Used as place of delivery. */
+    private final String capital;
+    /**
+     * Countries of routing for a consignment to this country, ending with the country itself.
+     * Shared by every row going there; do not modify.
+     */
+    private final String[] routing;
+
+    Country(String iso2, String iso3, boolean euMember, String capital, String[] routing) {
+        this.iso2 = iso2;
+        this.iso3 = iso3;
+        this.euMember = euMember;
+        this.capital = capital;
+        this.routing = routing;
+    }
+}
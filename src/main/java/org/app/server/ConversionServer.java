@@ -0,0 +1,376 @@
+package org.app.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.app.generator.Envelope;
+import org.app.generator.GenerationOptions;
+import org.app.generator.JsonGenerator;
+import org.app.metrics.RunMetrics;
+import org.app.metrics.ServerMetrics;
+import org.app.output.ZipStreamSink;
+import org.app.reader.AccessReader;
+import org.app.reader.CsvReader;
+import org.app.reader.ParallelReader;
+import org.app.reader.SheetSelection;
+import org.app.validation.RowValidator;
+import org.app.validation.ValidationReport;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * --serve PORT: converts workbooks posted over HTTP and streams the declarations back as a ZIP.
+ * <pre>
+ *   curl --data-binary @book.xlsx "http://localhost:8080/convert?name=book.xlsx" -o book.zip
+ * </pre>
+ * {@code name} picks the reader (.xlsx, .csv, .tsv, .accdb or .mdb) and names the result;
+ * {@code sheets} overrides the sheet selection (first, all or NAME,...). The archive holds one
+ * JSON per declaration plus {@code errors.json} if rows were rejected; their number is also in
+ * the X-Rows-Rejected header. Queue wait and read (including validation) times are sent as
+ * Server-Timing.
+ * <p>
+ * Conversions run on a fixed pool of workers with a bounded queue. The HTTP dispatcher only
+ * hands requests over, so when every worker is busy and the queue is full a request is
+ * answered 503 right away instead of piling up. GET /metrics returns request counters,
+ * queue depth and wait/service times (see {@link ServerMetrics}) with the row totals.
+ * <p>
+ * Errors before the first byte of the archive get a proper status (400 for an unreadable
+ * workbook, 413 for an upload over the limit, 500 otherwise). Once streaming has started a
+ * failure can only cut the response short.
+ */
+public class ConversionServer {
+    private static final long MAX_UPLOAD_BYTES = 512L << 20;
+    private static final int DRAIN_SECONDS = 60;
+
+    private final InetSocketAddress address;
+    private final int workers;
+    private final int queueCapacity;
+    private final Envelope envelope;
+    private final boolean streaming;
+    private final SheetSelection sheets;
+    private final PrintStream out;
+
+    private final RunMetrics runMetrics = new RunMetrics();
+    private final ServerMetrics metrics = new ServerMetrics();
+    private ThreadPoolExecutor pool;
+    private HttpServer server;
+
+    public ConversionServer(InetSocketAddress address, int workers, int queueCapacity, Envelope envelope,
+                            boolean streaming, SheetSelection sheets, PrintStream out) {
+        this.address = address;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.envelope = envelope;
+        this.streaming = streaming;
+        this.sheets = sheets;
+        this.out = out;
+    }
+
+    public void start() throws IOException {
+        pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+        server = HttpServer.create(address, 0);
+        server.createContext("/convert", this::convert);
+        server.createContext("/metrics", this::metrics);
+        server.start();
+        out.println("Listening on http://" + address.getHostString() + ":" + server.getAddress().getPort()
+                + "/convert (" + workers + " workers, queue " + queueCapacity + ")");
+    }
+
+    /**
+     * Stops accepting requests, lets queued and running conversions finish and prints the
+     * totals.
+     */
+    public void stop() {
+        server.stop(0);
+        pool.shutdown();
+        try {
+            pool.awaitTermination(DRAIN_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.println("METRICS " + metricsJson());
+    }
+
+    /** Starts the server and blocks until the JVM is asked to shut down (Ctrl+C, SIGTERM). */
+    public void runUntilShutdown() throws IOException {
+        start();
+        CountDownLatch forever = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "server-shutdown"));
+        try {
+            forever.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private String metricsJson() {
+        return metrics.toJson(pool.getQueue().size(), pool.getActiveCount(), runMetrics);
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendText(exchange, 405, "Use GET");
+                return;
+            }
+            byte[] json = metricsJson().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.length);
+            exchange.getResponseBody().write(json);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** Runs on the dispatcher thread: checks the request and queues it, nothing slow. */
+    private void convert(HttpExchange exchange) throws IOException {
+        long received = System.nanoTime();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, 405, "Use POST with the workbook as request body");
+                exchange.close();
+                return;
+            }
+            Map<String, String> query = query(exchange);
+            String name = fileName(query.get("name"));
+            SheetSelection selection = query.containsKey("sheets") ? SheetSelection.parse(query.get("sheets")) : sheets;
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (length != null && Long.parseLong(length) > MAX_UPLOAD_BYTES) {
+                sendText(exchange, 413, "Upload larger than " + (MAX_UPLOAD_BYTES >> 20) + " MB");
+                exchange.close();
+                return;
+            }
+            pool.execute(() -> run(exchange, name, selection, received));
+            metrics.accepted(pool.getQueue().size());
+        } catch (RejectedExecutionException e) {
+            metrics.rejected();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendText(exchange, 503, "All " + workers + " workers busy and " + queueCapacity + " requests queued");
+            exchange.close();
+        } catch (IllegalArgumentException e) {
+            sendText(exchange, 400, e.getMessage());
+            exchange.close();
+        }
+    }
+
+    /** One conversion on a worker thread; always completes the exchange. */
+    private void run(HttpExchange exchange, String name, SheetSelection selection, long received) {
+        long start = System.nanoTime();
+        metrics.started(start - received);
+        ResponseStream response = new ResponseStream(exchange);
+        int status = 200;
+        String outcome;
+        Path upload = null;
+        try {
+            upload = Files.createTempFile("upload-", suffix(name));
+            receive(exchange, upload);
+
+            RowValidator validator = new RowValidator(runMetrics);
+            try {
+                ParallelReader.read(upload.toFile(), selection, streaming, runMetrics, validator, msg -> { });
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                throw new BadRequest("Cannot read " + name + ": " + e.getMessage());
+            }
+            long read = System.nanoTime();
+            ValidationReport report = validator.getReport();
+
+            String baseName = name.replaceFirst("\\.[^.]+$", "");
+            exchange.getResponseHeaders().set("Content-Type", "application/zip");
+            exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + baseName + ".zip\"");
+            exchange.getResponseHeaders().set("X-Rows-Accepted", Integer.toString(report.getAcceptedRows()));
+            exchange.getResponseHeaders().set("X-Rows-Rejected", Integer.toString(report.getRejectedRows()));
+            exchange.getResponseHeaders().set("Server-Timing", String.format(Locale.ROOT,
+                    "queue;dur=%.1f, read;dur=%.1f", (start - received) / 1e6, (read - start) / 1e6));
+
+            ZipStreamSink sink = new ZipStreamSink(response, name);
+            if (report.hasErrors()) {
+                byte[] errors = report.toJson();
+                sink.write("errors.json", errors, 0, errors.length);
+            }
+            GenerationOptions options = new GenerationOptions();
+            options.setEnvelope(envelope);
+            options.setMetrics(runMetrics);
+            options.setSink(sink);
+            int written = JsonGenerator.generate(report.getAccepted(), upload.getParent(), name, options, msg -> { });
+            sink.close();
+            outcome = report.getAcceptedRows() + report.getRejectedRows() + " rows, "
+                    + report.getRejectedRows() + " rejected, " + written + " declarations";
+        } catch (BadRequest e) {
+            status = 400;
+            outcome = e.getMessage();
+            response.fail(status, outcome);
+        } catch (UploadTooLarge e) {
+            status = 413;
+            outcome = e.getMessage();
+            response.fail(status, outcome);
+        } catch (Exception e) {
+            status = 500;
+            outcome = "ERROR " + e;
+            response.fail(status, "Conversion failed: " + e.getMessage());
+        } finally {
+            exchange.close();
+            if (upload != null) {
+                try {
+                    Files.deleteIfExists(upload);
+                } catch (IOException ignored) {
+                    // temp dir is cleaned by the OS eventually
+                }
+            }
+        }
+        long end = System.nanoTime();
+        metrics.finished(end - start, status == 200);
+        out.printf(Locale.ROOT, "%d %s: %s, queued %d ms, total %d ms%n",
+                status, name, outcome, (start - received) / 1_000_000, (end - received) / 1_000_000);
+    }
+
+    private static void receive(HttpExchange exchange, Path upload) throws IOException {
+        byte[] buf = new byte[1 << 16];
+        long total = 0;
+        try (InputStream in = exchange.getRequestBody();
+             OutputStream file = Files.newOutputStream(upload)) {
+            for (int n; (n = in.read(buf)) > 0; ) {
+                total += n;
+                if (total > MAX_UPLOAD_BYTES) throw new UploadTooLarge();
+                file.write(buf, 0, n);
+            }
+        }
+        if (total == 0) throw new BadRequest("Empty request body; send the workbook as body");
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) params.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+        }
+        return params;
+    }
+
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Last path segment of {@code name}; .xlsx when missing. Only the extension picks the reader. */
+    private static String fileName(String name) {
+        if (name == null || name.trim().isEmpty()) return "upload.xlsx";
+        String base = name.trim().replaceFirst("^.*[/\\\\]", "");
+        String lower = base.toLowerCase(Locale.ROOT);
+        if (!lower.endsWith(".xlsx") && !CsvReader.isCsv(new File(lower)) && !AccessReader.isAccess(new File(lower))) {
+            throw new IllegalArgumentException("name must end in .xlsx, .csv, .tsv, .accdb or .mdb, got " + name);
+        }
+        return base;
+    }
+
+    private static String suffix(String name) {
+        return name.substring(name.lastIndexOf('.'));
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Response body that sends the 200 headers on its first write, so everything that fails
+     * before the archive starts can still be answered with an error status.
+     */
+    private static class ResponseStream extends FilterOutputStream {
+        private final HttpExchange exchange;
+        private boolean started;
+
+        ResponseStream(HttpExchange exchange) {
+            super(null);
+            this.exchange = exchange;
+        }
+
+        private void start() throws IOException {
+            if (started) return;
+            started = true;
+            exchange.sendResponseHeaders(200, 0); // chunked
+            out = exchange.getResponseBody();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            start();
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            start();
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (started) out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            start();
+            out.close();
+        }
+
+        /** Sends an error status if nothing was streamed yet; otherwise the response is just cut off. */
+        void fail(int status, String message) {
+            if (started) return;
+            started = true;
+            try {
+                exchange.getResponseHeaders().remove("Content-Disposition");
+                sendText(exchange, status, message);
+            } catch (IOException ignored) {
+                // client went away
+            }
+        }
+    }
+
+    private static class BadRequest extends IOException {
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    private static class UploadTooLarge extends IOException {
+        UploadTooLarge() {
+            super("Upload larger than " + (MAX_UPLOAD_BYTES >> 20) + " MB");
+        }
+    }
+}
@@ -1,17 +1,45 @@
 package org.app.ui;
 
+import org.app.generator.GenerationOptions;
 import org.app.generator.JsonGenerator;
-import org.app.model.ExcelDto;
-import org.app.reader.ExcelReader;
+import org.app.metrics.RunMetrics;
+import org.app.reader.ParallelReader;
+import org.app.reader.SheetSelection;
+import org.app.validation.RowValidator;
+import org.app.validation.ValidationReport;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.text.BadLocationException;
 import java.awt.*;
 import java.io.File;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 
 public class MainFrame extends JFrame {
+    /** How often queued log lines and progress are pushed to the widgets. */
+    private static final int REFRESH_MILLIS = 200;
+    /** Older lines are dropped so a 50k-declaration run does not bloat the text area. */
+    private static final int MAX_LOG_LINES = 5000;
+
     private final JTextArea logArea = new JTextArea();
+    private final JCheckBox streamingBox = new JCheckBox("Streaming read (low memory)");
+    private final JCheckBox allSheetsBox = new JCheckBox("Read all sheets");
+    private final JCheckBox incrementalBox = new JCheckBox("Only regenerate changed declarations");
+    private final JComboBox<GenerationOptions.Output> outputBox = new JComboBox<>(GenerationOptions.Output.values());
+    private final JButton browseBtn = new JButton("Browse Excel File");
+    private final JButton cancelBtn = new JButton("Cancel");
+    private final JProgressBar progress = new JProgressBar();
+
+    private final Queue<String> pendingLog = new ConcurrentLinkedQueue<>();
+    private final Timer refresh = new Timer(REFRESH_MILLIS, e -> refresh());
+    private ConversionWorker worker;
+    private boolean cancelling;
 
     public MainFrame() {
         super("Generare JSON din excel.");
@@ -21,40 +49,210 @@ public class MainFrame extends JFrame {
         logArea.setEditable(false);
         JScrollPane scroll = new JScrollPane(logArea);
 
-        JButton browseBtn = new JButton("Browse Excel File");
         browseBtn.addActionListener(e -> onBrowse());
+        cancelBtn.addActionListener(e -> onCancel());
+        cancelBtn.setEnabled(false);
+        progress.setStringPainted(true);
+        progress.setString("");
 
-        JPanel pnl = new JPanel(new GridLayout(1,1,10,10));
+        JPanel pnl = new JPanel(new GridLayout(5,1,10,10));
         pnl.add(browseBtn);
+        pnl.add(streamingBox);
+        pnl.add(allSheetsBox);
+        pnl.add(outputBox);
+        pnl.add(incrementalBox);
+
+        JPanel status = new JPanel(new BorderLayout(10, 0));
+        status.add(progress, BorderLayout.CENTER);
+        status.add(cancelBtn, BorderLayout.EAST);
 
         getContentPane().add(pnl, BorderLayout.NORTH);
         getContentPane().add(scroll, BorderLayout.CENTER);
+        getContentPane().add(status, BorderLayout.SOUTH);
     }
 
     private void onBrowse() {
         JFileChooser fc = new JFileChooser();
-        fc.setMultiSelectionEnabled(false);
+        fc.setMultiSelectionEnabled(true);
 
-        // Add this line to restrict selection to xlsx files
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("Excel Files (*.xlsx)", "xlsx");
+        FileNameExtensionFilter filter = new FileNameExtensionFilter("Manifests (*.xlsx, *.csv, *.tsv, *.accdb, *.mdb)",
+                "xlsx", "csv", "tsv", "accdb", "mdb");
         fc.setFileFilter(filter);
 
         if (fc.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
             return;
 
-        File file = fc.getSelectedFile();
+        List<File> files = Arrays.asList(fc.getSelectedFiles());
+        GenerationOptions options = new GenerationOptions();
+        options.setWorkers(Runtime.getRuntime().availableProcessors());
+        options.setOutput((GenerationOptions.Output) outputBox.getSelectedItem());
+        options.setIncremental(incrementalBox.isSelected());
+        options.setMetrics(new RunMetrics());
+
+        files.forEach(f -> log("Processing " + f));
+        SheetSelection sheets = allSheetsBox.isSelected() ? SheetSelection.ALL : SheetSelection.FIRST;
+        worker = new ConversionWorker(files, sheets, streamingBox.isSelected(), options);
+        setRunning(true);
+        worker.execute();
+    }
+
+    private void onCancel() {
+        if (worker != null) {
+            cancelling = true;
+            cancelBtn.setEnabled(false);
+            progress.setString("Cancelling...");
+            worker.cancelRun();
+        }
+    }
+
+    private void setRunning(boolean running) {
+        browseBtn.setEnabled(!running);
+        streamingBox.setEnabled(!running);
+        allSheetsBox.setEnabled(!running);
+        outputBox.setEnabled(!running);
+        incrementalBox.setEnabled(!running);
+        cancelBtn.setEnabled(running);
+        if (running) {
+            cancelling = false;
+            progress.setIndeterminate(true);
+            progress.setValue(0);
+            refresh.start();
+        } else {
+            refresh.stop();
+            refresh();
+            progress.setIndeterminate(false);
+        }
+    }
+
+    /** Timer tick on the EDT: one append for every line queued since the last tick, then progress. */
+    private void refresh() {
+        String line = pendingLog.poll();
+        if (line != null) {
+            StringBuilder sb = new StringBuilder();
+            for (; line != null; line = pendingLog.poll()) {
+                sb.append(line).append('\n');
+            }
+            logArea.append(sb.toString());
+            trimLog();
+        }
+        if (worker != null) worker.showProgress();
+    }
+
+    private void trimLog() {
+        int excess = logArea.getLineCount() - MAX_LOG_LINES;
+        if (excess <= 0) return;
         try {
-            log("Processing " + file);
-            List<ExcelDto> dtos = ExcelReader.read(file);
-            JsonGenerator.generate(dtos, file, this::log);
-            JOptionPane.showMessageDialog(this, "Success");
-        } catch (Exception ex) {
-            log("ERROR: " + ex.getMessage());
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            logArea.replaceRange("", 0, logArea.getLineEndOffset(excess - 1));
+        } catch (BadLocationException e) {
+            logArea.setText("");
         }
     }
 
+    /** Thread-safe; the line shows up with the next refresh. */
     private void log(String msg) {
-        SwingUtilities.invokeLater(() -> logArea.append(msg + "\n"));
+        pendingLog.add(msg);
+    }
+
+    /**
+     * Read, validate and generate off the EDT. Several files are read in parallel and
+     * generated as one run named after the first file ("<name>-merged"). Cancel interrupts
+     * the thread doing the work: the readers and JsonGenerator then stop with an
+     * InterruptedIOException and bundle outputs are discarded; per-file JSONs already in
+     * place stay.
+     */
+    private class ConversionWorker extends SwingWorker<ValidationReport, Void> {
+        private final List<File> files;
+        private final SheetSelection sheets;
+        private final boolean streaming;
+        private final GenerationOptions options;
+        private final RunMetrics metrics;
+        private Thread runner;
+        private Path reportFile;
+
+        ConversionWorker(List<File> files, SheetSelection sheets, boolean streaming, GenerationOptions options) {
+            this.files = files;
+            this.sheets = sheets;
+            this.streaming = streaming;
+            this.options = options;
+            this.metrics = options.getMetrics();
+        }
+
+        @Override
+        protected ValidationReport doInBackground() throws Exception {
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                File first = files.get(0);
+                Path dir = first.getAbsoluteFile().toPath().getParent();
+                String runName = files.size() == 1
+                        ? first.getName()
+                        : first.getName().replaceFirst("\\.[^.]+$", "") + "-merged";
+                ValidationReport report = RowValidator.validate(ParallelReader.read(files, sheets, streaming,
+                        options.getWorkers(), metrics, MainFrame.this::log), metrics);
+                reportFile = ValidationReport.reportFile(dir, runName);
+                report.save(reportFile);
+                report.getErrors().forEach(err -> log("REJECTED " + err));
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Cancelled");
+                JsonGenerator.generate(report.getAccepted(), dir, runName, options, MainFrame.this::log);
+                return report;
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    Thread.interrupted(); // do not leak a late cancel into the next pooled task
+                }
+            }
+        }
+
+        synchronized void cancelRun() {
+            if (runner != null) runner.interrupt();
+        }
+
+        /** Indeterminate while reading (total unknown), then declarations done out of planned. */
+        void showProgress() {
+            long planned = metrics.getDeclarationsPlanned();
+            String text;
+            if (planned == 0) {
+                text = "Read " + metrics.getRowsRead() + " rows";
+            } else {
+                long done = metrics.getDeclarationsWritten() + metrics.getDeclarationsUnchanged();
+                progress.setIndeterminate(false);
+                progress.setMaximum((int) Math.min(planned, Integer.MAX_VALUE));
+                progress.setValue((int) Math.min(done, Integer.MAX_VALUE));
+                text = done + " / " + planned + " declarations";
+            }
+            if (!cancelling) progress.setString(text);
+        }
+
+        @Override
+        protected void done() {
+            metrics.commitSummaryEvent();
+            try {
+                ValidationReport report = get();
+                log("Summary: " + metrics.toJson());
+                setRunning(false);
+                progress.setString("Done");
+                if (report.hasErrors()) {
+                    JOptionPane.showMessageDialog(MainFrame.this, report.getRejectedRows() + " rows were rejected, see " + reportFile,
+                            "Done with errors", JOptionPane.WARNING_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(MainFrame.this, "Success");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Throwable ex = e.getCause();
+                if (ex instanceof InterruptedIOException) {
+                    log("Cancelled. " + metrics.getDeclarationsWritten() + " JSONs were written before stopping.");
+                    setRunning(false);
+                    progress.setString("Cancelled");
+                    return;
+                }
+                log("ERROR: " + ex.getMessage());
+                setRunning(false);
+                progress.setString("Failed");
+                JOptionPane.showMessageDialog(MainFrame.this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
     }
 }
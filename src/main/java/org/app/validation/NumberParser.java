@@ -0,0 +1,163 @@
+package org.app.validation;
+
+/**
+ * Parses the numbers people type into manifest cells without throwing: "12.5", "12,5",
+ * "1 234,5", "1.234,50", "1,234.50" and plain Excel output such as "1.5E3".
+ * <p>
+ * When both '.' and ',' occur, the last one is the decimal separator and the other one
+ * groups thousands. A single separator is read as decimal ("12,5" is 12.5, as in the
+ * Romanian locale), a repeated one always groups ("1.234.567"). Spaces, including
+ * non-breaking ones, are ignored.
+ * <p>
+ * A single separator followed by exactly three digits, as in "1,234" or "1.234", may just as
+ * well group thousands; {@link #isAmbiguous} finds those so callers can refuse to guess.
+ */
+public final class NumberParser {
+    /** Digits that still fit a long mantissa and, below 2^53, convert to double exactly. */
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private NumberParser() {
+    }
+
+    /** The value of {@code s}, or NaN if it is empty or not a number. */
+    public static double parseDecimal(CharSequence s) {
+        if (s == null) return Double.NaN;
+        int len = s.length();
+
+        // First pass: find the decimal separator and where an exponent starts.
+        int dots = 0, commas = 0, lastDot = -1, lastComma = -1, exponent = len;
+        for (int i = 0; i < len; i++) {
+            char ch = s.charAt(i);
+            if (ch == '.') {
+                dots++;
+                lastDot = i;
+            } else if (ch == ',') {
+                commas++;
+                lastComma = i;
+            } else if (ch == 'e' || ch == 'E') {
+                exponent = i;
+                break;
+            }
+        }
+        int decimal;
+        if (dots > 0 && commas > 0) {
+            decimal = Math.max(lastDot, lastComma);
+            if ((decimal == lastDot ? dots : commas) > 1) return Double.NaN;
+        } else if (dots == 1) {
+            decimal = lastDot;
+        } else if (commas == 1) {
+            decimal = lastComma;
+        } else {
+            decimal = -1;
+        }
+
+        // Second pass: accumulate digits.
+        boolean negative = false, signSeen = false, digitSeen = false;
+        long mantissa = 0;
+        int digits = 0, fractionDigits = 0;
+        for (int i = 0; i < exponent; i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                digitSeen = true;
+                if (digits < 19) mantissa = mantissa * 10 + (ch - '0');
+                if (mantissa != 0 || digits > 0) digits++;
+                if (decimal >= 0 && i > decimal) fractionDigits++;
+            } else if (ch == '.' || ch == ',') {
+                if (i != decimal && (decimal >= 0 && i > decimal)) return Double.NaN;
+            } else if (ch == '-' || ch == '+') {
+                if (signSeen || digitSeen) return Double.NaN;
+                signSeen = true;
+                negative = ch == '-';
+            } else if (!isSpace(ch)) {
+                return Double.NaN;
+            }
+        }
+        if (!digitSeen) return Double.NaN;
+
+        int exp = 0;
+        if (exponent < len) {
+            exp = parseExponent(s, exponent + 1, len);
+            if (exp == Integer.MIN_VALUE) return Double.NaN;
+        }
+
+        if (digits <= MAX_FAST_DIGITS && exp == 0 && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        return slowPath(s, exponent, decimal, exp);
+    }
+
+    /**
+     * True if {@code s} has one separator, exactly three digits after it and one to three
+     * before it, the first not a 0: "1,234" and "100.500" could be read either way, "0.125",
+     * "1234,5" and "1.234,5" cannot.
+     */
+    public static boolean isAmbiguous(CharSequence s) {
+        if (s == null) return false;
+        int separator = -1;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '.' || ch == ',') {
+                if (separator >= 0) return false;
+                separator = i;
+            } else if (ch == 'e' || ch == 'E') {
+                return false;
+            }
+        }
+        if (separator < 0) return false;
+        int before = 0, after = 0;
+        char first = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') continue;
+            if (i > separator) {
+                after++;
+            } else if (before++ == 0) {
+                first = ch;
+            }
+        }
+        return after == 3 && before >= 1 && before <= 3 && first != '0';
+    }
+
+    private static boolean isSpace(char ch) {
+        return ch == ' ' || ch == '\u00A0' || ch == '\u202F' || ch == '\t';
+    }
+
+    /** Integer after 'E' (optional sign), or Integer.MIN_VALUE if malformed. */
+    private static int parseExponent(CharSequence s, int from, int to) {
+        boolean negative = false;
+        if (from < to && (s.charAt(from) == '-' || s.charAt(from) == '+')) {
+            negative = s.charAt(from) == '-';
+            from++;
+        }
+        if (from >= to) return Integer.MIN_VALUE;
+        int exp = 0;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') return Integer.MIN_VALUE;
+            if (exp < 10_000) exp = exp * 10 + (ch - '0');
+        }
+        return negative ? -exp : exp;
+    }
+
+    /**
+     * Long mantissas and exponents: rebuild a canonical string and let the JDK round it.
+     * The input is already validated, so Double.parseDouble cannot throw here.
+     */
+    private static double slowPath(CharSequence s, int exponent, int decimal, int exp) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < exponent; i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9' || ch == '-') {
+                sb.append(ch);
+            } else if (i == decimal) {
+                sb.append('.');
+            }
+        }
+        if (exp != 0) sb.append('E').append(exp);
+        return Double.parseDouble(sb.toString());
+    }
+}
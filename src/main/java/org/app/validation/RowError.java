@@ -0,0 +1,21 @@
+package org.app.validation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Why one manifest row was rejected. {@code row} is the 1-based row number in {@code sheet}. */
+@Getter
+@AllArgsConstructor
+public class RowError {
+    private final String sheet;
+    private final int row;
+    private final String trackingNr;
+    private final String column;
+    private final String value;
+    private final String reason;
+
+    @Override
+    public String toString() {
+        return (sheet != null ? sheet + " " : "") + "Row " + row + " (" + trackingNr + "): " + column + " '" + value + "' " + reason;
+    }
+}
@@ -0,0 +1,139 @@
+package org.app.validation;
+
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.app.model.RowStore;
+import org.app.reference.Countries;
+import org.app.reference.Country;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stage between the readers and {@link org.app.generator.JsonGenerator}: parses the numeric
+ * columns once into {@link ExcelDto#getGrossMass()} / {@link ExcelDto#getPackages()} and
+ * rejects rows that would otherwise end up in a declaration with a zero mass or package count,
+ * or with an importer country that has no place of delivery in {@link Countries}. A known
+ * country is stored as its upper-case code with that code's routing, whatever case the sheet
+ * used, so the declaration and the schema check see "FR" for "fr".
+ * <p>
+ * Accepted rows go into the report's {@link RowStore}. Used as a {@code Consumer<ExcelDto>}
+ * behind a streaming reader, rows are validated as they are read and no list of ExcelDtos is
+ * ever built.
+ */
+public class RowValidator implements Consumer<ExcelDto> {
+    private static final String AMBIGUOUS = "is ambiguous: a thousands separator or a decimal point?";
+    private final RunMetrics metrics;
+    private final ValidationReport report;
+
+    public RowValidator(RunMetrics metrics) {
+        this(metrics, new ValidationReport(new RowStore()));
+    }
+
+    private RowValidator(RunMetrics metrics, ValidationReport report) {
+        this.metrics = metrics;
+        this.report = report;
+    }
+
+    public static ValidationReport validate(List<ExcelDto> rows) {
+        return validate(rows, new RunMetrics());
+    }
+
+    public static ValidationReport validate(List<ExcelDto> rows, RunMetrics metrics) {
+        long start = System.nanoTime();
+        RowValidator validator = new RowValidator(metrics, new ValidationReport(new RowStore(rows.size())));
+        for (ExcelDto row : rows) {
+            validator.offer(row);
+        }
+        metrics.addTime(RunMetrics.Phase.VALIDATE, System.nanoTime() - start);
+        return validator.report;
+    }
+
+    @Override
+    public void accept(ExcelDto row) {
+        long start = System.nanoTime();
+        offer(row);
+        metrics.addTime(RunMetrics.Phase.VALIDATE, System.nanoTime() - start);
+    }
+
+    /** The rows seen so far; complete once the reader feeding this validator has returned. */
+    public ValidationReport getReport() {
+        return report;
+    }
+
+    private void offer(ExcelDto row) {
+        List<RowError> errors = check(row);
+        if (errors.isEmpty()) {
+            report.accept(row);
+        } else {
+            report.reject(errors);
+            metrics.rowRejected();
+        }
+    }
+
+    /** Fills the primitive columns of {@code row} and returns what is wrong with it, if anything. */
+    static List<RowError> check(ExcelDto row) {
+        List<RowError> errors = Collections.emptyList();
+
+        if (isBlank(row.getTrackingNr())) {
+            errors = add(errors, row, "Tracking Nr", row.getTrackingNr(), "is empty");
+        }
+
+        Country country = Countries.get(row.getImporterCountry());
+        if (isBlank(row.getImporterCountry())) {
+            errors = add(errors, row, "Importer Country", row.getImporterCountry(), "is empty");
+        } else if (country == null) {
+            errors = add(errors, row, "Importer Country", row.getImporterCountry(), "is not a known ISO country code");
+        } else if (!country.getIso2().equals(row.getImporterCountry())) {
+            row.setImporterCountry(country.getIso2());
+            row.setCountriesOfRoutingOfConsignment(country.getRouting());
+        }
+
+        // mass and package count the reader took from a numeric cell need no parsing
+        if (row.getGrossMass() <= 0) {
+            double weight = NumberParser.parseDecimal(row.getWeight());
+            if (isBlank(row.getWeight())) {
+                errors = add(errors, row, "Weight", row.getWeight(), "is empty");
+            } else if (NumberParser.isAmbiguous(row.getWeight())) {
+                errors = add(errors, row, "Weight", row.getWeight(), AMBIGUOUS);
+            } else if (Double.isNaN(weight)) {
+                errors = add(errors, row, "Weight", row.getWeight(), "is not a number");
+            } else if (!(weight > 0) || Double.isInfinite(weight)) {
+                errors = add(errors, row, "Weight", row.getWeight(), "must be greater than 0");
+            } else {
+                row.setGrossMass(weight);
+            }
+        }
+
+        if (row.getPackages() <= 0) {
+            double packages = NumberParser.parseDecimal(row.getNrOfPackages());
+            if (isBlank(row.getNrOfPackages())) {
+                errors = add(errors, row, "Nr Of Packages", row.getNrOfPackages(), "is empty");
+            } else if (NumberParser.isAmbiguous(row.getNrOfPackages())) {
+                errors = add(errors, row, "Nr Of Packages", row.getNrOfPackages(), AMBIGUOUS);
+            } else if (Double.isNaN(packages)) {
+                errors = add(errors, row, "Nr Of Packages", row.getNrOfPackages(), "is not a number");
+            } else if (packages != Math.rint(packages)) {
+                errors = add(errors, row, "Nr Of Packages", row.getNrOfPackages(), "is not a whole number");
+            } else if (packages < 1 || packages > Integer.MAX_VALUE) {
+                errors = add(errors, row, "Nr Of Packages", row.getNrOfPackages(), "must be between 1 and " + Integer.MAX_VALUE);
+            } else {
+                row.setPackages((int) packages);
+            }
+        }
+        return errors;
+    }
+
+    /** Valid rows allocate nothing; the list is only created for the first error. */
+    private static List<RowError> add(List<RowError> errors, ExcelDto row, String column, String value, String reason) {
+        if (errors.isEmpty()) errors = new ArrayList<>(2);
+        errors.add(new RowError(row.getSheet(), row.getRowNum(), row.getTrackingNr(), column, value, reason));
+        return errors;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
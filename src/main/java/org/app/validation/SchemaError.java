@@ -0,0 +1,19 @@
+package org.app.validation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Where a generated declaration breaks the schema. {@code path} is a JSON pointer into the file. */
+@Getter
+@AllArgsConstructor
+public class SchemaError {
+    private final String file;
+    private final String path;
+    private final String value;
+    private final String reason;
+
+    @Override
+    public String toString() {
+        return file + " " + path + (value != null ? " '" + value + "'" : "") + " " + reason;
+    }
+}
@@ -0,0 +1,69 @@
+package org.app.validation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schema check outcome of one generation run: how many declarations were checked and
+ * what was wrong with the ones that failed. Filled from any number of threads.
+ */
+public class SchemaReport {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AtomicInteger checked = new AtomicInteger();
+    private final AtomicInteger invalid = new AtomicInteger();
+    private final List<SchemaError> errors = new ArrayList<>();
+
+    /** Counts one checked declaration; {@code declarationErrors} is empty if it passed. */
+    public void add(List<SchemaError> declarationErrors) {
+        checked.incrementAndGet();
+        if (declarationErrors.isEmpty()) return;
+        invalid.incrementAndGet();
+        synchronized (errors) {
+            errors.addAll(declarationErrors);
+        }
+    }
+
+    public int getChecked() {
+        return checked.get();
+    }
+
+    public int getInvalid() {
+        return invalid.get();
+    }
+
+    public List<SchemaError> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    /** {@code <run>.schema-errors.json} in {@code outputDir}. */
+    public static Path reportFile(Path outputDir, String runName) {
+        return outputDir.resolve(runName.replaceFirst("\\.[^.]+$", "") + ".schema-errors.json");
+    }
+
+    /**
+     * Writes the report if any declaration failed, otherwise removes a report left by an
+     * earlier run so it cannot be mistaken for the current one.
+     */
+    public void save(Path file) throws IOException {
+        if (getInvalid() == 0) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("checked", getChecked());
+        m.put("invalid", getInvalid());
+        m.put("errors", getErrors());
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), m);
+    }
+}
@@ -0,0 +1,87 @@
+package org.app.validation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.app.model.ExcelDto;
+import org.app.model.RowStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Outcome of {@link RowValidator}: the rows safe to generate from and the rejected ones. */
+@Getter
+public class ValidationReport {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The accepted rows. Generating as a pipeline may drop rows that are already in a
+     * declaration to stay within its memory budget; {@link #acceptedRows} counts them all.
+     */
+    private final RowStore accepted;
+    private final List<RowError> errors = new ArrayList<>();
+    private int acceptedRows;
+    private int rejectedRows;
+
+    ValidationReport(RowStore accepted) {
+        this.accepted = accepted;
+    }
+
+    void accept(ExcelDto row) {
+        accepted.add(row);
+        acceptedRows++;
+    }
+
+    void reject(List<RowError> rowErrors) {
+        errors.addAll(rowErrors);
+        rejectedRows++;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /** {@code <workbook>.errors.json} in {@code outputDir}. */
+    public static Path reportFile(Path outputDir, File workbook) {
+        return reportFile(outputDir, workbook.getName());
+    }
+
+    public static Path reportFile(Path outputDir, String runName) {
+        return outputDir.resolve(runName.replaceFirst("\\.[^.]+$", "") + ".errors.json");
+    }
+
+    /**
+     * Writes the report if rows were rejected, otherwise removes a report left by an
+     * earlier run so it cannot be mistaken for the current one.
+     */
+    public void save(Path file) throws IOException {
+        if (hasErrors()) {
+            write(file);
+        } else {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** Writes {"accepted": n, "rejected": m, "errors": [...]} to {@code file}. */
+    public void write(Path file) throws IOException {
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), content());
+    }
+
+    /** The same document as {@link #write}, as UTF-8 bytes. */
+    public byte[] toJson() throws IOException {
+        return MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(content());
+    }
+
+    private Map<String, Object> content() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("accepted", acceptedRows);
+        m.put("rejected", rejectedRows);
+        m.put("errors", errors);
+        return m;
+    }
+}
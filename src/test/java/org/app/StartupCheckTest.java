@@ -0,0 +1,80 @@
+package org.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the start-up workload of the -Pstartup build in a JVM that only has what the startup
+ * jar keeps: the test class path without the artifacts that profile excludes.
+ */
+class StartupCheckTest {
+    private static final Pattern EXCLUDE = Pattern.compile("<exclude>([^<:]+):([^<]+)</exclude>");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void convertsTheSampleWithoutTheExcludedLibraries() throws Exception {
+        List<String> excluded = excludedArtifacts();
+        assertTrue(excluded.contains("/org/hsqldb/"), excluded.toString());
+        String classPath = Arrays.stream(testClassPath().split(File.pathSeparator))
+                .filter(entry -> {
+                    String path = entry.replace(File.separatorChar, '/');
+                    return !path.contains("test-classes") && excluded.stream().noneMatch(path::contains);
+                })
+                .collect(Collectors.joining(File.pathSeparator));
+        Path workbook = dir.resolve("sample.xlsx");
+        Path log = dir.resolve("startup.log");
+
+        Process p = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Djava.awt.headless=true", "-cp", classPath, StartupCheck.class.getName(),
+                "--workbook", workbook.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        assertTrue(p.waitFor(2, TimeUnit.MINUTES), "StartupCheck did not finish");
+        String output = new String(Files.readAllBytes(log), StandardCharsets.UTF_8);
+
+        assertEquals(0, p.exitValue(), output);
+        assertTrue(output.contains("STARTUP window n/a (headless), first conversion"), output);
+        assertFalse(output.contains("NoClassDefFoundError"), output);
+        assertTrue(Files.exists(workbook));
+    }
+
+    /** Path fragments of the artifacts the startup profile leaves out, e.g. "/org/hsqldb/". */
+    private static List<String> excludedArtifacts() throws IOException {
+        String pom = new String(Files.readAllBytes(Paths.get("pom.xml")), StandardCharsets.UTF_8);
+        int profile = pom.indexOf("<id>startup</id>");
+        String artifactSet = pom.substring(pom.indexOf("<artifactSet>", profile), pom.indexOf("</artifactSet>", profile));
+        List<String> excluded = new ArrayList<>();
+        Matcher m = EXCLUDE.matcher(artifactSet);
+        while (m.find()) {
+            String group = "/" + m.group(1).replace('.', '/') + "/";
+            excluded.add("*".equals(m.group(2)) ? group : group + m.group(2) + "/");
+        }
+        return excluded;
+    }
+
+    /** Surefire runs tests from a manifest-only jar and passes the real class path separately. */
+    private static String testClassPath() {
+        return System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+    }
+}
@@ -0,0 +1,118 @@
+package org.app.cli;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchCliTest {
+
+    @TempDir
+    Path dir;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final BatchCli cli = new BatchCli(new PrintStream(output, true));
+
+    @Test
+    void wrongCombinationsAreUsageErrors() {
+        assertUsageError("No input files", new String[0]);
+        assertUsageError("Unknown option --bogus", "--bogus", "a.xlsx");
+        assertUsageError("--out needs a value", "a.xlsx", "--out");
+        assertUsageError("--threads must be a positive number", "--threads", "0", "a.xlsx");
+        assertUsageError("--incremental cannot be combined with --bundle", "--incremental", "--bundle", "zip", "a.xlsx");
+        assertUsageError("--watch takes no FILE|DIR", "--watch", "in", "a.xlsx");
+        assertUsageError("--serve cannot be combined", "--serve", "8080", "--merge", "all");
+        assertUsageError("--serve needs a port", "--serve", "70000");
+        assertUsageError("--bundle must be zip or ndjson", "--bundle", "tar", "a.xlsx");
+        assertUsageError("needs --duplicates flag", "--submitted", "idx", "--incremental", "a.xlsx");
+    }
+
+    @Test
+    void helpListsEveryOption() {
+        cli.parse(new String[]{"a.xlsx", "--help"});
+        String help = BatchCli.help();
+        for (String option : new String[]{"--out", "--threads", "--streaming", "--envelope", "--bundle", "--sheets",
+                "--merge", "--metrics", "--incremental", "--compact", "--fsync", "--write-queue", "--group-memory",
+                "--submitted", "--duplicates", "--no-schema-check", "--verbose",
+                "--watch", "--settle", "--serve", "--bind", "--queue"}) {
+            assertTrue(help.contains("\n  " + option + " "), option);
+        }
+    }
+
+    @Test
+    void convertsEveryFileOfADirectory() throws IOException {
+        Path in = Files.createDirectory(dir.resolve("in"));
+        workbook(in.resolve("a.xlsx"), "A1");
+        workbook(in.resolve("b.xlsx"), "B1");
+        Files.write(in.resolve("notes.txt"), new byte[]{1});
+        Path out = dir.resolve("out");
+
+        cli.parse(new String[]{"--threads", "4", "--out", out.toString(), in.toString()});
+        assertEquals(BatchCli.EXIT_OK, cli.execute(), output.toString());
+        assertEquals(2, cli.workers, "spare threads go to generation");
+        assertTrue(Files.exists(out.resolve("A1.json")));
+        assertTrue(Files.exists(out.resolve("B1.json")));
+        assertTrue(output.toString().contains("METRICS {"));
+    }
+
+    @Test
+    void rejectedRowsExitWithOne() throws IOException {
+        Path book = workbook(dir.resolve("a.xlsx"), "A1", "x");
+        cli.parse(new String[]{"--out", dir.resolve("out").toString(), book.toString()});
+        assertEquals(BatchCli.EXIT_FAILED, cli.execute());
+        assertTrue(Files.exists(dir.resolve("out/a.errors.json")), output.toString());
+    }
+
+    @Test
+    void anUnreadableWorkbookExitsWithOne() throws IOException {
+        Path broken = Files.write(dir.resolve("broken.xlsx"), new byte[]{1, 2, 3});
+        workbook(dir.resolve("good.xlsx"), "G1");
+        cli.parse(new String[]{broken.toString(), dir.resolve("good.xlsx").toString()});
+        assertEquals(BatchCli.EXIT_FAILED, cli.execute());
+        assertTrue(output.toString().contains("FAILED " + broken), output.toString());
+        assertTrue(Files.exists(dir.resolve("G1.json")), "the other workbook is still converted");
+    }
+
+    @Test
+    void aMissingInputExitsWithOne() {
+        cli.parse(new String[]{dir.resolve("missing.xlsx").toString()});
+        assertEquals(BatchCli.EXIT_FAILED, cli.execute());
+    }
+
+    private static Path workbook(Path file, String trackingNr) throws IOException {
+        return workbook(file, trackingNr, "1.5");
+    }
+
+    /** One row in the fixed column order A = tracking number ... N = master document. */
+    private static Path workbook(Path file, String trackingNr, String weight) throws IOException {
+        String[] row = {trackingNr, "S", "Str 1", "Chisinau", "FR", "I", "Rue 1", "Paris", "75001", "1", weight,
+                "620342", "Shoes", "M1"};
+        try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream os = Files.newOutputStream(file)) {
+            Sheet sheet = wb.createSheet("Manifest");
+            sheet.createRow(0).createCell(0).setCellValue("Tracking Nr");
+            Row r = sheet.createRow(1);
+            for (int c = 0; c < row.length; c++) {
+                r.createCell(c).setCellValue(row[c]);
+            }
+            wb.write(os);
+        }
+        return file;
+    }
+
+    private void assertUsageError(String message, String... args) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new BatchCli(System.out).parse(args));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+}
@@ -0,0 +1,85 @@
+package org.app.cli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WatchDaemonTest {
+    private static final String CSV = "Tracking Nr,Weight,Shipper Name,Shipper Address,Shipper City,Importer Name,"
+            + "Importer Address,Importer City,Importer Post Code,Importer Country,Nr Of Packages,HS Code,"
+            + "Master Document,Description Of Goods\n"
+            + "A1,1.5,S,Str 1,Chisinau,I,Rue 1,Paris,75001,FR,1,620342,M1,Shoes\n";
+
+    @TempDir
+    Path dir;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private Thread daemon;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        // an interrupt ends the watch loop like a shutdown does
+        daemon.interrupt();
+        daemon.join(10_000);
+        assertFalse(daemon.isAlive());
+    }
+
+    @Test
+    void convertedFilesGoToDoneAndUnreadableOnesToFailed() throws Exception {
+        Path inbox = start();
+        Files.write(inbox.resolve("a.csv"), CSV.getBytes(StandardCharsets.UTF_8));
+        Files.write(inbox.resolve("broken.xlsx"), "not a workbook".getBytes(StandardCharsets.UTF_8));
+
+        await(() -> Files.exists(inbox.resolve("done/a.csv")) && Files.exists(inbox.resolve("failed/broken.xlsx")));
+        assertTrue(Files.exists(inbox.resolve("out/A1.json")));
+        assertFalse(Files.exists(inbox.resolve("a.csv")));
+    }
+
+    @Test
+    void aFailedMoveIsRetriedWithoutConvertingAgain() throws Exception {
+        Path inbox = start();
+        Path done = inbox.resolve("done");
+        Files.delete(done);
+        Files.createFile(done);
+        Files.write(inbox.resolve("a.csv"), CSV.getBytes(StandardCharsets.UTF_8));
+
+        await(() -> log().contains("cannot move"));
+        Files.delete(done);
+        Files.createDirectory(done);
+
+        await(() -> Files.exists(done.resolve("a.csv")));
+        assertEquals(1, log().split("\nOK ", -1).length - 1, log());
+    }
+
+    private Path start() throws Exception {
+        Path inbox = Files.createDirectory(dir.resolve("inbox"));
+        BatchCli cli = new BatchCli(new PrintStream(output, true));
+        cli.parse(new String[]{"--watch", inbox.toString(), "--settle", "50"});
+        daemon = new Thread(cli::execute, "watch-test");
+        daemon.start();
+        await(() -> log().contains("Watching"));
+        return inbox;
+    }
+
+    private String log() {
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(condition.getAsBoolean(), log());
+    }
+}
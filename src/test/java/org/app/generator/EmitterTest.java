@@ -0,0 +1,93 @@
+package org.app.generator;
+
+import org.app.model.ExcelDto;
+import org.app.model.TestRows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Every emitter has to write the bytes of the reference tree. */
+class EmitterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyEmitterWritesTheSameBytesAsTheTree() throws IOException {
+        assertSameOutput(false);
+    }
+
+    @Test
+    void compactEmittersWriteTheSameBytesAsTheTree() throws IOException {
+        assertSameOutput(true);
+    }
+
+    @Test
+    void templateFollowsTheEnvelope() throws IOException {
+        Path overrides = dir.resolve("envelope.properties");
+        Files.write(overrides, "representative.name=Other \"Agent\"\n".getBytes(StandardCharsets.UTF_8));
+        Envelope envelope = Envelope.load(overrides);
+
+        Map<String, String> tree = generate(GenerationOptions.Emitter.TREE, false, envelope);
+        Map<String, String> template = generate(GenerationOptions.Emitter.TEMPLATE, false, envelope);
+        assertEquals(tree, template);
+        assertTrue(template.values().iterator().next().contains("Other \\\"Agent\\\""));
+        // a template compiled for the default envelope is not reused for this one
+        assertNotEquals(generate(GenerationOptions.Emitter.TEMPLATE, false, Envelope.defaults()), template);
+    }
+
+    private void assertSameOutput(boolean compact) throws IOException {
+        Map<String, String> tree = generate(GenerationOptions.Emitter.TREE, compact, Envelope.defaults());
+        assertFalse(tree.isEmpty());
+        for (GenerationOptions.Emitter emitter : GenerationOptions.Emitter.values()) {
+            assertEquals(tree, generate(emitter, compact, Envelope.defaults()), emitter.toString());
+        }
+    }
+
+    /** Rows whose values need escaping, a null field and a routing other than the default. */
+    private static List<ExcelDto> rows() {
+        List<ExcelDto> rows = new ArrayList<>();
+        rows.add(TestRows.row("T1", "Shipper \"Quoted\"", "Importer \\ 1", "1,5", "1"));
+        rows.add(TestRows.row("T2", "Shipper \"Quoted\"", "Importer \\ 1", "2.25", "2"));
+        rows.add(TestRows.row("T3", "Shipper \"Quoted\"", "Importer \\ 1", "3", "1"));
+        rows.add(TestRows.row("T4", "Shipper \"Quoted\"", "Importer \\ 1", "0.5", "1"));
+        ExcelDto odd = TestRows.row("T5", "Șipper ăîâ\t€", "Importer\u0001", "DE", "10", "3");
+        odd.setDescriptionOfGoods(null);
+        rows.add(odd);
+        return rows;
+    }
+
+    private Map<String, String> generate(GenerationOptions.Emitter emitter, boolean compact, Envelope envelope)
+            throws IOException {
+        Path out = Files.createTempDirectory(dir, emitter + (compact ? "-compact" : ""));
+        GenerationOptions options = new GenerationOptions();
+        options.setEmitter(emitter);
+        options.setCompact(compact);
+        options.setEnvelope(envelope);
+        JsonGenerator.generate(rows(), out.resolve("book.xlsx").toFile(), options, msg -> { });
+
+        Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> list = Files.list(out)) {
+            for (Path f : (Iterable<Path>) list::iterator) {
+                String json = new String(Files.readAllBytes(f), StandardCharsets.UTF_8);
+                // the issue date is the time the declaration was built
+                files.put(f.getFileName().toString(), json.replaceAll("\"\\d{4}-\\d\\d-\\d\\dT[0-9:.]+Z\"", "\"DATE\""));
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,94 @@
+package org.app.generator;
+
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.app.model.TestRows;
+import org.app.reader.RowSource;
+import org.app.validation.RowValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupSpillTest {
+    /** Groups whose rows are spread over the whole file, so they all wait until its end. */
+    private static final int GROUPS = 10_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void spilledGroupingWritesTheSameDeclarations() throws IOException {
+        RunMetrics inMemory = new RunMetrics();
+        List<String> expected = generate("memory", 0, inMemory);
+        assertEquals(0, inMemory.getRowsSpilled());
+
+        int tempDirs = spillDirs();
+        RunMetrics spilled = new RunMetrics();
+        List<String> actual = generate("spilled", 1 << 20, spilled);
+        assertTrue(spilled.getRowsSpilled() > 0, "nothing was spilled");
+        assertEquals(tempDirs, spillDirs(), "temporary files left behind");
+
+        assertEquals(inMemory.getDeclarationsWritten(), spilled.getDeclarationsWritten());
+        assertEquals(expected, actual);
+    }
+
+    /** Group g has g % 5 + 1 rows, one every GROUPS rows; every 97th row is rejected. */
+    private static RowSource rows() {
+        return consumer -> {
+            int n = 0;
+            for (int round = 0; round < 5; round++) {
+                for (int g = 0; g < GROUPS; g++) {
+                    if (round > g % 5) continue;
+                    n++;
+                    ExcelDto row = TestRows.row("T" + g + "-" + round, "Shipper " + g, "Importer " + g % 100,
+                            n % 97 == 0 ? "" : round + 1 + ",5", "1");
+                    row.setRowNum(n + 1);
+                    consumer.accept(row);
+                }
+            }
+        };
+    }
+
+    /** The declarations as NDJSON lines, sorted, with the issue date masked. */
+    private List<String> generate(String name, long groupMemory, RunMetrics metrics) throws IOException {
+        Path out = Files.createDirectory(dir.resolve(name));
+        GenerationOptions options = new GenerationOptions();
+        options.setOutputDir(out);
+        options.setOutput(GenerationOptions.Output.NDJSON);
+        options.setGroupMemory(groupMemory);
+        options.setSchemaCheck(false);
+        options.setMetrics(metrics);
+        JsonGenerator.generate(rows(), new RowValidator(metrics), new File("book.csv"), options, msg -> { });
+
+        List<String> lines = new ArrayList<>();
+        try (Stream<Path> files = Files.list(out)) {
+            for (Path f : files.filter(p -> p.toString().endsWith(".ndjson")).collect(Collectors.toList())) {
+                for (String line : Files.readAllLines(f, StandardCharsets.UTF_8)) {
+                    lines.add(line.replaceAll("\"\\d{4}-\\d\\d-\\d\\dT[0-9:.]+Z\"", "\"DATE\""));
+                }
+            }
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    private static int spillDirs() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return (int) files.filter(p -> p.getFileName().toString().startsWith("declaration-groups")).count();
+        }
+    }
+}
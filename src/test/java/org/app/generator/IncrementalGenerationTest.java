@@ -0,0 +1,84 @@
+package org.app.generator;
+
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.app.model.TestRows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalGenerationTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void onlyChangedDeclarationsAreRebuilt() throws IOException {
+        RunMetrics first = generate(rows("1"));
+        assertEquals(2, first.getDeclarationsWritten());
+
+        RunMetrics same = generate(rows("1"));
+        assertEquals(0, same.getDeclarationsWritten());
+        assertEquals(2, same.getDeclarationsUnchanged());
+
+        RunMetrics changed = generate(rows("2"));
+        assertEquals(1, changed.getDeclarationsWritten());
+        assertEquals(1, changed.getDeclarationsUnchanged());
+    }
+
+    @Test
+    void outputsOfChunksThatDisappearedAreDeleted() throws IOException {
+        generate(rows("1"));
+        assertTrue(Files.exists(dir.resolve("B1.json")));
+
+        List<ExcelDto> fewer = rows("1");
+        fewer.remove(3);
+        generate(fewer);
+        assertFalse(Files.exists(dir.resolve("B1.json")));
+        assertTrue(Files.exists(dir.resolve("A1 A2 A3.json")));
+    }
+
+    @Test
+    void anotherEnvelopeRebuildsEverything() throws IOException {
+        generate(rows("1"));
+        GenerationOptions options = options();
+        Path overrides = Files.write(dir.resolve("envelope.properties"),
+                "carrier.identificationNumber=RO99999999\n".getBytes(StandardCharsets.ISO_8859_1));
+        options.setEnvelope(Envelope.load(overrides));
+        JsonGenerator.generate(rows("1"), dir.resolve("book.xlsx").toFile(), options, msg -> { });
+        assertEquals(2, options.getMetrics().getDeclarationsWritten());
+    }
+
+    /** Shipper A with a full chunk of three, shipper B with one row; {@code weight} of A3. */
+    private static List<ExcelDto> rows(String weight) {
+        return new ArrayList<>(Arrays.asList(
+                TestRows.row("A1", "A", "I", "1", "1"),
+                TestRows.row("A2", "A", "I", "1", "1"),
+                TestRows.row("A3", "A", "I", weight, "1"),
+                TestRows.row("B1", "B", "I", "1", "1")));
+    }
+
+    private RunMetrics generate(List<ExcelDto> rows) throws IOException {
+        GenerationOptions options = options();
+        JsonGenerator.generate(rows, dir.resolve("book.xlsx").toFile(), options, msg -> { });
+        return options.getMetrics();
+    }
+
+    private static GenerationOptions options() {
+        GenerationOptions options = new GenerationOptions();
+        options.setIncremental(true);
+        options.setMetrics(new RunMetrics());
+        return options;
+    }
+}
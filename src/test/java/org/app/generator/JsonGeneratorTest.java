@@ -0,0 +1,171 @@
+package org.app.generator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.app.model.TestRows;
+import org.app.validation.RowValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void listOverloadValidatesRowsBeforeSummingThem() throws IOException {
+        List<String> log = new ArrayList<>();
+        int written = JsonGenerator.generate(Arrays.asList(
+                TestRows.row("T1", "S", "I", "1,5", "1"),
+                TestRows.row("T2", "S", "I", "2.25", "2"),
+                TestRows.row("T3", "S", "I", "x", "1")), dir.resolve("book.xlsx").toFile(), new GenerationOptions(), log::add);
+
+        assertEquals(1, written);
+        JsonNode house = new ObjectMapper().readTree(dir.resolve("T1 T2.json").toFile())
+                .at("/data/consignmentMasterLevel/consignmentHouseLevel/0");
+        assertEquals(3.75, house.get("totalGrossMass").asDouble());
+        assertTrue(log.stream().anyMatch(m -> m.startsWith("REJECTED") && m.contains("(T3)")), log.toString());
+        assertFalse(Files.exists(dir.resolve("T3.json")));
+    }
+
+    @Test
+    void workersWriteTheSameFilesAsOneThread() throws IOException {
+        // 30 shipper/importer pairs of 10 rows: 4 declarations each
+        List<ExcelDto> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rows.add(TestRows.row("P" + i, "Shipper " + i % 10, "Importer " + i % 3, "1.5", "1"));
+        }
+        Map<String, String> sequential = files(generate("sequential", rows, 1));
+        assertEquals(120, sequential.size());
+        assertEquals(sequential, files(generate("parallel", rows, 4)));
+    }
+
+    @Test
+    void bundlesHoldTheSameDeclarationsAsFiles() throws IOException {
+        Map<String, String> files = files(generate("files", GenerationOptions.Output.FILES));
+
+        Path zip = generate("zip", GenerationOptions.Output.ZIP);
+        Map<String, String> entries = new TreeMap<>();
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip.resolve("book.zip")))) {
+            for (ZipEntry e; (e = in.getNextEntry()) != null; ) {
+                entries.put(e.getName(), masked(new String(readAll(in), StandardCharsets.UTF_8)));
+            }
+        }
+        assertEquals(files, entries);
+
+        Path ndjson = generate("ndjson", GenerationOptions.Output.NDJSON);
+        List<String> lines = Files.readAllLines(ndjson.resolve("book.ndjson"), StandardCharsets.UTF_8);
+        assertEquals(files.size(), lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        for (String line : lines) {
+            JsonNode declaration = mapper.readTree(masked(line));
+            assertTrue(files.values().stream().anyMatch(f -> json(mapper, f).equals(declaration)), line);
+        }
+    }
+
+    private Path generate(String name, List<ExcelDto> rows, int workers) throws IOException {
+        Path out = Files.createDirectory(dir.resolve(name));
+        GenerationOptions options = new GenerationOptions();
+        options.setWorkers(workers);
+        JsonGenerator.generate(rows, out.resolve("book.xlsx").toFile(), options, msg -> { });
+        return out;
+    }
+
+    @Test
+    void fileNamesStayInsideTheOutput() {
+        assertEquals("T1 T2-3_a.json", JsonGenerator.safeFileName("T1 T2-3_a.json"));
+        assertEquals("_._x.json", JsonGenerator.safeFileName("../x.json"));
+        assertEquals("a_b_c_.json", JsonGenerator.safeFileName("a/b\\c:.json"));
+        assertEquals("_book.manifest.json", JsonGenerator.safeFileName(".book.manifest.json"));
+    }
+
+    @Test
+    void pipelineWritesTheSameFilesAsTheList() throws IOException {
+        Path list = generate("list", GenerationOptions.Output.FILES);
+
+        Path out = Files.createDirectory(dir.resolve("pipeline"));
+        GenerationOptions options = new GenerationOptions();
+        options.setOutputDir(out);
+        options.setWorkers(3);
+        options.setWriteQueue(2);
+        int written = JsonGenerator.generate(rows -> rows().forEach(rows), new RowValidator(new RunMetrics()),
+                new File("book.xlsx"), options, msg -> { });
+
+        assertEquals(3, written);
+        assertEquals(files(list), files(out));
+    }
+
+    private Path generate(String name, GenerationOptions.Output output) throws IOException {
+        Path out = Files.createDirectory(dir.resolve(name));
+        GenerationOptions options = new GenerationOptions();
+        options.setOutput(output);
+        JsonGenerator.generate(rows(), out.resolve("book.xlsx").toFile(), options, msg -> { });
+        return out;
+    }
+
+    /** Seven rows of two shippers: chunks of 3, 1 and 3. */
+    static List<ExcelDto> rows() {
+        List<ExcelDto> rows = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            rows.add(TestRows.row("T" + i, "Shipper " + (i < 4 ? "A" : "B"), "Importer", i + ",5", "1"));
+        }
+        return rows;
+    }
+
+    static Map<String, String> files(Path dir) throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> list = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) list::iterator) {
+                if (f.toString().endsWith(".json")) {
+                    files.put(f.getFileName().toString(), masked(new String(Files.readAllBytes(f), StandardCharsets.UTF_8)));
+                }
+            }
+        }
+        return files;
+    }
+
+    /** The issue date is the time a declaration was built. */
+    static String masked(String json) {
+        return json.replaceAll("\"\\d{4}-\\d\\d-\\d\\dT[0-9:.]+Z\"", "\"DATE\"");
+    }
+
+    private static JsonNode json(ObjectMapper mapper, String text) {
+        try {
+            return mapper.readTree(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int n; (n = in.read(buf)) > 0; ) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,101 @@
+package org.app.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.app.generator.GenerationOptions;
+import org.app.generator.JsonGenerator;
+import org.app.model.ExcelDto;
+import org.app.reader.ExcelReader;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunMetricsTest {
+    private static final String[] HEADER = {"Tracking Nr", "Weight", "Shipper Name", "Importer Name",
+            "Importer Country", "Nr Of Packages"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void countersDescribeTheRun() throws IOException {
+        RunMetrics metrics = new RunMetrics();
+        File workbook = workbook();
+        List<ExcelDto> rows = ExcelReader.read(workbook, metrics);
+        Path out = Files.createDirectory(dir.resolve("out"));
+        GenerationOptions options = new GenerationOptions();
+        options.setOutputDir(out);
+        options.setSchemaCheck(false);
+        options.setMetrics(metrics);
+        JsonGenerator.generate(rows, workbook, options, msg -> { });
+
+        assertEquals(6, metrics.getRowsRead());
+        assertEquals(1, metrics.getEmptyRowsSkipped());
+        assertEquals(1, metrics.getRowsRejected());
+        // A: 4 rows in chunks of 3 and 1; B: 1 row
+        assertEquals(2, metrics.getGroupsFormed());
+        assertEquals(3, metrics.getDeclarationsPlanned());
+        assertEquals(3, metrics.getDeclarationsBuilt());
+        assertEquals(3, metrics.getDeclarationsWritten());
+        assertEquals(size(out), metrics.getBytesWritten());
+        assertTrue(metrics.getTimeNanos(RunMetrics.Phase.READ) > 0);
+        assertTrue(metrics.getTimeNanos(RunMetrics.Phase.BUILD) > 0);
+
+        JsonNode json = new ObjectMapper().readTree(metrics.toJson());
+        assertEquals(3, json.get("declarationsWritten").asInt());
+        assertEquals(metrics.getBytesWritten(), json.get("bytesWritten").asLong());
+        assertTrue(json.get("phases").has("writeMillis"));
+    }
+
+    /** Four rows of shipper A, one of B, one with a bad weight and a blank row. */
+    private File workbook() throws IOException {
+        Path file = dir.resolve("book.xlsx");
+        String[][] rows = {
+                {"A1", "1", "A", "I", "FR", "1"},
+                {"A2", "2", "A", "I", "FR", "1"},
+                {"A3", "3", "A", "I", "FR", "1"},
+                {"A4", "4", "A", "I", "FR", "1"},
+                {},
+                {"B1", "5", "B", "I", "FR", "1"},
+                {"B2", "heavy", "B", "I", "FR", "1"},
+        };
+        try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream os = Files.newOutputStream(file)) {
+            Sheet sheet = wb.createSheet("Manifest");
+            Row header = sheet.createRow(0);
+            for (int c = 0; c < HEADER.length; c++) {
+                header.createCell(c).setCellValue(HEADER[c]);
+            }
+            for (int r = 0; r < rows.length; r++) {
+                Row row = sheet.createRow(r + 1);
+                for (int c = 0; c < rows[r].length; c++) {
+                    row.createCell(c).setCellValue(rows[r][c]);
+                }
+            }
+            wb.write(os);
+        }
+        return file.toFile();
+    }
+
+    private static long size(Path dir) throws IOException {
+        long size = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                size += Files.size(f);
+            }
+        }
+        return size;
+    }
+}
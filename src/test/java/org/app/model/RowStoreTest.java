@@ -0,0 +1,80 @@
+package org.app.model;
+
+import org.app.model.RowStore.Field;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowStoreTest {
+
+    @Test
+    void rowsComeBackAsTheyWentIn() {
+        ExcelDto in = TestRows.row("T1", "Shipper", "Importer", "DE", "1,5", "2");
+        in.setSheet("Flight 1");
+        in.setRowNum(7);
+        in.setGrossMass(1.5);
+        in.setPackages(2);
+        in.setDescriptionOfGoods(null);
+        RowStore store = new RowStore(1);
+        store.add(in);
+
+        ExcelDto out = store.toDto(0);
+        assertEquals("T1", out.getTrackingNr());
+        assertEquals("Shipper", out.getShipperName());
+        assertEquals("DE", out.getImporterCountry());
+        assertEquals("1,5", out.getWeight());
+        assertNull(out.getDescriptionOfGoods());
+        assertEquals("Flight 1", out.getSheet());
+        assertEquals(7, out.getRowNum());
+        assertEquals(1.5, out.getGrossMass());
+        assertEquals(2, out.getPackages());
+        assertArrayEquals(in.getCountriesOfRoutingOfConsignment(), out.getCountriesOfRoutingOfConsignment());
+    }
+
+    @Test
+    void repeatedValuesShareOneCodeAndRoutingsOneArray() {
+        RowStore store = new RowStore(16);
+        for (int i = 0; i < 1000; i++) {
+            store.add(TestRows.row("T" + i, "Shipper " + i % 3, "Importer", "1", "1"));
+        }
+        assertEquals(1000, store.size());
+        assertEquals(store.code(0, Field.SHIPPER_NAME), store.code(3, Field.SHIPPER_NAME));
+        assertNotEquals(store.code(0, Field.SHIPPER_NAME), store.code(1, Field.SHIPPER_NAME));
+        assertEquals("Shipper 1", store.value(store.code(1, Field.SHIPPER_NAME)));
+        assertSame(store.getRouting(0), store.getRouting(999));
+        assertThrows(IllegalArgumentException.class, () -> store.code(0, Field.TRACKING_NR));
+    }
+
+    @Test
+    void retainKeepsCodesAndRenumbersRows() {
+        RowStore store = new RowStore();
+        for (int i = 0; i < 10; i++) {
+            store.add(TestRows.row("T" + i, "Shipper " + i % 2, "Importer", "1", "1"));
+        }
+        int code = store.code(3, Field.SHIPPER_NAME);
+        long before = store.estimatedBytes();
+        store.retain(new int[]{3, 8});
+        assertEquals(2, store.size());
+        assertEquals("T3", store.getTrackingNr(0));
+        assertEquals("T8", store.getTrackingNr(1));
+        assertEquals(code, store.code(0, Field.SHIPPER_NAME));
+        assertTrue(store.estimatedBytes() < before, "dropped tracking numbers are no longer counted");
+    }
+
+    @Test
+    void clearDropsRowsAndDictionary() {
+        RowStore store = new RowStore();
+        store.add(TestRows.row("T1", "Shipper", "Importer", "1", "1"));
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, store.distinctValues());
+        store.add(TestRows.row("T2", "Other", "Importer", "1", "1"));
+        assertEquals("Other", store.get(0, Field.SHIPPER_NAME));
+    }
+}
@@ -0,0 +1,40 @@
+package org.app.model;
+
+import org.app.reference.Countries;
+import org.app.reference.Country;
+
+/**
+ * Manifest rows for tests, filled like a reader fills them: every column as trimmed text,
+ * the routing of a known importer country, weight and package count not yet parsed.
+ */
+public final class TestRows {
+
+    private TestRows() {
+    }
+
+    public static ExcelDto row(String trackingNr, String shipper, String importer, String weight, String packages) {
+        return row(trackingNr, shipper, importer, "FR", weight, packages);
+    }
+
+    public static ExcelDto row(String trackingNr, String shipper, String importer, String country,
+                               String weight, String packages) {
+        ExcelDto d = new ExcelDto();
+        d.setTrackingNr(trackingNr);
+        d.setWeight(weight);
+        d.setShipperName(shipper);
+        d.setShipperAddress("Str. Ismail 1");
+        d.setShipperCity("Chisinau");
+        d.setImporterPostCode("75001");
+        d.setImporterName(importer);
+        d.setImporterAddress("Rue de Rivoli 2");
+        d.setImporterCity("Paris");
+        d.setImporterCountry(country);
+        d.setMasterAwb("620342");
+        d.setMasterDocument("MAWB-1");
+        d.setDescriptionOfGoods("Clothes");
+        d.setNrOfPackages(packages);
+        Country known = Countries.get(country);
+        if (known != null) d.setCountriesOfRoutingOfConsignment(known.getRouting());
+        return d;
+    }
+}
@@ -0,0 +1,166 @@
+package org.app.output;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncSinkTest {
+    private static final byte[] JSON = "{}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void writesEverythingInOrderBeforeClosing() throws IOException {
+        Recording delegate = new Recording();
+        AsyncSink sink = new AsyncSink(delegate, 4, 2);
+        for (int i = 0; i < 10; i++) {
+            sink.write(i + ".json", JSON, 0, JSON.length);
+        }
+        sink.flush();
+        assertEquals(10, delegate.names().size());
+        sink.close();
+
+        assertEquals(10, delegate.names().size());
+        assertEquals("0.json", delegate.names().get(0));
+        assertEquals("9.json", delegate.names().get(9));
+        assertTrue(delegate.closed);
+        assertTrue(delegate.flushes > 0);
+    }
+
+    @Test
+    void writerFailureReachesFlushAndClose() throws IOException {
+        Recording delegate = new Recording();
+        delegate.failOn = "bad.json";
+        delegate.gate = new CountDownLatch(1);
+        AsyncSink sink = new AsyncSink(delegate, 4, 1);
+        // held until it has been queued, so the failure cannot reach this write
+        sink.write("bad.json", JSON, 0, JSON.length);
+        delegate.gate.countDown();
+
+        IOException flush = assertThrows(IOException.class, sink::flush);
+        assertTrue(flush.getMessage().contains("disk full"), flush.getMessage());
+        assertThrows(IOException.class, () -> sink.write("next.json", JSON, 0, JSON.length));
+        IOException close = assertThrows(IOException.class, sink::close);
+        assertTrue(close.getMessage().contains("disk full"), close.getMessage());
+        assertFalse(delegate.closed);
+    }
+
+    @Test
+    void fullQueueHoldsBackProducers() throws Exception {
+        Recording delegate = new Recording();
+        delegate.gate = new CountDownLatch(1);
+        AsyncSink sink = new AsyncSink(delegate, 2, 1);
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        try {
+            // one declaration held by the writer, two in the queue, the fourth has to wait
+            Future<?> writes = producer.submit(() -> {
+                for (int i = 0; i < 4; i++) {
+                    sink.write(i + ".json", JSON, 0, JSON.length);
+                }
+                return null;
+            });
+            assertThrows(TimeoutException.class, () -> writes.get(300, TimeUnit.MILLISECONDS));
+
+            delegate.gate.countDown();
+            writes.get(10, TimeUnit.SECONDS);
+            sink.close();
+            assertEquals(Arrays.asList("0.json", "1.json", "2.json", "3.json"), delegate.names());
+        } finally {
+            producer.shutdownNow();
+        }
+    }
+
+    @Test
+    void interruptedProducerGivesUpAndAbortStopsTheWriter() throws Exception {
+        Recording delegate = new Recording();
+        delegate.gate = new CountDownLatch(1);
+        AsyncSink sink = new AsyncSink(delegate, 1, 1);
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writes = producer.submit(() -> {
+                for (int i = 0; i < 3; i++) {
+                    sink.write(i + ".json", JSON, 0, JSON.length);
+                }
+                return null;
+            });
+            assertThrows(TimeoutException.class, () -> writes.get(300, TimeUnit.MILLISECONDS));
+            producer.shutdownNow();
+            Exception e = assertThrows(Exception.class, () -> writes.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof InterruptedIOException, String.valueOf(e.getCause()));
+
+            // the writer is still stuck in the wrapped sink until abort interrupts it
+            sink.abort();
+            assertTrue(delegate.aborted);
+            assertEquals(Collections.emptyList(), delegate.names());
+            assertThrows(IOException.class, () -> sink.write("late.json", JSON, 0, JSON.length));
+        } finally {
+            producer.shutdownNow();
+        }
+    }
+
+    /** Records what reaches it; can fail on a name or hold every write until a gate opens. */
+    private static class Recording implements DeclarationSink {
+        private final List<String> names = new ArrayList<>();
+        String failOn;
+        CountDownLatch gate;
+        int flushes;
+        boolean closed;
+        boolean aborted;
+
+        @Override
+        public void write(String fileName, byte[] json, int offset, int length) throws IOException {
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("write interrupted");
+                }
+            }
+            if (fileName.equals(failOn)) throw new IOException("disk full");
+            synchronized (names) {
+                names.add(fileName);
+            }
+        }
+
+        List<String> names() {
+            synchronized (names) {
+                return new ArrayList<>(names);
+            }
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+        }
+
+        @Override
+        public String describe() {
+            return "recording";
+        }
+    }
+}
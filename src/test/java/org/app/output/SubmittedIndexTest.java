@@ -0,0 +1,94 @@
+package org.app.output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubmittedIndexTest {
+    /** Past 3/4 of the initial 65536 slots twice, so the table grows to 262144. */
+    private static final int ENTRIES = 100_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void addsEachTrackingNumberOnce() throws IOException {
+        try (SubmittedIndex index = SubmittedIndex.open(dir.resolve("idx.bin"))) {
+            assertTrue(index.add("1Z1", 1000));
+            assertFalse(index.add("1Z1", 2000));
+            assertFalse(index.add(null, 1000));
+            assertEquals(1000, index.submittedAt("1Z1"));
+            assertEquals(0, index.submittedAt("1Z2"));
+            assertFalse(index.contains(null));
+            assertEquals(1, index.size());
+        }
+    }
+
+    @Test
+    void keepsEverythingWhenItGrowsAndAfterReopening() throws IOException {
+        Path file = dir.resolve("idx.bin");
+        try (SubmittedIndex index = SubmittedIndex.open(file)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                assertTrue(index.add("TRK" + i, 1_000_000L + i));
+            }
+            assertEquals(ENTRIES, index.size());
+            for (int i = 0; i < ENTRIES; i++) {
+                assertEquals(1_000_000L + i, index.submittedAt("TRK" + i));
+            }
+        }
+        assertTrue(Files.size(file) > 262_144L * 16, "the table did not grow: " + Files.size(file));
+        try (SubmittedIndex index = SubmittedIndex.open(file)) {
+            assertEquals(ENTRIES, index.size());
+            for (int i = 0; i < ENTRIES; i += 7) {
+                assertEquals(1_000_000L + i, index.submittedAt("TRK" + i));
+            }
+            assertFalse(index.contains("TRK" + ENTRIES));
+            assertFalse(index.add("TRK0", 5));
+            assertTrue(index.add("TRK" + ENTRIES, 5));
+        }
+    }
+
+    @Test
+    void readersSeeWhatTheWriterAddsAfterItGrew() throws IOException {
+        Path file = dir.resolve("idx.bin");
+        try (SubmittedIndex writer = SubmittedIndex.open(file);
+             SubmittedIndex reader = SubmittedIndex.openReadOnly(file)) {
+            writer.add("first", 1);
+            assertTrue(reader.contains("first"));
+            for (int i = 0; i < ENTRIES; i++) {
+                writer.add("TRK" + i, 2);
+            }
+            assertTrue(reader.contains("TRK" + (ENTRIES - 1)));
+            assertTrue(reader.contains("first"));
+            assertEquals(ENTRIES + 1, reader.size());
+            assertThrows(IllegalStateException.class, () -> reader.add("x", 1));
+        }
+    }
+
+    @Test
+    void onlyOneWriterAtATime() throws IOException {
+        Path file = dir.resolve("idx.bin");
+        try (SubmittedIndex ignored = SubmittedIndex.open(file)) {
+            assertThrows(IOException.class, () -> SubmittedIndex.open(file));
+        }
+        SubmittedIndex.open(file).close();
+    }
+
+    @Test
+    void otherFilesAreRefused() throws IOException {
+        Path file = dir.resolve("notes.txt");
+        Files.write(file, "not an index, but long enough to hold a header of 64 bytes............"
+                .getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> SubmittedIndex.open(file));
+        assertThrows(IOException.class, () -> SubmittedIndex.openReadOnly(file));
+    }
+}
@@ -0,0 +1,99 @@
+package org.app.reader;
+
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void columnsAreMatchedByName() throws Exception {
+        RunMetrics metrics = new RunMetrics();
+        List<ExcelDto> rows = AccessReader.read(database(), SheetSelection.FIRST, metrics, msg -> { });
+
+        assertEquals(Arrays.asList("Manifest/T1", "Manifest/T2"), describe(rows));
+        ExcelDto first = rows.get(0);
+        assertEquals("1.5", first.getWeight());
+        assertEquals(1.5, first.getGrossMass());
+        assertEquals("2", first.getNrOfPackages());
+        assertEquals(2, first.getPackages());
+        assertEquals("FR", first.getImporterCountry());
+        assertEquals("Shipper A", first.getShipperName());
+        // a whole number stays whole, without exponent
+        assertEquals("1234567890", rows.get(1).getMasterAwb());
+        assertEquals(1, rows.get(0).getRowNum());
+        // the row without any value
+        assertEquals(1, metrics.getEmptyRowsSkipped());
+        assertEquals(2, metrics.getRowsRead());
+    }
+
+    @Test
+    void allSkipsTablesWithoutTrackingNumbers() throws Exception {
+        List<String> log = new ArrayList<>();
+        List<ExcelDto> rows = AccessReader.read(database(), SheetSelection.ALL, new RunMetrics(), log::add);
+
+        assertEquals(Arrays.asList("Manifest/T1", "Manifest/T2", "Late/T9"), describe(rows));
+        assertEquals(Collections.singletonList("Skipping manifest.accdb [Rates]: no tracking number column"), log);
+    }
+
+    @Test
+    void tablesAreNamedCaseInsensitively() throws Exception {
+        List<ExcelDto> rows = AccessReader.read(database(), SheetSelection.parse("late"), new RunMetrics(), msg -> { });
+        assertEquals(Collections.singletonList("Late/T9"), describe(rows));
+    }
+
+    @Test
+    void unknownTableIsAnError() throws Exception {
+        File database = database();
+        IOException e = assertThrows(IOException.class,
+                () -> AccessReader.read(database, SheetSelection.parse("Nope"), new RunMetrics(), msg -> { }));
+        assertTrue(e.getMessage().contains("Nope"), e.getMessage());
+    }
+
+    /** A lookup table, the manifest with its columns out of the old order, and a late addition. */
+    private File database() throws SQLException {
+        File file = dir.resolve("manifest.accdb").toFile();
+        try (Connection c = DriverManager.getConnection("jdbc:ucanaccess://" + file.getAbsolutePath()
+                + ";newdatabaseversion=V2010");
+             Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE Rates (Country TEXT(2), Rate DOUBLE)");
+            st.execute("INSERT INTO Rates VALUES ('FR', 0.2)");
+            st.execute("CREATE TABLE Manifest (Weight DOUBLE, [Tracking Nr] TEXT(20), [Importer Country] TEXT(2),"
+                    + " [Shipper Name] TEXT(50), [Nr Of Packages] INTEGER, [HS Code] LONG)");
+            st.execute("INSERT INTO Manifest VALUES (1.50, 'T1', 'FR', 'Shipper A', 2, 620342)");
+            st.execute("INSERT INTO Manifest VALUES (NULL, NULL, NULL, NULL, NULL, NULL)");
+            st.execute("INSERT INTO Manifest VALUES (3, 'T2', 'DE', 'Shipper B', 1, 1234567890)");
+            st.execute("CREATE TABLE Late ([Tracking Nr] TEXT(20), Weight DOUBLE)");
+            st.execute("INSERT INTO Late VALUES ('T9', 4)");
+        }
+        return file;
+    }
+
+    private static List<String> describe(List<ExcelDto> rows) {
+        List<String> out = new ArrayList<>();
+        for (ExcelDto d : rows) {
+            out.add(d.getSheet() + "/" + d.getTrackingNr());
+        }
+        return out;
+    }
+}
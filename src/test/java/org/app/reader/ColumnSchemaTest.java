@@ -0,0 +1,112 @@
+package org.app.reader;
+
+import org.app.model.ExcelDto;
+import org.app.reader.ColumnSchema.Column;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnSchemaTest {
+
+    @Test
+    void headersMatchIgnoringCaseAndPunctuation() {
+        assertEquals(Column.TRACKING_NR, ColumnSchema.forHeader("tracking-no."));
+        assertEquals(Column.WEIGHT, ColumnSchema.forHeader(" GROSS  MASS "));
+        assertEquals(Column.IMPORTER_POST_CODE, ColumnSchema.forHeader("Importer Zip"));
+        assertEquals(Column.MASTER_AWB, ColumnSchema.forHeader("HS Code"));
+        assertEquals(Column.MASTER_DOCUMENT, ColumnSchema.forHeader("Master Document Number"));
+        assertNull(ColumnSchema.forHeader(null));
+    }
+
+    @Test
+    void catchAllNamesMatchNothing() {
+        for (String name : Arrays.asList("AWB", "MAWB", "Master", "Country", "Zip", "Post Code", "Goods")) {
+            assertNull(ColumnSchema.forHeader(name), name);
+        }
+    }
+
+    @Test
+    void columnsAreFoundInAnyOrderAndExtraOnesSkipped() {
+        List<String> header = new ArrayList<>();
+        for (Column c : Column.values()) {
+            header.add(0, c.name().replace('_', ' '));
+        }
+        header.add("Notes");
+        ColumnSchema schema = ColumnSchema.fromHeader(header);
+        assertEquals(Column.MASTER_DOCUMENT, schema.columnAt(0));
+        assertEquals(Column.WEIGHT, schema.columnAt(3));
+        assertEquals(Column.TRACKING_NR, schema.columnAt(13));
+        assertFalse(schema.isProjected(14));
+        assertEquals(14, schema.width());
+
+        ExcelDto dto = new ExcelDto();
+        schema.set(dto, 3, " 1,5 ");
+        schema.set(dto, 13, "T1");
+        assertEquals("1,5", dto.getWeight());
+        assertEquals("T1", dto.getTrackingNr());
+    }
+
+    @Test
+    void unknownHeadersFallBackToTheirOldPosition() {
+        ColumnSchema schema = ColumnSchema.fromHeader(Arrays.asList("Nr", "Shipper", "Street"));
+        assertEquals(Column.TRACKING_NR, schema.columnAt(0));
+        assertEquals(Column.SHIPPER_NAME, schema.columnAt(1));
+        assertEquals(Column.SHIPPER_ADDRESS, schema.columnAt(2));
+        assertEquals(Column.WEIGHT, schema.columnAt(10));
+        assertEquals(Column.MASTER_DOCUMENT, schema.columnAt(13));
+    }
+
+    @Test
+    void aFieldFoundElsewhereDoesNotAlsoTakeItsOldPosition() {
+        // column A is the tracking number's old position; the tracking number is missing here
+        ColumnSchema schema = ColumnSchema.fromHeader(Arrays.asList("Weight", "Notes"));
+        assertEquals(Column.WEIGHT, schema.columnAt(0));
+        assertEquals(1, Collections.frequency(Arrays.asList(columns(schema)), Column.WEIGHT));
+        assertFalse(Arrays.asList(columns(schema)).contains(Column.TRACKING_NR));
+    }
+
+    @Test
+    void twoHeadersForOneFieldAreAnError() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ColumnSchema.fromHeader(Arrays.asList("Tracking Nr", "Weight", "Gross Mass ")));
+        assertTrue(e.getMessage().contains("\"Weight\" (column 2)"), e.getMessage());
+        assertTrue(e.getMessage().contains("\"Gross Mass\" (column 3)"), e.getMessage());
+    }
+
+    @Test
+    void numericCellsFillOnlyValuesValidationWouldAccept() {
+        ColumnSchema schema = ColumnSchema.positional();
+        int weight = Column.WEIGHT.ordinal();
+        int packages = Column.NR_OF_PACKAGES.ordinal();
+
+        ExcelDto dto = new ExcelDto();
+        schema.setNumber(dto, weight, 1234);
+        schema.setNumber(dto, packages, 1000);
+        assertEquals(1234.0, dto.getGrossMass());
+        assertEquals(1000, dto.getPackages());
+
+        ExcelDto bad = new ExcelDto();
+        schema.setNumber(bad, weight, -1);
+        schema.setNumber(bad, packages, 1.5);
+        schema.setNumber(bad, Column.TRACKING_NR.ordinal(), 7);
+        assertEquals(0.0, bad.getGrossMass());
+        assertEquals(0, bad.getPackages());
+    }
+
+    private static Column[] columns(ColumnSchema schema) {
+        Column[] columns = new Column[schema.width()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = schema.columnAt(i);
+        }
+        return columns;
+    }
+}
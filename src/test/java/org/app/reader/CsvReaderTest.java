@@ -0,0 +1,113 @@
+package org.app.reader;
+
+import org.app.model.ExcelDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void quotedFieldsMayHoldDelimitersLineBreaksAndQuotes() throws IOException {
+        List<ExcelDto> rows = read("in.csv", "Tracking Nr,Shipper Name,Description Of Goods\n"
+                + "T1,\"Smith, John\",\"two\nlines\"\n"
+                + "T2,\"say \"\"hi\"\"\",\"\"\n");
+        assertEquals(2, rows.size());
+        assertEquals("Smith, John", rows.get(0).getShipperName());
+        assertEquals("two\nlines", rows.get(0).getDescriptionOfGoods());
+        assertEquals("say \"hi\"", rows.get(1).getShipperName());
+        assertEquals("", rows.get(1).getDescriptionOfGoods());
+    }
+
+    @Test
+    void bomAndCrlfAreNotPartOfTheValues() throws IOException {
+        List<ExcelDto> rows = read("in.csv", "﻿Tracking Nr;Weight\r\nT1;1,5\r\nT2;2\r\n");
+        assertEquals(2, rows.size());
+        assertEquals("T1", rows.get(0).getTrackingNr());
+        assertEquals("1,5", rows.get(0).getWeight());
+        assertEquals("2", rows.get(1).getWeight());
+        assertEquals(3, rows.get(1).getRowNum());
+    }
+
+    @Test
+    void theDelimiterIsTheMostFrequentOneOutsideQuotes() throws IOException {
+        List<ExcelDto> rows = read("in.csv", "\"Tracking, Nr\"|Weight|Shipper Name\nT1|1,5|S, Ltd\n");
+        assertEquals("T1", rows.get(0).getTrackingNr());
+        assertEquals("1,5", rows.get(0).getWeight());
+        assertEquals("S, Ltd", rows.get(0).getShipperName());
+    }
+
+    @Test
+    void tsvFilesAreAlwaysTabSeparated() throws IOException {
+        List<ExcelDto> rows = read("in.tsv", "Tracking Nr\tShipper Name\nT1\tA, B; C\n");
+        assertEquals("A, B; C", rows.get(0).getShipperName());
+    }
+
+    @Test
+    void emptyRowsAreSkippedAndTheLastLineNeedsNoBreak() throws IOException {
+        List<ExcelDto> rows = read("in.csv", "Tracking Nr,Weight\n,\nT1,1\n\nT2,2");
+        assertEquals(2, rows.size());
+        assertEquals("T2", rows.get(1).getTrackingNr());
+        assertEquals(5, rows.get(1).getRowNum());
+    }
+
+    @Test
+    void importerCountryGetsItsRouting() throws IOException {
+        String[] routing = read("in.csv", "Tracking Nr,Importer Country\nT1,FR\n").get(0).getCountriesOfRoutingOfConsignment();
+        assertEquals("FR", routing[routing.length - 1]);
+    }
+
+    @Test
+    void recordsAcrossWindowBoundariesReadTheSameAsSmallOnes() throws IOException {
+        Path file = dir.resolve("big.csv");
+        int rows = 200_000;
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("Tracking Nr,Shipper Name,Description Of Goods\r\n");
+            for (int i = 0; i < rows; i++) {
+                w.write("T" + i + ",\"Shipper \"\"" + i % 7 + "\"\"\"," + (i % 5 == 0 ? "\"a\r\nb\"" : "ăîș") + "\r\n");
+            }
+        }
+        List<ExcelDto> read = CsvReader.read(file.toFile());
+        assertEquals(rows, read.size());
+        for (int i = 0; i < rows; i++) {
+            ExcelDto d = read.get(i);
+            assertEquals("T" + i, d.getTrackingNr());
+            assertEquals("Shipper \"" + i % 7 + "\"", d.getShipperName());
+            assertEquals(i % 5 == 0 ? "a\r\nb" : "ăîș", d.getDescriptionOfGoods());
+        }
+    }
+
+    @Test
+    void aRecordLargerThanAWindowGrowsIt() throws IOException {
+        char[] big = new char[10 << 20];
+        Arrays.fill(big, 'x');
+        List<ExcelDto> rows = read("in.csv", "Tracking Nr,Description Of Goods\nT1,\"" + new String(big) + "\"\nT2,y\n");
+        assertEquals(2, rows.size());
+        assertEquals(big.length, rows.get(0).getDescriptionOfGoods().length());
+        assertEquals("y", rows.get(1).getDescriptionOfGoods());
+    }
+
+    @Test
+    void duplicateHeadersFailTheFile() {
+        assertThrows(IllegalArgumentException.class, () -> read("in.csv", "Tracking Nr,Weight,Gross Weight\nT1,1,2\n"));
+    }
+
+    private List<ExcelDto> read(String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return CsvReader.read(file.toFile());
+    }
+}
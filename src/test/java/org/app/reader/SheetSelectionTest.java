@@ -0,0 +1,105 @@
+package org.app.reader;
+
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SheetSelectionTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesFirstAllAndNames() {
+        assertSame(SheetSelection.FIRST, SheetSelection.parse(" First "));
+        assertSame(SheetSelection.ALL, SheetSelection.parse("ALL"));
+
+        SheetSelection named = SheetSelection.parse("Flight 1, Flight 2,,");
+        assertTrue(named.includes(5, "Flight 2"));
+        assertFalse(named.includes(0, "Flight 3"));
+        assertFalse(named.includes(0, "flight 1"));
+        assertTrue(named.includesIgnoringCase(3, "FLIGHT 1"));
+        assertTrue(named.isMultiSheet());
+
+        assertTrue(SheetSelection.FIRST.includes(0, "any"));
+        assertFalse(SheetSelection.FIRST.includes(1, "any"));
+        assertFalse(SheetSelection.FIRST.isMultiSheet());
+        assertThrows(IllegalArgumentException.class, () -> SheetSelection.parse(" , "));
+    }
+
+    @Test
+    void bothReadersReadTheSelectedSheetsInOrder() throws IOException {
+        File workbook = workbook();
+        for (boolean streaming : new boolean[]{false, true}) {
+            assertEquals(Collections.singletonList("Flight 1/A1"), read(workbook, SheetSelection.FIRST, streaming));
+            assertEquals(Arrays.asList("Flight 1/A1", "Flight 2/B1", "Flight 2/B2", "Flight 3/C1"),
+                    read(workbook, SheetSelection.ALL, streaming));
+            assertEquals(Collections.singletonList("Flight 3/C1"),
+                    read(workbook, SheetSelection.parse("Flight 3"), streaming));
+            assertThrows(IOException.class, () -> read(workbook, SheetSelection.parse("Flight 9"), streaming));
+        }
+    }
+
+    @Test
+    void everySheetHasItsOwnHeader() throws IOException {
+        // Flight 3 has its columns the other way round
+        for (boolean streaming : new boolean[]{false, true}) {
+            List<ExcelDto> rows = ParallelReader.read(Collections.singletonList(workbook()), SheetSelection.ALL,
+                    streaming, 1, new RunMetrics(), msg -> { });
+            assertEquals("C1", rows.get(3).getTrackingNr());
+            assertEquals("3", rows.get(3).getWeight());
+        }
+    }
+
+    private List<String> read(File workbook, SheetSelection sheets, boolean streaming) throws IOException {
+        List<String> rows = new ArrayList<>();
+        List<ExcelDto> read = ParallelReader.read(Collections.singletonList(workbook), sheets, streaming, 2,
+                new RunMetrics(), msg -> { });
+        for (ExcelDto d : read) {
+            rows.add(d.getSheet() + "/" + d.getTrackingNr());
+        }
+        return rows;
+    }
+
+    private File workbook() throws IOException {
+        Path file = dir.resolve("flights.xlsx");
+        try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream os = Files.newOutputStream(file)) {
+            sheet(wb, "Flight 1", new String[]{"Tracking Nr", "Weight"}, new String[][]{{"A1", "1"}});
+            sheet(wb, "Flight 2", new String[]{"Tracking Nr", "Weight"}, new String[][]{{"B1", "2"}, {"B2", "2"}});
+            sheet(wb, "Flight 3", new String[]{"Weight", "Tracking Nr"}, new String[][]{{"3", "C1"}});
+            wb.write(os);
+        }
+        return file.toFile();
+    }
+
+    private static void sheet(XSSFWorkbook wb, String name, String[] header, String[][] rows) {
+        Sheet sheet = wb.createSheet(name);
+        for (int r = 0; r <= rows.length; r++) {
+            Row row = sheet.createRow(r);
+            String[] values = r == 0 ? header : rows[r - 1];
+            for (int c = 0; c < values.length; c++) {
+                row.createCell(c).setCellValue(values[c]);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.app.reader;
+
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingExcelReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsTheSameRowsAsTheWorkbookReader() throws IOException {
+        File workbook = workbook();
+        List<ExcelDto> dom = ExcelReader.read(workbook);
+        List<ExcelDto> sax = StreamingExcelReader.read(workbook);
+
+        assertEquals(3, dom.size());
+        assertEquals(describe(dom), describe(sax));
+    }
+
+    @Test
+    void numericCellsKeepTheirValue() throws IOException {
+        File workbook = workbook();
+        for (List<ExcelDto> rows : Arrays.asList(ExcelReader.read(workbook), StreamingExcelReader.read(workbook))) {
+            // formatted as "1,234" or "1.234" depending on the locale, which validation would refuse
+            ExcelDto first = rows.get(0);
+            assertEquals(1234.0, first.getGrossMass());
+            assertEquals(1000, first.getPackages());
+            // text cells are left to validation
+            assertEquals(0.0, rows.get(1).getGrossMass());
+        }
+    }
+
+    @Test
+    void formulaCellsTakeOnlyTheirValue() throws IOException {
+        Path file = dir.resolve("formulas.xlsx");
+        try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream os = Files.newOutputStream(file)) {
+            Sheet sheet = wb.createSheet("Manifest");
+            Row h = sheet.createRow(0);
+            h.createCell(0).setCellValue("Tracking Nr");
+            h.createCell(1).setCellValue("Weight");
+            h.createCell(2).setCellValue("Nr Of Packages");
+            Row r = sheet.createRow(1);
+            r.createCell(0).setCellValue("T1");
+            // stored as <f>10</f><v>10</v>
+            r.createCell(1).setCellFormula("10");
+            r.createCell(2).setCellFormula("1+1");
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            wb.write(os);
+        }
+        ExcelDto row = StreamingExcelReader.read(file.toFile()).get(0);
+        assertEquals(10.0, row.getGrossMass());
+        assertEquals(2, row.getPackages());
+    }
+
+    @Test
+    void emptyRowsAreSkippedAndCounted() throws IOException {
+        RunMetrics dom = new RunMetrics();
+        RunMetrics sax = new RunMetrics();
+        File workbook = workbook();
+        ExcelReader.read(workbook, dom);
+        List<ExcelDto> rows = StreamingExcelReader.read(workbook, sax);
+        assertEquals("T3", rows.get(2).getTrackingNr());
+        assertEquals(1, dom.getEmptyRowsSkipped());
+        assertEquals(1, sax.getEmptyRowsSkipped());
+        assertEquals(3, sax.getRowsRead());
+    }
+
+    @Test
+    void columnIndexFollowsTheReference() {
+        assertEquals(0, StreamingExcelReader.columnIndex("A1"));
+        assertEquals(13, StreamingExcelReader.columnIndex("N20"));
+        assertEquals(26, StreamingExcelReader.columnIndex("AA3"));
+    }
+
+    /** Columns out of the old order, an extra one, a formatted number, a blank row and a gap. */
+    private File workbook() throws IOException {
+        Path file = dir.resolve("book.xlsx");
+        try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream os = Files.newOutputStream(file)) {
+            CellStyle thousands = wb.createCellStyle();
+            thousands.setDataFormat(wb.createDataFormat().getFormat("#,##0"));
+            Sheet sheet = wb.createSheet("Manifest");
+            String[] header = {"Weight", "Tracking Nr", "Notes", "Importer Country", "Shipper Name", "Nr Of Packages",
+                    "HS Code"};
+            Row h = sheet.createRow(0);
+            for (int c = 0; c < header.length; c++) {
+                h.createCell(c).setCellValue(header[c]);
+            }
+
+            Row r = sheet.createRow(1);
+            r.createCell(0).setCellValue(1234);
+            r.getCell(0).setCellStyle(thousands);
+            r.createCell(1).setCellValue("T1");
+            r.createCell(2).setCellValue("fragile");
+            r.createCell(3).setCellValue("FR");
+            r.createCell(4).setCellValue("Shipper ă");
+            r.createCell(5).setCellValue(1000);
+            r.createCell(6).setCellValue(620342);
+
+            r = sheet.createRow(2);
+            r.createCell(0).setCellValue("2,5");
+            r.createCell(1).setCellValue("T2");
+            r.createCell(3).setCellValue("DE");
+            r.createCell(5).setCellValue("1");
+
+            sheet.createRow(3).createCell(1).setCellValue(" ");
+
+            r = sheet.createRow(5);
+            r.createCell(1).setCellValue("T3");
+            r.createCell(6).setCellValue("620342");
+            wb.write(os);
+        }
+        return file.toFile();
+    }
+
+    private static List<String> describe(List<ExcelDto> rows) {
+        List<String> out = new ArrayList<>();
+        for (ExcelDto d : rows) {
+            out.add(d.getRowNum() + "|" + d.getTrackingNr() + "|" + d.getWeight() + "|" + d.getShipperName() + "|"
+                    + d.getImporterCountry() + "|" + d.getNrOfPackages() + "|" + d.getMasterAwb() + "|"
+                    + d.getShipperAddress() + "|" + String.join(" ", d.getCountriesOfRoutingOfConsignment()) + "|"
+                    + d.getGrossMass() + "|" + d.getPackages());
+        }
+        return out;
+    }
+}
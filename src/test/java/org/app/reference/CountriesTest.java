@@ -0,0 +1,56 @@
+package org.app.reference;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountriesTest {
+
+    @Test
+    void codesAreLookedUpInEitherCase() {
+        Country fr = Countries.get("FR");
+        assertEquals("FRA", fr.getIso3());
+        assertEquals("Paris", fr.getCapital());
+        assertTrue(fr.isEuMember());
+        assertSame(fr, Countries.get("fr"));
+        assertSame(fr, Countries.get("Fr"));
+    }
+
+    @Test
+    void anythingElseIsUnknown() {
+        assertNull(Countries.get("XX"));
+        assertNull(Countries.get("FRA"));
+        assertNull(Countries.get("F"));
+        assertNull(Countries.get("F1"));
+        assertNull(Countries.get(""));
+        assertNull(Countries.get(null));
+        assertFalse(Countries.isKnown("é1"));
+        assertNull(Countries.capitalOf("XX"));
+    }
+
+    @Test
+    void routingEndsWithTheCountryOnce() {
+        assertArrayEquals(new String[]{"MD", "RO", "DE", "FR"}, Countries.get("FR").getRouting());
+        assertArrayEquals(new String[]{"MD", "RO", "DE"}, Countries.get("DE").getRouting());
+        assertEquals("Chișinău", Countries.capitalOf("md"));
+    }
+
+    @Test
+    void everyLineOfTheTableIsLoaded() throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                Countries.class.getResourceAsStream("/countries.tsv"), StandardCharsets.UTF_8))) {
+            long lines = in.lines().filter(l -> !l.isEmpty() && !l.startsWith("#") && !l.startsWith("@")).count();
+            assertEquals(lines, Countries.size());
+        }
+    }
+}
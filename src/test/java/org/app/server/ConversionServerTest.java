@@ -0,0 +1,119 @@
+package org.app.server;
+
+import org.app.generator.Envelope;
+import org.app.reader.SheetSelection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversionServerTest {
+    private static final String CSV = "Tracking Nr,Weight,Shipper Name,Shipper Address,Shipper City,Importer Name,"
+            + "Importer Address,Importer City,Importer Post Code,Importer Country,Nr Of Packages,HS Code,"
+            + "Master Document,Description Of Goods\n"
+            + "A1,1.5,S,Str 1,Chisinau,I,Rue 1,Paris,75001,FR,1,620342,M1,Shoes\n"
+            + "../../etc/x,2,Other,Str 1,Chisinau,I,Rue 1,Paris,75001,FR,1,620342,M1,Shoes\n"
+            + "B1,x,S,Str 1,Chisinau,I,Rue 1,Paris,75001,FR,1,620342,M1,Shoes\n";
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    private ConversionServer server;
+
+    @AfterEach
+    void stop() {
+        if (server != null) server.stop();
+    }
+
+    @Test
+    void convertsAnUploadIntoAZip() throws IOException {
+        start(1, 1);
+        HttpURLConnection c = post("book.csv");
+        c.getOutputStream().write(CSV.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(200, c.getResponseCode());
+        assertEquals("2", c.getHeaderField("X-Rows-Accepted"));
+        assertEquals("1", c.getHeaderField("X-Rows-Rejected"));
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(c.getInputStream())) {
+            for (ZipEntry e; (e = zip.getNextEntry()) != null; ) {
+                entries.add(e.getName());
+            }
+        }
+        Collections.sort(entries);
+        // the tracking number cannot leave the folder the archive is extracted into
+        assertEquals(Arrays.asList("A1.json", "_._.._etc_x.json", "errors.json"), entries);
+    }
+
+    @Test
+    void answers503WhenWorkersAndQueueAreFull() throws Exception {
+        start(1, 1);
+        // uploads that never finish: one keeps the worker busy, one waits in the queue
+        try (Socket busy = stalledUpload(); Socket queued = stalledUpload()) {
+            HttpURLConnection c = null;
+            for (int attempt = 0; attempt < 50; attempt++) {
+                c = post("book.csv");
+                c.getOutputStream().write(CSV.getBytes(StandardCharsets.UTF_8));
+                if (c.getResponseCode() == 503) break;
+                Thread.sleep(100);
+            }
+            assertEquals(503, c.getResponseCode());
+            assertEquals("1", c.getHeaderField("Retry-After"));
+        }
+        HttpURLConnection metrics = (HttpURLConnection) url("/metrics").openConnection();
+        try (InputStream in = metrics.getInputStream()) {
+            assertTrue(read(in).contains("\"rejected\":1"), "metrics count the rejection");
+        }
+    }
+
+    private void start(int workers, int queue) throws IOException {
+        server = new ConversionServer(new InetSocketAddress("127.0.0.1", 0), workers, queue, Envelope.defaults(),
+                false, SheetSelection.FIRST, new PrintStream(log, true));
+        server.start();
+    }
+
+    private HttpURLConnection post(String name) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) url("/convert?name=" + name).openConnection();
+        c.setRequestMethod("POST");
+        c.setDoOutput(true);
+        return c;
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private Socket stalledUpload() throws IOException {
+        Socket s = new Socket("127.0.0.1", server.getPort());
+        OutputStream out = s.getOutputStream();
+        out.write(("POST /convert?name=slow.csv HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1000\r\n\r\nTracking")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return s;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int n; (n = in.read(buf)) > 0; ) {
+            out.write(buf, 0, n);
+        }
+        return out.toString("UTF-8");
+    }
+}
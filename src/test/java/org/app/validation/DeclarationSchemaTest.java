@@ -0,0 +1,100 @@
+package org.app.validation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.app.generator.GenerationOptions;
+import org.app.generator.JsonGenerator;
+import org.app.metrics.RunMetrics;
+import org.app.model.ExcelDto;
+import org.app.model.TestRows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeclarationSchemaTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reportsThePathValueAndReason() throws IOException {
+        DeclarationSchema schema = schema("{\"type\":\"object\",\"additionalProperties\":false,\"required\":[\"a\",\"b\"],"
+                + "\"properties\":{\"a\":{\"type\":\"string\",\"pattern\":\"^[A-Z]{2}$\"},"
+                + "\"b\":{\"type\":\"array\",\"minItems\":1,\"items\":{\"type\":\"number\",\"exclusiveMinimum\":0}}}}");
+
+        assertTrue(validate(schema, "{\"a\":\"FR\",\"b\":[1.5]}").isEmpty());
+
+        List<SchemaError> errors = validate(schema, "{\"a\":\"fr\",\"b\":[0],\"c\":1}");
+        assertEquals(3, errors.size(), errors.toString());
+        assertEquals("/a", errors.get(0).getPath());
+        assertEquals("fr", errors.get(0).getValue());
+        assertEquals("/b/0", errors.get(1).getPath());
+        assertEquals("/c", errors.get(2).getPath());
+
+        SchemaError missing = validate(schema, "{\"a\":\"FR\"}").get(0);
+        assertEquals("/b", missing.getPath());
+        assertEquals("is missing", missing.getReason());
+    }
+
+    @Test
+    void unsupportedKeywordsAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> schema("{\"type\":\"string\",\"format\":\"date\"}"));
+    }
+
+    @Test
+    void generatedDeclarationsPassIe3f33() throws IOException {
+        RunMetrics metrics = generate(TestRows.row("T1", "S", "I", "1,5", "1"));
+        assertEquals(1, metrics.getDeclarationsWritten());
+        assertEquals(0, metrics.getDeclarationsInvalid());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertFalse(files.anyMatch(f -> f.getFileName().toString().endsWith(".schema-errors.json")));
+        }
+    }
+
+    @Test
+    void badValuesAreWrittenButListed() throws IOException {
+        ExcelDto row = TestRows.row("T1", "S", "I", "1,5", "1");
+        row.setMasterAwb("62");
+        row.setImporterCity("");
+        RunMetrics metrics = generate(row);
+        assertEquals(1, metrics.getDeclarationsWritten());
+        assertEquals(1, metrics.getDeclarationsInvalid());
+
+        Path report;
+        try (Stream<Path> files = Files.list(dir)) {
+            report = files.filter(f -> f.getFileName().toString().endsWith(".schema-errors.json")).findFirst().get();
+        }
+        String json = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+        assertTrue(json.contains("/commodityCode/harmonizedSystemSubHeadingCode"), json);
+        assertTrue(json.contains("/consignee/address/city"), json);
+    }
+
+    private RunMetrics generate(ExcelDto row) throws IOException {
+        RunMetrics metrics = new RunMetrics();
+        GenerationOptions options = new GenerationOptions();
+        options.setMetrics(metrics);
+        JsonGenerator.generate(Collections.singletonList(row), dir, "book.xlsx", options, msg -> { });
+        return metrics;
+    }
+
+    private static DeclarationSchema schema(String json) throws IOException {
+        return DeclarationSchema.compile(MAPPER.readTree(json));
+    }
+
+    private static List<SchemaError> validate(DeclarationSchema schema, String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return schema.validate("f.json", bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,78 @@
+package org.app.validation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NumberParserTest {
+
+    @Test
+    void readsEitherDecimalSeparator() {
+        assertEquals(12.5, NumberParser.parseDecimal("12.5"));
+        assertEquals(12.5, NumberParser.parseDecimal("12,5"));
+        assertEquals(0.125, NumberParser.parseDecimal("0,125"));
+        assertEquals(-3.0, NumberParser.parseDecimal("-3"));
+    }
+
+    @Test
+    void theLastOfTwoSeparatorsIsTheDecimalOne() {
+        assertEquals(1234.5, NumberParser.parseDecimal("1.234,5"));
+        assertEquals(1234.5, NumberParser.parseDecimal("1,234.50"));
+        assertEquals(1234567.0, NumberParser.parseDecimal("1.234.567"));
+        assertEquals(1234567.25, NumberParser.parseDecimal("1,234,567.25"));
+    }
+
+    @Test
+    void ignoresSpacesBetweenThousands() {
+        assertEquals(1234.5, NumberParser.parseDecimal("1 234,5"));
+        assertEquals(1234.5, NumberParser.parseDecimal("1 234,5"));
+        assertEquals(12.0, NumberParser.parseDecimal(" 12 "));
+    }
+
+    @Test
+    void readsExcelExponents() {
+        assertEquals(1500.0, NumberParser.parseDecimal("1.5E3"));
+        assertEquals(0.015, NumberParser.parseDecimal("1,5e-2"));
+    }
+
+    @Test
+    void longMantissasAreRoundedLikeTheJdk() {
+        assertEquals(Double.parseDouble("1234567890.123456789"), NumberParser.parseDecimal("1234567890,123456789"));
+    }
+
+    @Test
+    void garbageIsNaN() {
+        assertTrue(Double.isNaN(NumberParser.parseDecimal(null)));
+        assertTrue(Double.isNaN(NumberParser.parseDecimal("")));
+        assertTrue(Double.isNaN(NumberParser.parseDecimal("abc")));
+        assertTrue(Double.isNaN(NumberParser.parseDecimal("1.2.3,4,5")));
+        assertTrue(Double.isNaN(NumberParser.parseDecimal("1,5.2.3")));
+        assertTrue(Double.isNaN(NumberParser.parseDecimal("1-2")));
+        assertTrue(Double.isNaN(NumberParser.parseDecimal("1E")));
+        assertTrue(Double.isNaN(NumberParser.parseDecimal("12 kg")));
+    }
+
+    @Test
+    void oneSeparatorBeforeThreeDigitsIsAmbiguous() {
+        assertTrue(NumberParser.isAmbiguous("1,234"));
+        assertTrue(NumberParser.isAmbiguous("1.234"));
+        assertTrue(NumberParser.isAmbiguous("100.500"));
+        assertTrue(NumberParser.isAmbiguous(" 12,000 "));
+    }
+
+    @Test
+    void otherNumbersAreNotAmbiguous() {
+        assertFalse(NumberParser.isAmbiguous("0.125"));
+        assertFalse(NumberParser.isAmbiguous("1234,5"));
+        assertFalse(NumberParser.isAmbiguous("1234.567"));
+        assertFalse(NumberParser.isAmbiguous("1.234,5"));
+        assertFalse(NumberParser.isAmbiguous("1.234.567"));
+        assertFalse(NumberParser.isAmbiguous("1,23"));
+        assertFalse(NumberParser.isAmbiguous("1,2345"));
+        assertFalse(NumberParser.isAmbiguous("1.234E2"));
+        assertFalse(NumberParser.isAmbiguous("1234"));
+        assertFalse(NumberParser.isAmbiguous(null));
+    }
+}
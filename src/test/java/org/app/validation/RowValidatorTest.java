@@ -0,0 +1,83 @@
+package org.app.validation;
+
+import org.app.model.ExcelDto;
+import org.app.model.TestRows;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowValidatorTest {
+
+    @Test
+    void acceptedRowsHaveTheirNumbersParsed() {
+        ExcelDto row = TestRows.row("T1", "S", "I", "1.234,5", "3");
+        assertTrue(RowValidator.check(row).isEmpty());
+        assertEquals(1234.5, row.getGrossMass());
+        assertEquals(3, row.getPackages());
+    }
+
+    @Test
+    void ambiguousTextIsRejected() {
+        assertEquals(Collections.singletonList("Weight"), columns(RowValidator.check(TestRows.row("T1", "S", "I", "1,234", "1"))));
+        assertEquals(Collections.singletonList("Nr Of Packages"), columns(RowValidator.check(TestRows.row("T1", "S", "I", "2", "1.000"))));
+    }
+
+    @Test
+    void aNumberTheReaderAlreadyTookIsKept() {
+        ExcelDto row = TestRows.row("T1", "S", "I", "1,234", "1.000");
+        row.setGrossMass(1234);
+        row.setPackages(1000);
+        assertTrue(RowValidator.check(row).isEmpty());
+        assertEquals(1234.0, row.getGrossMass());
+        assertEquals(1000, row.getPackages());
+    }
+
+    @Test
+    void knownCountriesAreStoredUpperCaseWithTheirRouting() {
+        ExcelDto row = TestRows.row("T1", "S", "I", "fr", "1", "1");
+        row.setCountriesOfRoutingOfConsignment(new String[]{"MD", "RO", "DE", "fr"});
+        assertTrue(RowValidator.check(row).isEmpty());
+        assertEquals("FR", row.getImporterCountry());
+        assertArrayEquals(new String[]{"MD", "RO", "DE", "FR"}, row.getCountriesOfRoutingOfConsignment());
+    }
+
+    @Test
+    void unusableValuesAreRejectedWithTheirColumn() {
+        assertEquals(Arrays.asList("Tracking Nr", "Weight", "Nr Of Packages"),
+                columns(RowValidator.check(TestRows.row(" ", "S", "I", "", "x"))));
+        assertEquals(Collections.singletonList("Weight"), columns(RowValidator.check(TestRows.row("T1", "S", "I", "-1", "1"))));
+        assertEquals(Collections.singletonList("Weight"), columns(RowValidator.check(TestRows.row("T1", "S", "I", "0", "1"))));
+        assertEquals(Collections.singletonList("Nr Of Packages"), columns(RowValidator.check(TestRows.row("T1", "S", "I", "1", "1,5"))));
+        assertEquals(Collections.singletonList("Nr Of Packages"), columns(RowValidator.check(TestRows.row("T1", "S", "I", "1", "0"))));
+        assertEquals(Collections.singletonList("Importer Country"),
+                columns(RowValidator.check(TestRows.row("T1", "S", "I", "XX", "1", "1"))));
+    }
+
+    @Test
+    void reportCountsAcceptedAndRejectedRows() {
+        List<ExcelDto> rows = Arrays.asList(
+                TestRows.row("T1", "S", "I", "1,5", "1"),
+                TestRows.row("T2", "S", "I", "", ""),
+                TestRows.row("T3", "S", "I", "2", "2"));
+        ValidationReport report = RowValidator.validate(rows);
+        assertEquals(2, report.getAccepted().size());
+        assertEquals(1, report.getRejectedRows());
+        assertEquals(2, report.getErrors().size());
+        assertEquals(1.5, report.getAccepted().getGrossMass(0));
+        assertEquals(2, report.getAccepted().getPackages(1));
+    }
+
+    private static List<String> columns(List<RowError> errors) {
+        String[] columns = new String[errors.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = errors.get(i).getColumn();
+        }
+        return Arrays.asList(columns);
+    }
+}